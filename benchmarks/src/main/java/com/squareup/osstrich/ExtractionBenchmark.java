@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Extracting a generated Javadoc jar of {@code entryCount} files, by streaming it like a download
+ * and from a spooled file in parallel. When {@code incremental} only the first run of each trial
+ * writes files; the rest compare them with what's on disk.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ExtractionBenchmark {
+  @Param({"1000", "10000", "50000"})
+  int entryCount;
+
+  @Param({"false", "true"})
+  boolean incremental;
+
+  private File directory;
+  private File jar;
+  private ExecutorService executor;
+
+  @Setup(Level.Trial) public void setUp() throws IOException {
+    directory = Files.createTempDirectory("osstrich-benchmark").toFile();
+    jar = new File(directory, "javadoc.jar");
+    writeJavadocJar(jar, entryCount);
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @TearDown(Level.Trial) public void tearDown() throws IOException {
+    executor.shutdown();
+    Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+      @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+          throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override public FileVisitResult postVisitDirectory(Path dir, IOException e)
+          throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * Writes a jar of {@code entryCount} HTML files, 10 to a package, of 1 to 8 KiB each. Files
+   * repeat their markup the way Javadoc does, so they compress about as well.
+   */
+  static void writeJavadocJar(File jar, int entryCount) throws IOException {
+    Random random = new Random(0);
+    try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(jar))) {
+      zipOut.putNextEntry(new ZipEntry("index.html"));
+      zipOut.write("<html>Javadoc</html>".getBytes("UTF-8"));
+      zipOut.closeEntry();
+      for (int i = 1; i < entryCount; i++) {
+        String className = "Class" + i;
+        zipOut.putNextEntry(new ZipEntry(
+            "com/example/package" + (i / 10) + "/" + className + ".html"));
+        StringBuilder html = new StringBuilder();
+        int size = 1024 + random.nextInt(7 * 1024);
+        while (html.length() < size) {
+          html.append("<tr><td><code><a href=\"").append(className).append(".html#method")
+              .append(random.nextInt(100)).append("\">method").append(html.length())
+              .append("</a></code></td></tr>\n");
+        }
+        zipOut.write(html.toString().getBytes("UTF-8"));
+        zipOut.closeEntry();
+      }
+    }
+  }
+
+  @Benchmark public int streamed() throws IOException {
+    JavadocExtractor extractor = new JavadocExtractor(
+        new File(directory, "streamed"), incremental, "version.txt");
+    try (InputStream in = new BufferedInputStream(new FileInputStream(jar))) {
+      extractor.extract(in);
+    }
+    return extractor.entryNames().size();
+  }
+
+  @Benchmark public int spooled() throws IOException {
+    JavadocExtractor extractor = new JavadocExtractor(
+        new File(directory, "spooled"), incremental, "version.txt");
+    try (ZipFile zipFile = new ZipFile(jar)) {
+      extractor.extract(zipFile, executor, Runtime.getRuntime().availableProcessors());
+    }
+    return extractor.entryNames().size();
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The publisher's in-memory work for a group of {@code artifactCount} artifacts: finding major
+ * versions, ordering artifacts, building index pages, and finding each jar's Javadoc root.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class PublisherBenchmark {
+  @Param({"10", "100", "1000"})
+  int artifactCount;
+
+  private List<Artifact> artifacts;
+  private Manifest manifest;
+
+  @Setup public void setUp() {
+    Random random = new Random(0);
+    artifacts = new ArrayList<>();
+    manifest = Manifest.create("com.example");
+    for (int i = 0; i < artifactCount; i++) {
+      String artifactId = "artifact-" + random.nextInt(artifactCount * 10);
+      String version = random.nextInt(4) + "." + random.nextInt(10) + ".0";
+      artifacts.add(Artifact.create("com.example", artifactId, version));
+      manifest.put(Manifest.Entry.create(artifactId, version, artifactId));
+    }
+  }
+
+  /** The entry names of each artifact's jar. */
+  @State(Scope.Benchmark)
+  public static class Jars {
+    /** How each jar nests its {@code index.html}. */
+    @Param({"flat", "nested", "kotlin"})
+    String layout;
+
+    List<List<String>> entryNames;
+
+    @Setup public void setUp(PublisherBenchmark benchmark) {
+      entryNames = new ArrayList<>();
+      for (Artifact artifact : benchmark.artifacts) {
+        entryNames.add(javadocEntries(artifact.artifactId, layout));
+      }
+    }
+  }
+
+  /** Returns the entries of a small Javadoc jar, with its root nested according to layout. */
+  static List<String> javadocEntries(String artifactId, String layout) {
+    String root;
+    if ("flat".equals(layout)) {
+      root = "";
+    } else if ("nested".equals(layout)) {
+      root = artifactId + "/";
+    } else if ("kotlin".equals(layout)) {
+      root = artifactId + "/" + artifactId + "/jvm/";
+    } else {
+      throw new IllegalArgumentException(layout);
+    }
+    List<String> result = new ArrayList<>();
+    result.add(root + "package-list");
+    for (int i = 0; i < 50; i++) {
+      result.add(root + "com/example/package" + (i / 10) + "/Class" + i + ".html");
+    }
+    result.add(root + "allclasses-frame.html");
+    result.add(root + "index.html");
+    result.add("META-INF/MANIFEST.MF");
+    return result;
+  }
+
+  @Benchmark public int majorVersion() {
+    int result = 0;
+    for (Artifact artifact : artifacts) {
+      result += JavadocPublisher.majorVersion(artifact.latestVersion).length();
+    }
+    return result;
+  }
+
+  @Benchmark public List<Artifact> sortArtifacts() {
+    List<Artifact> result = new ArrayList<>(artifacts);
+    Collections.sort(result);
+    return result;
+  }
+
+  @Benchmark public int indexHtml() {
+    int result = 0;
+    for (String majorVersion : manifest.majorVersions()) {
+      result += JavadocPublisher.indexHtml("com.example", manifest, majorVersion, false)
+          .length();
+    }
+    return result;
+  }
+
+  @Benchmark public int javadocRoot(Jars jars) {
+    int result = 0;
+    for (int i = 0; i < artifacts.size(); i++) {
+      String root = JavadocExtractor.javadocRoot(
+          jars.entryNames.get(i), artifacts.get(i).artifactId);
+      if (root != null) result += root.length();
+    }
+    return result;
+  }
+}
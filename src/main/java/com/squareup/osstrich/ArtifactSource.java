@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import okio.BufferedSource;
+
+/** Finds artifacts and their Javadoc jars. */
+public interface ArtifactSource {
+  /** Returns the latest version of every artifact in {@code groupId}. */
+  List<Artifact> latestArtifacts(String groupId) throws IOException;
+
+  /** Returns the latest release of each of {@code artifactIds}, in the same order. */
+  List<Artifact> latestArtifacts(String groupId, List<String> artifactIds) throws IOException;
+
+  BufferedSource downloadJavadocJar(Artifact artifact) throws IOException;
+
+  /**
+   * Returns the Javadoc jar of {@code artifact}, adding the bytes read from the network to {@code
+   * bytesDownloaded} as they're read. Jars read from disk, like cached jars, add nothing.
+   */
+  default BufferedSource downloadJavadocJar(Artifact artifact, AtomicLong bytesDownloaded)
+      throws IOException {
+    return downloadJavadocJar(artifact);
+  }
+
+  /**
+   * Returns the Javadoc jar of {@code artifact} if it's already on the local file system, or null
+   * if it must be downloaded. Callers can use this to read the jar in place.
+   */
+  @Nullable File javadocJarFile(Artifact artifact) throws IOException;
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import com.google.common.util.concurrent.Futures;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+import okio.BufferedSource;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Runs many publish jobs in one process. Jobs share the template publisher's artifact source, and
+ * with it the HTTP client, and its metrics. Each repository is checked out once and its jobs, which
+ * all publish the same group, run one after another; different repositories are published
+ * concurrently.
+ */
+final class BatchPublisher {
+  private final JavadocPublisher.Builder template;
+  private final Log log;
+  private final int parallelism;
+
+  /**
+   * @param template options for every job. Job directories are resolved against its directory.
+   * @param parallelism the maximum number of repositories to publish to at once.
+   */
+  BatchPublisher(JavadocPublisher.Builder template, int parallelism) {
+    if (template.metrics == null) template.metrics(new PublishMetrics());
+    this.template = template;
+    this.log = template.log;
+    this.parallelism = parallelism;
+  }
+
+  /** Returns the metrics of every job. */
+  PublishMetrics metrics() {
+    return template.metrics;
+  }
+
+  /**
+   * Reads one job per line, as {@code <directory> <repo URL> <group ID>} optionally followed by
+   * {@code <artifact ID> <version>}. Blank lines and lines starting with {@code #} are ignored.
+   * Relative directories are resolved against {@code base}.
+   *
+   * <p>Every job for a repository must publish the same group. A branch has one manifest, which
+   * titles its index pages with one group ID and has one directory per artifact ID.
+   */
+  static List<Job> readJobs(File base, BufferedSource source) throws IOException {
+    List<Job> result = new ArrayList<>();
+    Map<String, Job> repoJobs = new LinkedHashMap<>();
+    Map<String, Integer> repoLines = new LinkedHashMap<>();
+    int lineNumber = 0;
+    for (String line; (line = source.readUtf8Line()) != null; ) {
+      lineNumber++;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) continue;
+
+      String[] fields = line.split("\\s+");
+      if (fields.length != 3 && fields.length != 5) {
+        throw new IOException(String.format("Unexpected job on line %s: %s", lineNumber, line));
+      }
+      File directory = new File(fields[0]);
+      if (!directory.isAbsolute()) directory = new File(base, fields[0]);
+      Job job = fields.length == 3
+          ? new Job(directory, fields[1], fields[2], null, null)
+          : new Job(directory, fields[1], fields[2], fields[3], fields[4]);
+
+      Job repoJob = repoJobs.get(job.repoUrl);
+      if (repoJob == null) {
+        repoJobs.put(job.repoUrl, job);
+        repoLines.put(job.repoUrl, lineNumber);
+      } else if (!repoJob.groupId.equals(job.groupId)) {
+        throw new IOException(String.format(
+            "Line %s publishes %s to %s, but line %s publishes %s there; use one group per repo",
+            lineNumber, job.groupId, job.repoUrl, repoLines.get(job.repoUrl), repoJob.groupId));
+      }
+      result.add(job);
+    }
+    return result;
+  }
+
+  /**
+   * Runs {@code jobs} and logs a summary of each. Returns the number of artifacts published. If any
+   * job fails this throws after the others have finished.
+   */
+  int publish(List<Job> jobs) throws IOException {
+    final Map<String, List<Job>> repoJobs = new LinkedHashMap<>();
+    for (Job job : jobs) {
+      List<Job> list = repoJobs.get(job.repoUrl);
+      if (list == null) {
+        list = new ArrayList<>();
+        repoJobs.put(job.repoUrl, list);
+      }
+      list.add(job);
+    }
+
+    final Map<Job, Object> results = new LinkedHashMap<>();
+    ExecutorService executor = JavadocPublisher.newExecutor("osstrich-batch-",
+        Math.max(1, Math.min(parallelism, repoJobs.size())));
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (final List<Job> list : repoJobs.values()) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override public Void call() {
+            publishRepository(list, results);
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        Futures.get(future, IOException.class);
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    int published = 0;
+    int failed = 0;
+    for (Job job : jobs) {
+      Object result = results.get(job);
+      if (result instanceof Integer) {
+        published += (Integer) result;
+        log.info(String.format("%s: published %s artifacts", job, result));
+      } else {
+        failed++;
+        log.error(String.format("%s: failed: %s", job, result));
+      }
+    }
+    log.info(String.format("Published %s artifacts in %s jobs to %s repositories",
+        published, jobs.size(), repoJobs.size()));
+    if (failed > 0) {
+      throw new IOException(String.format("%s of %s jobs failed", failed, jobs.size()));
+    }
+    return published;
+  }
+
+  /**
+   * Runs {@code jobs}, which all publish to the same repository, in the checkout of the first.
+   * Records the number of artifacts each published, or the exception it failed with.
+   */
+  private void publishRepository(List<Job> jobs, Map<Job, Object> results) {
+    File directory = jobs.get(0).directory;
+    for (Job job : jobs) {
+      if (!job.directory.equals(directory)) {
+        log.warn(String.format("Publishing %s from %s, where %s is already checked out",
+            job.groupId, directory, job.repoUrl));
+      }
+      Object result;
+      try {
+        // Its own process count keeps other repositories' concurrent jobs out of its count.
+        JavadocPublisher publisher =
+            template.copy(directory, template.cli.withNewProcessCount()).build();
+        result = job.artifactId != null
+            ? publisher.publish(job.repoUrl, job.groupId, job.artifactId, job.version)
+            : publisher.publishLatest(job.repoUrl, job.groupId);
+      } catch (IOException e) {
+        log.error(String.format("%s failed", job), e);
+        result = e;
+      } catch (RuntimeException e) {
+        // Like a malformed manifest. Fail only this job, not the rest of the batch.
+        log.error(String.format("%s failed", job), e);
+        result = e;
+      }
+      synchronized (results) {
+        results.put(job, result);
+      }
+    }
+  }
+
+  static final class Job {
+    final File directory;
+    final String repoUrl;
+    final String groupId;
+    final @Nullable String artifactId;
+    final @Nullable String version;
+
+    Job(File directory, String repoUrl, String groupId, @Nullable String artifactId,
+        @Nullable String version) {
+      this.directory = directory;
+      this.repoUrl = repoUrl;
+      this.groupId = groupId;
+      this.artifactId = artifactId;
+      this.version = version;
+    }
+
+    @Override public String toString() {
+      return artifactId != null
+          ? String.format("%s:%s:%s to %s", groupId, artifactId, version, repoUrl)
+          : String.format("%s to %s", groupId, repoUrl);
+    }
+  }
+}
@@ -17,59 +17,423 @@ package com.squareup.osstrich;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import okio.Buffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import okio.AsyncTimeout;
 import okio.BufferedSource;
 import okio.Okio;
+import org.apache.maven.plugin.logging.Log;
 
-/** Makes shelling out to the command line slightly neater. */
+/**
+ * Makes shelling out to the command line slightly neater.
+ *
+ * <p>Output is read a line at a time and logged at debug level. Only the last {@link
+ * #TAIL_LINES} lines are kept, for error messages, so a chatty process doesn't use unbounded
+ * memory. Each command is killed if it prints nothing for the {@linkplain #withTimeout timeout},
+ * or if it runs past the {@linkplain #withDeadline deadline}.
+ */
 public final class Cli {
-  private final File directory;
+  /** The number of lines of output to include when a command fails. */
+  static final int TAIL_LINES = 100;
+
+  /** Lines longer than this are split. */
+  static final int MAX_LINE_LENGTH = 1024;
+
+  private static final ExecutorService ASYNC_EXECUTOR =
+      Executors.newCachedThreadPool(new ThreadFactory() {
+        final AtomicInteger nextId = new AtomicInteger(1);
+
+        @Override public Thread newThread(Runnable runnable) {
+          Thread result = new Thread(runnable, "osstrich-cli-" + nextId.getAndIncrement());
+          result.setDaemon(true);
+          return result;
+        }
+      });
+
+  private final @Nullable File directory;
+  private final AtomicInteger processCount;
+  private final @Nullable Log log;
+  private final long timeoutNanos;
+  private final long deadlineNanos;
+  private final Map<String, String> environment;
 
   public Cli() {
-    this.directory = null;
+    this(null, new AtomicInteger(), null, TimeUnit.SECONDS.toNanos(30),
+        TimeUnit.MINUTES.toNanos(5), Collections.<String, String>emptyMap());
   }
 
-  private Cli(File directory) {
-    this.directory = directory.getAbsoluteFile();
+  private Cli(@Nullable File directory, AtomicInteger processCount, @Nullable Log log,
+      long timeoutNanos, long deadlineNanos, Map<String, String> environment) {
+    this.directory = directory;
+    this.processCount = processCount;
+    this.log = log;
+    this.timeoutNanos = timeoutNanos;
+    this.deadlineNanos = deadlineNanos;
+    this.environment = environment;
   }
 
   public Cli withCwd(File directory) {
-    return new Cli(directory);
+    return new Cli(directory.getAbsoluteFile(), processCount, log, timeoutNanos, deadlineNanos,
+        environment);
+  }
+
+  /** Returns a copy that logs each line of output to {@code log} at debug level. */
+  public Cli withLog(Log log) {
+    return new Cli(directory, processCount, log, timeoutNanos, deadlineNanos, environment);
+  }
+
+  /**
+   * Returns a copy that kills commands that print nothing for {@code timeout}. Defaults to 30
+   * seconds; 0 disables the timeout.
+   */
+  public Cli withTimeout(long timeout, TimeUnit unit) {
+    if (timeout < 0) throw new IllegalArgumentException("timeout < 0: " + timeout);
+    return new Cli(directory, processCount, log, unit.toNanos(timeout), deadlineNanos,
+        environment);
+  }
+
+  /**
+   * Returns a copy that kills commands that run for longer than {@code deadline}. Defaults to 5
+   * minutes; 0 disables the deadline.
+   */
+  public Cli withDeadline(long deadline, TimeUnit unit) {
+    if (deadline < 0) throw new IllegalArgumentException("deadline < 0: " + deadline);
+    return new Cli(directory, processCount, log, timeoutNanos, unit.toNanos(deadline),
+        environment);
+  }
+
+  /**
+   * Returns a copy whose {@link #processCount} starts at zero and counts only the processes started
+   * by it and its derived instances.
+   */
+  public Cli withNewProcessCount() {
+    return new Cli(directory, new AtomicInteger(), log, timeoutNanos, deadlineNanos, environment);
+  }
+
+  /** Returns a copy that adds {@code environment} to the environment of each command. */
+  public Cli withEnvironment(Map<String, String> environment) {
+    Map<String, String> merged = new LinkedHashMap<>(this.environment);
+    merged.putAll(environment);
+    return new Cli(directory, processCount, log, timeoutNanos, deadlineNanos,
+        Collections.unmodifiableMap(merged));
+  }
+
+  /** Returns the number of processes started by this and all derived instances. */
+  public int processCount() {
+    return processCount.get();
   }
 
   public void exec(String... command) throws IOException {
-    ProcessBuilder processBuilder = new ProcessBuilder(command);
+    await(execAsync(command));
+  }
 
-    if (directory != null) {
-      processBuilder.directory(directory);
+  /**
+   * Starts {@code command} and returns a future that completes when it exits. The future fails
+   * with the exception that {@link #exec} would throw. Cancelling it destroys the process.
+   */
+  public CompletableFuture<Void> execAsync(String... command) {
+    final CompletableFuture<String> output = run(command, null);
+    final CompletableFuture<Void> result = output.thenApply(new Function<String, Void>() {
+      @Override public Void apply(String output) {
+        return null;
+      }
+    });
+    // Cancellation doesn't propagate to the future this depends on.
+    result.whenComplete(new BiConsumer<Void, Throwable>() {
+      @Override public void accept(@Nullable Void ignored, @Nullable Throwable failure) {
+        if (result.isCancelled()) output.cancel(true);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Runs {@code command} and returns its standard output. Standard error is logged and kept out
+   * of the result, but its tail is included in the exception if the command fails.
+   *
+   * <p>The whole output is held in memory, so this is only for small outputs. Use {@link
+   * #readRecords} for output that grows with the branch, like a recursive {@code ls-tree}.
+   */
+  public String read(String... command) throws IOException {
+    return await(run(command, new Stdout() {
+      @Override public String read(BufferedSource source) throws IOException {
+        return source.readUtf8();
+      }
+    }));
+  }
+
+  /**
+   * Runs {@code command} and passes each {@code delimiter}-terminated record of its standard
+   * output to {@code handler} as it's read, like the paths printed by git's {@code -z} options.
+   * The handler is called on a background thread, and this returns once the command exits.
+   */
+  public void readRecords(final byte delimiter, final RecordHandler handler, String... command)
+      throws IOException {
+    await(run(command, new Stdout() {
+      @Override public String read(BufferedSource source) throws IOException {
+        for (long end; (end = source.indexOf(delimiter)) != -1L; ) {
+          handler.record(source.readUtf8(end));
+          source.skip(1);
+        }
+        if (!source.exhausted()) handler.record(source.readUtf8());
+        return "";
+      }
+    }));
+  }
+
+  /** Receives the records of a command's standard output. */
+  public interface RecordHandler {
+    void record(String record) throws IOException;
+  }
+
+  /** Reads a command's standard output and returns the result. */
+  private interface Stdout {
+    String read(BufferedSource source) throws IOException;
+  }
+
+  /**
+   * Runs {@code command}, reading its output on a background thread. If {@code stdout} is null
+   * standard output and error are merged and logged; otherwise standard output is read by {@code
+   * stdout}, whose result is returned, and standard error is logged.
+   *
+   * <p>When a command times out or the future is cancelled, the command is destroyed and the
+   * future fails immediately. The background thread may stay blocked until the command's own child
+   * processes close their output.
+   */
+  private CompletableFuture<String> run(final String[] command, @Nullable final Stdout stdout) {
+    final CompletableFuture<String> result = new CompletableFuture<>();
+    final Deque<String> tail = new ArrayDeque<>();
+    final File stderr;
+    final Process process;
+    try {
+      ProcessBuilder processBuilder = processBuilder(command);
+      if (stdout != null) {
+        stderr = File.createTempFile("osstrich-", ".stderr");
+        processBuilder.redirectError(stderr);
+      } else {
+        stderr = null;
+        processBuilder.redirectErrorStream(true);
+      }
+      process = processBuilder.start();
+      processCount.incrementAndGet();
+    } catch (IOException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+
+    final AsyncTimeout timeout = new AsyncTimeout() {
+      @Override protected void timedOut() {
+        process.destroy();
+        result.completeExceptionally(new InterruptedIOException("Timed out executing "
+            + Arrays.toString(command) + ":\n" + join(tail)));
+      }
+    };
+    timeout.timeout(timeoutNanos, TimeUnit.NANOSECONDS);
+    if (deadlineNanos != 0L) {
+      timeout.deadlineNanoTime(System.nanoTime() + deadlineNanos);
     }
 
+    // Cancelling doesn't interrupt the thread reading the output, so destroy the process instead.
+    result.whenComplete(new BiConsumer<String, Throwable>() {
+      @Override public void accept(@Nullable String output, @Nullable Throwable failure) {
+        if (result.isCancelled()) process.destroy();
+      }
+    });
+
+    ASYNC_EXECUTOR.execute(new Runnable() {
+      @Override public void run() {
+        try {
+          String output = "";
+          try (BufferedSource source =
+                   Okio.buffer(timeout.source(Okio.source(process.getInputStream())))) {
+            if (stdout != null) {
+              output = stdout.read(source);
+            } else {
+              for (String line; (line = readLine(source)) != null; ) {
+                addLine(tail, line);
+              }
+            }
+          } catch (IOException e) {
+            process.destroy();
+            throw new IOException("Failed to execute " + Arrays.toString(command) + ":\n"
+                + join(tail), e);
+          } finally {
+            if (stderr != null) {
+              addLines(tail, stderr);
+            }
+          }
+          waitFor(process, command, tail);
+          result.complete(output);
+        } catch (Throwable e) {
+          result.completeExceptionally(e);
+        } finally {
+          if (stderr != null) {
+            stderr.delete();
+          }
+        }
+      }
+    });
+    return result;
+  }
+
+  /** Returns the result of {@code future}, rethrowing its failure on the calling thread. */
+  private static <T> T await(CompletableFuture<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof InterruptedIOException) {
+        throw (InterruptedIOException) new InterruptedIOException(cause.getMessage())
+            .initCause(cause);
+      }
+      if (cause instanceof IOException) throw new IOException(cause.getMessage(), cause);
+      throw new RuntimeException(cause);
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+    }
+  }
+
+  /**
+   * Starts {@code command} without waiting for it to exit, for processes that read their standard
+   * input. The process's standard output and error are both written to {@code output}.
+   */
+  public Process start(File output, String... command) throws IOException {
+    ProcessBuilder processBuilder = processBuilder(command);
     processBuilder.redirectErrorStream(true);
+    processBuilder.redirectOutput(output);
     Process process = processBuilder.start();
+    processCount.incrementAndGet();
+    return process;
+  }
 
-    Buffer buffer = new Buffer();
-    try (BufferedSource source = Okio.buffer(Okio.source(process.getInputStream()))) {
-      source.timeout().timeout(30, TimeUnit.SECONDS);
-      source.timeout().deadline(5, TimeUnit.MINUTES);
-      source.readAll(buffer);
-    } catch (IOException e) {
-      throw new IOException("Failed to execute " + Arrays.toString(command) + ":\n"
-          + buffer.readUtf8());
-    } finally {
+  /**
+   * Waits for {@code process}, which this {@linkplain #start started}, to exit and throws if it
+   * fails. It's destroyed if it runs past the deadline, which is measured from when this is called
+   * because the caller may take any amount of time to write its input. The timeout doesn't apply,
+   * since the process's output isn't read.
+   */
+  public void awaitExit(Process process, String... command) throws IOException {
+    try {
+      if (deadlineNanos == 0L) {
+        process.waitFor();
+      } else if (!process.waitFor(deadlineNanos, TimeUnit.NANOSECONDS)) {
+        process.destroy();
+        throw new InterruptedIOException("Timed out waiting for " + Arrays.toString(command));
+      }
+    } catch (InterruptedException e) {
       process.destroy();
+      throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+    }
+    int exitValue = process.exitValue();
+    if (exitValue != 0) {
+      throw new IOException("Process returned " + exitValue + ":\n" + Arrays.toString(command));
+    }
+  }
+
+  private ProcessBuilder processBuilder(String[] command) {
+    ProcessBuilder processBuilder = new ProcessBuilder(command);
+    if (directory != null) {
+      processBuilder.directory(directory);
     }
+    processBuilder.environment().putAll(environment);
+    return processBuilder;
+  }
+
+  private static void waitFor(Process process, String[] command, Deque<String> tail)
+      throws IOException {
     try {
-      process.waitFor(30, TimeUnit.SECONDS);
+      if (!process.waitFor(30, TimeUnit.SECONDS)) {
+        process.destroy();
+        throw new IOException("Timed out waiting for " + Arrays.toString(command) + ":\n"
+            + join(tail));
+      }
     } catch (InterruptedException e) {
+      process.destroy();
       throw new IOException(e);
     }
     int exitValue = process.exitValue();
     if (exitValue != 0) {
       throw new IOException("Process returned " + exitValue + ":\n"
           + Arrays.toString(command) + ":\n"
-          + buffer.readUtf8());
+          + join(tail));
+    }
+  }
+
+  /**
+   * Returns the next line of {@code source} without its line terminator, or null if it's
+   * exhausted. Lines longer than {@link #MAX_LINE_LENGTH} bytes are returned in pieces, split
+   * between characters.
+   */
+  static @Nullable String readLine(BufferedSource source) throws IOException {
+    long newline = source.indexOf((byte) '\n', 0, MAX_LINE_LENGTH);
+    if (newline != -1L) {
+      String line = source.readUtf8(newline);
+      source.skip(1);
+      return line;
+    }
+    if (source.request(MAX_LINE_LENGTH + 1)) {
+      // Back off to the start of a multi-byte character rather than split it. A character has at
+      // most 3 continuation bytes.
+      long end = MAX_LINE_LENGTH;
+      while (end > MAX_LINE_LENGTH - 3 && (source.buffer().getByte(end) & 0xc0) == 0x80) {
+        end--;
+      }
+      return source.readUtf8(end);
+    }
+    return source.exhausted() ? null : source.readUtf8();
+  }
+
+  /**
+   * Adds {@code line} to {@code tail}, dropping the oldest line if it's full. Progress meters
+   * rewrite their line with carriage returns; each rewrite is treated as its own line.
+   */
+  private void addLine(Deque<String> tail, String line) {
+    for (String part : line.split("\r")) {
+      if (part.isEmpty()) continue;
+      if (log != null) {
+        log.debug(part);
+      }
+      synchronized (tail) {
+        if (tail.size() == TAIL_LINES) {
+          tail.removeFirst();
+        }
+        tail.addLast(part);
+      }
+    }
+  }
+
+  /** Adds each line of {@code file} to {@code tail}. */
+  private void addLines(Deque<String> tail, File file) throws IOException {
+    try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+      for (String line; (line = readLine(source)) != null; ) {
+        addLine(tail, line);
+      }
+    }
+  }
+
+  private static String join(Deque<String> lines) {
+    synchronized (lines) {
+      StringBuilder result = new StringBuilder();
+      for (String line : lines) {
+        result.append(line).append('\n');
+      }
+      return result.toString();
     }
   }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import okio.BufferedSink;
+import okio.Okio;
+
+/** Runs the {@code git} command line tool for each operation. */
+public final class CliGitClient implements GitClient {
+  private final Cli cli;
+
+  public CliGitClient(Cli cli) {
+    this.cli = cli;
+  }
+
+  /**
+   * Returns a copy of {@code cli} for commands that transfer objects to or from a remote. These
+   * have no deadline, because a big push on a slow link can take a long time. They're only killed
+   * if they stop printing output; use {@code --progress} so that git keeps printing.
+   */
+  static Cli remote(Cli cli) {
+    return cli.withTimeout(5, TimeUnit.MINUTES).withDeadline(0, TimeUnit.MINUTES);
+  }
+
+  @Override public void cloneBranch(String repoUrl, String branch, File directory)
+      throws IOException {
+    remote(cli).exec("git", "clone",
+        "--progress",
+        "--single-branch",
+        "--branch", branch,
+        repoUrl,
+        directory.getAbsolutePath());
+  }
+
+  @Override public void pull(File directory) throws IOException {
+    remote(cli).withCwd(directory).exec("git", "pull", "--progress");
+  }
+
+  /**
+   * Stages all of {@code files} with a single {@code git add}, which needs git 2.25 or newer. It
+   * prints nothing while it hashes, so it has no idle timeout, and its deadline allows a minute per
+   * path: each may be the directory of a whole artifact.
+   */
+  @Override public void add(File directory, Collection<File> files) throws IOException {
+    if (files.isEmpty()) return;
+
+    File pathspecFile = File.createTempFile("osstrich-pathspec", ".txt");
+    try {
+      try (BufferedSink sink = Okio.buffer(Okio.sink(pathspecFile))) {
+        for (File file : files) {
+          sink.writeUtf8(file.getAbsolutePath()).writeByte(0);
+        }
+      }
+      cli.withCwd(directory)
+          .withTimeout(0, TimeUnit.MINUTES)
+          .withDeadline(Math.max(5, files.size()), TimeUnit.MINUTES)
+          .exec("git", "add",
+              "--pathspec-from-file=" + pathspecFile.getAbsolutePath(),
+              "--pathspec-file-nul");
+    } finally {
+      pathspecFile.delete();
+    }
+  }
+
+  @Override public void commit(File directory, String message) throws IOException {
+    cli.withCwd(directory).exec("git", "commit", "-m", message);
+  }
+
+  @Override public void push(File directory, String branch) throws IOException {
+    remote(cli).withCwd(directory).exec("git", "push", "--progress", "origin", branch);
+  }
+
+  @Override public void close() {
+  }
+
+  @Override public String toString() {
+    return "git";
+  }
+}
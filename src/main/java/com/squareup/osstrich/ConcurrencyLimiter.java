@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import javax.annotation.Nullable;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Limits how many requests wait for a response at once, adapting the limit to the server. Each
+ * successful response raises the limit by one over its current value, so it grows by about one per
+ * round of requests, and each throttling response halves it. This finds the most concurrency the
+ * server allows without being throttled. Response bodies are read outside the limit.
+ */
+final class ConcurrencyLimiter implements Interceptor {
+  private final int minLimit;
+  private final int maxLimit;
+  private double limit;
+  private int inFlight;
+
+  ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+    if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+      throw new IllegalArgumentException(String.format(
+          "expected 1 <= minLimit <= initialLimit <= maxLimit but was %s, %s, %s",
+          minLimit, initialLimit, maxLimit));
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = initialLimit;
+  }
+
+  synchronized int limit() {
+    return (int) limit;
+  }
+
+  @Override public Response intercept(Chain chain) throws IOException {
+    acquire();
+    Response response = null;
+    try {
+      response = chain.proceed(chain.request());
+      return response;
+    } finally {
+      release(response);
+    }
+  }
+
+  private synchronized void acquire() throws InterruptedIOException {
+    try {
+      while (inFlight >= (int) limit) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a request slot");
+    }
+    inFlight++;
+  }
+
+  /** Frees a slot and adapts the limit to {@code response}, which is null if the call failed. */
+  private synchronized void release(@Nullable Response response) {
+    inFlight--;
+    if (response != null && (response.code() == 429 || response.code() == 503)) {
+      limit = Math.max(minLimit, limit / 2);
+    } else if (response != null && response.isSuccessful()) {
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+    notifyAll();
+  }
+}
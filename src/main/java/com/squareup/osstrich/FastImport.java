@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+
+/**
+ * Writes a single commit straight into a repository's object store with {@code git fast-import}.
+ * Files are streamed to the importer as they're read, so they're never written to a working tree
+ * or hashed a second time by {@code git add}.
+ *
+ * <p>File commands may be issued from multiple threads. The commit's tree doesn't depend on the
+ * order that files are written in, as long as each directory is deleted before its files are
+ * written. Closing an import that wasn't {@linkplain #finish finished} kills the importer without
+ * updating any refs.
+ */
+final class FastImport implements Closeable {
+  private static final String[] COMMAND = {"git", "fast-import", "--quiet", "--done"};
+
+  private final Cli git;
+  private final Process process;
+  private final File output;
+  private final BufferedSink sink;
+  private boolean finished;
+
+  private FastImport(Cli git, Process process, File output) {
+    this.git = git;
+    this.process = process;
+    this.output = output;
+    this.sink = Okio.buffer(Okio.sink(process.getOutputStream()));
+  }
+
+  /**
+   * Starts a commit to {@code branch} in the repository that {@code git} runs in. The commit's
+   * parent is the branch's current tip, and its tree starts out as the tip's tree.
+   */
+  static FastImport start(Cli git, String branch, String message) throws IOException {
+    String committer = git.read("git", "var", "GIT_COMMITTER_IDENT").trim();
+    File output = File.createTempFile("osstrich-fast-import", ".txt");
+    FastImport result = new FastImport(git, git.start(output, COMMAND), output);
+    try {
+      ByteString messageBytes = ByteString.encodeUtf8(message);
+      result.sink.writeUtf8("commit refs/heads/").writeUtf8(branch).writeByte('\n')
+          .writeUtf8("committer ").writeUtf8(committer).writeByte('\n')
+          .writeUtf8("data ").writeDecimalLong(messageBytes.size()).writeByte('\n')
+          .write(messageBytes).writeByte('\n')
+          .writeUtf8("from refs/heads/").writeUtf8(branch).writeUtf8("^0\n");
+    } catch (IOException e) {
+      result.close();
+      throw e;
+    }
+    return result;
+  }
+
+  /** Removes {@code path} and everything under it from the commit's tree. */
+  synchronized void delete(String path) throws IOException {
+    sink.writeUtf8("D ").writeUtf8(path).writeByte('\n');
+  }
+
+  /** Writes a regular file at {@code path} with the contents of {@code contents}. */
+  synchronized void write(String path, Buffer contents) throws IOException {
+    sink.writeUtf8("M 100644 inline ").writeUtf8(path).writeByte('\n')
+        .writeUtf8("data ").writeDecimalLong(contents.size()).writeByte('\n')
+        .writeAll(contents);
+    sink.writeByte('\n');
+  }
+
+  /**
+   * Completes the commit and waits for the importer to update the branch, for as long as the
+   * {@linkplain Cli#withDeadline deadline} of the importer's {@link Cli}.
+   */
+  synchronized void finish() throws IOException {
+    sink.writeUtf8("done\n");
+    sink.close();
+    try {
+      git.awaitExit(process, COMMAND);
+    } catch (InterruptedIOException e) {
+      throw (InterruptedIOException) new InterruptedIOException(e.getMessage() + ":\n" + output())
+          .initCause(e);
+    } catch (IOException e) {
+      throw new IOException(e.getMessage() + ":\n" + output(), e);
+    }
+    finished = true;
+  }
+
+  private String output() throws IOException {
+    try (BufferedSource source = Okio.buffer(Okio.source(output))) {
+      return source.readUtf8();
+    }
+  }
+
+  @Override public synchronized void close() throws IOException {
+    if (!finished) {
+      process.destroy();
+    }
+    output.delete();
+  }
+}
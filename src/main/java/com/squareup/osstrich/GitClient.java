@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * The git operations needed to publish to a branch of a working tree. Implementations may keep
+ * repositories open between calls; close the client when publishing is done.
+ */
+public interface GitClient extends Closeable {
+  /** Clones only {@code branch} of {@code repoUrl} into {@code directory}, and checks it out. */
+  void cloneBranch(String repoUrl, String branch, File directory) throws IOException;
+
+  /** Fetches and merges the upstream of the current branch. */
+  void pull(File directory) throws IOException;
+
+  /** Stages {@code files}, including deletions of tracked files under them. */
+  void add(File directory, Collection<File> files) throws IOException;
+
+  void commit(File directory, String message) throws IOException;
+
+  /** Pushes {@code branch} to the same branch of {@code origin}. */
+  void push(File directory, String branch) throws IOException;
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Rewrites a branch so it keeps only its most recent commits. The oldest commit kept becomes a
+ * root, and each newer commit is recreated on top of it with the same tree, message, authors, and
+ * dates. Trees aren't changed, so neither is the working tree.
+ */
+final class HistoryCompactor {
+  private final Cli git;
+  private final File directory;
+  private final int depth;
+
+  /**
+   * @param git runs commands in the repository.
+   * @param depth the number of commits to keep. 1 squashes the branch into a single commit.
+   */
+  HistoryCompactor(Cli git, File directory, int depth) {
+    if (depth < 1) throw new IllegalArgumentException("depth < 1: " + depth);
+    this.git = git.withCwd(directory);
+    this.directory = directory;
+    this.depth = depth;
+  }
+
+  /**
+   * Rewrites {@code branch} to keep only its last {@link #depth} commits, following first parents.
+   * Returns the number of commits kept, or 0 if the branch was already that short.
+   *
+   * @throws IOException if the branch is shallow with fewer than {@link #depth} commits, so that
+   *     compacting it would discard history that wasn't fetched. Deepen it first.
+   */
+  int compact(String branch) throws IOException {
+    List<String> commits = new ArrayList<>(Arrays.asList(git.read("git", "rev-list",
+        "--first-parent", "--max-count=" + (depth + 1), branch).trim().split("\n")));
+    if (commits.size() > depth) {
+      commits = commits.subList(0, depth);
+    } else if (!isShallow(commits.get(commits.size() - 1))) {
+      return 0;
+    } else if (commits.size() < depth) {
+      throw new IOException(String.format(
+          "%s is shallow with %s of the %s commits to keep; fetch more history before compacting",
+          branch, commits.size(), depth));
+    }
+
+    Collections.reverse(commits);
+    String parent = null;
+    for (String commit : commits) {
+      String[] fields = git.read("git", "log", "-1", "--date=raw",
+          "--format=%an%n%ae%n%ad%n%cn%n%ce%n%cd%n%B", commit).split("\n", 7);
+      Map<String, String> identity = new LinkedHashMap<>();
+      identity.put("GIT_AUTHOR_NAME", fields[0]);
+      identity.put("GIT_AUTHOR_EMAIL", fields[1]);
+      identity.put("GIT_AUTHOR_DATE", fields[2]);
+      identity.put("GIT_COMMITTER_NAME", fields[3]);
+      identity.put("GIT_COMMITTER_EMAIL", fields[4]);
+      identity.put("GIT_COMMITTER_DATE", fields[5]);
+      List<String> command = new ArrayList<>(Arrays.asList(
+          "git", "commit-tree", commit + "^{tree}", "-m", fields[6].trim()));
+      if (parent != null) Collections.addAll(command, "-p", parent);
+      parent = git.withEnvironment(identity)
+          .read(command.toArray(new String[command.size()])).trim();
+    }
+    git.exec("git", "update-ref", "-m", "osstrich: compact history",
+        "refs/heads/" + branch, parent);
+    return commits.size();
+  }
+
+  /**
+   * Returns true if {@code commit} is the boundary of a shallow clone. Its parents weren't fetched,
+   * so the history is longer than it appears.
+   */
+  private boolean isShallow(String commit) throws IOException {
+    File shallow = new File(git.read("git", "rev-parse", "--git-path", "shallow").trim());
+    if (!shallow.isAbsolute()) shallow = new File(directory, shallow.getPath());
+    if (!shallow.exists()) return false;
+    try (BufferedSource source = Okio.buffer(Okio.source(shallow))) {
+      for (String line; (line = source.readUtf8Line()) != null; ) {
+        if (line.trim().equals(commit)) return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Force-pushes {@code branch} to {@code origin}, but only if the remote branch is still {@code
+   * expected}. This fails rather than discard commits that were pushed since it was fetched.
+   */
+  void forcePush(String branch, String expected) throws IOException {
+    CliGitClient.remote(git).exec("git", "push", "--progress",
+        "--force-with-lease=" + branch + ":" + expected, "origin", branch);
+  }
+
+  /**
+   * Deletes objects that are no longer reachable, like those of the history removed. This runs
+   * without a timeout: gc prints nothing while it repacks, which takes a while in a large
+   * repository.
+   */
+  void prune() throws IOException {
+    Cli unlimited = git.withTimeout(0, TimeUnit.SECONDS).withDeadline(0, TimeUnit.SECONDS);
+    unlimited.exec("git", "reflog", "expire", "--expire=now", "--all");
+    unlimited.exec("git", "gc", "--quiet", "--prune=now");
+  }
+
+  /** Returns the number and size of the objects in this repository. */
+  Size size() throws IOException {
+    long objects = 0L;
+    long kibibytes = 0L;
+    for (String line : git.read("git", "count-objects", "-v").split("\n")) {
+      String[] parts = line.split(": ", 2);
+      if (parts.length != 2) continue;
+      switch (parts[0]) {
+        case "count":
+        case "in-pack":
+          objects += Long.parseLong(parts[1].trim());
+          break;
+        case "size":
+        case "size-pack":
+          kibibytes += Long.parseLong(parts[1].trim());
+          break;
+        default:
+          break;
+      }
+    }
+    return new Size(objects, kibibytes * 1024L);
+  }
+
+  static final class Size {
+    final long objects;
+    final long bytes;
+
+    Size(long objects, long bytes) {
+      this.objects = objects;
+      this.bytes = bytes;
+    }
+
+    @Override public String toString() {
+      return String.format("%s objects, %s", objects, PublishMetrics.formatBytes(bytes));
+    }
+  }
+}
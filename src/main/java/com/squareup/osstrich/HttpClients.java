@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.security.SecureRandom;
+import javax.annotation.Nullable;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/** The HTTP client shared by artifact sources, so that they share connections and limits. */
+final class HttpClients {
+  /** Attempts for each idempotent request, including the first. */
+  static final int MAX_ATTEMPTS = 4;
+
+  private static @Nullable OkHttpClient shared;
+
+  private HttpClients() {
+  }
+
+  /** Returns the shared client, creating it if necessary. */
+  static synchronized OkHttpClient shared() {
+    if (shared == null) {
+      shared = newClient(
+          new RetryInterceptor(MAX_ATTEMPTS, 500, 30_000, MILLISECONDS, new SecureRandom()),
+          new ConcurrencyLimiter(8, 1, 64));
+    }
+    return shared;
+  }
+
+  /**
+   * Returns a client that retries with {@code retry} and limits concurrency with {@code limiter}.
+   * The dispatcher doesn't limit requests per host; the limiter does.
+   */
+  static OkHttpClient newClient(RetryInterceptor retry, ConcurrencyLimiter limiter) {
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequestsPerHost(dispatcher.getMaxRequests());
+    return new OkHttpClient.Builder()
+        .dispatcher(dispatcher)
+        .connectionPool(new ConnectionPool(16, 5, MINUTES))
+        .connectTimeout(10, SECONDS)
+        .readTimeout(60, SECONDS)
+        .addInterceptor(retry)
+        .addInterceptor(limiter)
+        .build();
+  }
+}
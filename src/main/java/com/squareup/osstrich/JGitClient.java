@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.eclipse.jgit.api.AddCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.PullResult;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+
+/**
+ * Runs git operations in this process with JGit. Each repository is opened once and kept open,
+ * along with its index, until this client is closed.
+ *
+ * <p>JGit reads the committer from the same {@code GIT_COMMITTER_*} environment variables and
+ * {@code user.*} configuration as git. It does its own SSH and credential handling, which doesn't
+ * use git's credential helpers.
+ */
+public final class JGitClient implements GitClient {
+  private final Map<File, Git> repositories = new LinkedHashMap<>();
+
+  @Override public synchronized void cloneBranch(String repoUrl, String branch, File directory)
+      throws IOException {
+    try {
+      Git git = Git.cloneRepository()
+          .setURI(repoUrl)
+          .setDirectory(directory)
+          .setBranch(branch)
+          .setCloneAllBranches(false)
+          .setBranchesToClone(Collections.singleton("refs/heads/" + branch))
+          .call();
+      Git previous = repositories.put(directory.getAbsoluteFile(), git);
+      if (previous != null) previous.close();
+    } catch (GitAPIException e) {
+      throw new IOException("Failed to clone " + repoUrl, e);
+    }
+  }
+
+  @Override public void pull(File directory) throws IOException {
+    try {
+      PullResult result = git(directory).pull().call();
+      if (!result.isSuccessful()) {
+        throw new IOException("Failed to pull into " + directory + ": " + result);
+      }
+    } catch (GitAPIException e) {
+      throw new IOException("Failed to pull into " + directory, e);
+    }
+  }
+
+  @Override public void add(File directory, Collection<File> files) throws IOException {
+    if (files.isEmpty()) return;
+
+    Git git = git(directory);
+    String root = git.getRepository().getWorkTree().getAbsolutePath() + File.separator;
+    // JGit stages new and modified files, or modified and deleted files, but not both at once.
+    AddCommand addNew = git.add();
+    AddCommand addDeleted = git.add().setUpdate(true);
+    for (File file : files) {
+      String path = file.getAbsolutePath();
+      if (!path.startsWith(root)) {
+        throw new IllegalArgumentException(file + " is not in " + root);
+      }
+      String filePattern = path.substring(root.length()).replace(File.separatorChar, '/');
+      addNew.addFilepattern(filePattern);
+      addDeleted.addFilepattern(filePattern);
+    }
+    try {
+      addNew.call();
+      addDeleted.call();
+    } catch (GitAPIException e) {
+      throw new IOException("Failed to add files to " + directory, e);
+    }
+  }
+
+  @Override public void commit(File directory, String message) throws IOException {
+    try {
+      git(directory).commit().setMessage(message).call();
+    } catch (GitAPIException e) {
+      throw new IOException("Failed to commit to " + directory, e);
+    }
+  }
+
+  @Override public void push(File directory, String branch) throws IOException {
+    Iterable<PushResult> results;
+    try {
+      results = git(directory).push()
+          .setRemote("origin")
+          .setRefSpecs(new RefSpec("refs/heads/" + branch))
+          .call();
+    } catch (GitAPIException e) {
+      throw new IOException("Failed to push " + branch + " from " + directory, e);
+    }
+    for (PushResult result : results) {
+      for (RemoteRefUpdate update : result.getRemoteUpdates()) {
+        if (update.getStatus() != RemoteRefUpdate.Status.OK
+            && update.getStatus() != RemoteRefUpdate.Status.UP_TO_DATE) {
+          throw new IOException("Failed to push " + update.getRemoteName() + ": "
+              + update.getStatus() + " " + update.getMessage());
+        }
+      }
+    }
+  }
+
+  /** Returns the open repository in {@code directory}, opening it if necessary. */
+  private synchronized Git git(File directory) throws IOException {
+    File key = directory.getAbsoluteFile();
+    Git result = repositories.get(key);
+    if (result == null) {
+      result = Git.open(key);
+      repositories.put(key, result);
+    }
+    return result;
+  }
+
+  @Override public synchronized void close() {
+    for (Git git : repositories.values()) {
+      git.close();
+    }
+    repositories.clear();
+  }
+
+  @Override public String toString() {
+    return "JGit";
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import javax.annotation.Nullable;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Javadoc jars on the local file system, so that released artifacts are only downloaded once.
+ * Jars are stored under the SHA-256 of their {@code groupId:artifactId:version} coordinates. When
+ * the cache grows beyond its maximum size the least-recently used jars are deleted.
+ */
+public final class JavadocCache {
+  /** One GiB. */
+  public static final long DEFAULT_MAX_SIZE = 1024L * 1024L * 1024L;
+
+  private static final String JAR_SUFFIX = ".jar";
+  private static final String METADATA_SUFFIX = ".metadata";
+
+  final File directory;
+  final long maxSize;
+  final boolean revalidate;
+  private int hitCount;
+  private int missCount;
+  private long bytesSaved;
+
+  /**
+   * @param revalidate true to make a conditional request for every cached jar. Released
+   *     artifacts don't change, so this is only necessary for repositories that overwrite them.
+   */
+  public JavadocCache(File directory, long maxSize, boolean revalidate) {
+    if (maxSize <= 0L) throw new IllegalArgumentException("maxSize <= 0: " + maxSize);
+    this.directory = directory;
+    this.maxSize = maxSize;
+    this.revalidate = revalidate;
+  }
+
+  /** Returns the cached jar for {@code artifact}, or null if it isn't cached. */
+  synchronized @Nullable Entry get(Artifact artifact) throws IOException {
+    File jar = jarFile(artifact);
+    if (!jar.isFile()) return null;
+
+    String etag = null;
+    String lastModified = null;
+    File metadata = metadataFile(artifact);
+    if (metadata.isFile()) {
+      try (BufferedSource source = Okio.buffer(Okio.source(metadata))) {
+        for (String line; (line = source.readUtf8Line()) != null; ) {
+          if (line.startsWith("ETag: ")) etag = line.substring("ETag: ".length());
+          if (line.startsWith("Last-Modified: ")) {
+            lastModified = line.substring("Last-Modified: ".length());
+          }
+        }
+      }
+    }
+    return new Entry(jar, etag, lastModified);
+  }
+
+  /**
+   * Records a cache hit for {@code entry} and returns its jar, or null if another download evicted
+   * it since {@link #get}. Callers treat that as a miss.
+   */
+  synchronized @Nullable BufferedSource hit(Entry entry) throws IOException {
+    if (!entry.jar.isFile()) return null;
+    // Opened while holding the lock, so it stays readable even if it's evicted later.
+    BufferedSource result = Okio.buffer(Okio.source(entry.jar));
+    hitCount++;
+    bytesSaved += entry.jar.length();
+    // Bump the modified time, which is the eviction order.
+    if (!entry.jar.setLastModified(System.currentTimeMillis())) {
+      result.close();
+      throw new IOException("failed to touch " + entry.jar);
+    }
+    return result;
+  }
+
+  /**
+   * Writes {@code jar} to the cache, evicts old entries if necessary, and returns the cached jar.
+   */
+  BufferedSource put(Artifact artifact, Source jar, @Nullable String etag,
+      @Nullable String lastModified) throws IOException {
+    if (!directory.mkdirs() && !directory.isDirectory()) {
+      throw new IOException("failed to mkdirs for " + directory);
+    }
+
+    // Download to a temporary file so concurrent readers never see a partial jar.
+    File temp = File.createTempFile("download-", ".tmp", directory);
+    try {
+      try (BufferedSink sink = Okio.buffer(Okio.sink(temp))) {
+        sink.writeAll(jar);
+      } finally {
+        jar.close();
+      }
+
+      synchronized (this) {
+        missCount++;
+        File metadata = metadataFile(artifact);
+        try (BufferedSink sink = Okio.buffer(Okio.sink(metadata))) {
+          if (etag != null) sink.writeUtf8("ETag: ").writeUtf8(etag).writeByte('\n');
+          if (lastModified != null) {
+            sink.writeUtf8("Last-Modified: ").writeUtf8(lastModified).writeByte('\n');
+          }
+        }
+        File jarFile = jarFile(artifact);
+        if ((jarFile.exists() && !jarFile.delete()) || !temp.renameTo(jarFile)) {
+          throw new IOException("failed to move " + temp + " to " + jarFile);
+        }
+        evict(jarFile);
+        return Okio.buffer(Okio.source(jarFile));
+      }
+    } finally {
+      if (temp.exists() && !temp.delete()) {
+        throw new IOException("failed to delete " + temp);
+      }
+    }
+  }
+
+  /** Deletes least-recently used jars until the cache fits in {@code maxSize}. */
+  private void evict(File keep) throws IOException {
+    File[] files = directory.listFiles();
+    if (files == null) return;
+
+    List<File> jars = new ArrayList<>();
+    long size = 0L;
+    for (File file : files) {
+      if (!file.getName().endsWith(JAR_SUFFIX)) continue;
+      jars.add(file);
+      size += file.length();
+    }
+    Collections.sort(jars, new Comparator<File>() {
+      @Override public int compare(File a, File b) {
+        return Long.compare(a.lastModified(), b.lastModified());
+      }
+    });
+
+    for (File jar : jars) {
+      if (size <= maxSize) break;
+      if (jar.equals(keep)) continue;
+      size -= jar.length();
+      String baseName = jar.getName().substring(0, jar.getName().length() - JAR_SUFFIX.length());
+      File metadata = new File(directory, baseName + METADATA_SUFFIX);
+      if (!jar.delete() || (metadata.exists() && !metadata.delete())) {
+        throw new IOException("failed to evict " + jar);
+      }
+    }
+  }
+
+  private File jarFile(Artifact artifact) {
+    return new File(directory, key(artifact) + JAR_SUFFIX);
+  }
+
+  private File metadataFile(Artifact artifact) {
+    return new File(directory, key(artifact) + METADATA_SUFFIX);
+  }
+
+  private static String key(Artifact artifact) {
+    return ByteString.encodeUtf8(artifact.toString()).sha256().hex();
+  }
+
+  public synchronized int hitCount() {
+    return hitCount;
+  }
+
+  public synchronized int missCount() {
+    return missCount;
+  }
+
+  public synchronized long bytesSaved() {
+    return bytesSaved;
+  }
+
+  @Override public synchronized String toString() {
+    return String.format("%s hits, %s misses, %s bytes saved", hitCount, missCount, bytesSaved);
+  }
+
+  static final class Entry {
+    final File jar;
+    final @Nullable String etag;
+    final @Nullable String lastModified;
+
+    Entry(File jar, @Nullable String etag, @Nullable String lastModified) {
+      this.jar = jar;
+      this.etag = etag;
+      this.lastModified = lastModified;
+    }
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import com.google.common.util.concurrent.Futures;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import javax.annotation.Nullable;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+
+/**
+ * Writes the entries of a Javadoc jar to a directory.
+ *
+ * <p>In incremental mode files whose size and CRC already match the jar entry aren't rewritten,
+ * and files that aren't in the jar are deleted. This leaves the directory exactly as a full
+ * extraction into an empty directory would, but lets git skip re-hashing unchanged files.
+ */
+final class JavadocExtractor {
+  private final File destination;
+  private final boolean incremental;
+  private final @Nullable SearchIndex.Collector search;
+  private final @Nullable SharedAssets assets;
+  private final Set<String> keep =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private final List<String> entryNames =
+      Collections.synchronizedList(new ArrayList<String>());
+  private final AtomicInteger written = new AtomicInteger();
+  private final AtomicInteger skipped = new AtomicInteger();
+  private final AtomicInteger deleted = new AtomicInteger();
+  private final AtomicLong bytesWritten = new AtomicLong();
+
+  /**
+   * @param keep relative paths of files in {@code destination} that aren't in the jar but must not
+   *     be deleted.
+   */
+  JavadocExtractor(File destination, boolean incremental, String... keep) {
+    this(destination, incremental, null, null, keep);
+  }
+
+  /**
+   * @param search receives the contents of member search indexes as they're extracted.
+   * @param assets assets that are stored elsewhere. They aren't written to {@code destination},
+   *     and references to them in pages are rewritten.
+   * @param keep relative paths of files in {@code destination} that aren't in the jar but must not
+   *     be deleted.
+   */
+  JavadocExtractor(File destination, boolean incremental, @Nullable SearchIndex.Collector search,
+      @Nullable SharedAssets assets, String... keep) {
+    this.destination = destination;
+    this.incremental = incremental;
+    this.search = search;
+    this.assets = assets;
+    Collections.addAll(this.keep, keep);
+  }
+
+  /** Extracts the jar in {@code in}, then deletes stale files if this is incremental. */
+  void extract(InputStream in) throws IOException {
+    try (ZipInputStream zipIn = new ZipInputStream(in)) {
+      for (ZipEntry entry; (entry = zipIn.getNextEntry()) != null; ) {
+        if (entry.isDirectory()) continue;
+        writeEntry(entry, zipIn);
+      }
+    }
+    if (incremental) {
+      pruneStaleFiles(destination, "");
+    }
+  }
+
+  /**
+   * Extracts {@code zipFile} using up to {@code parallelism} threads of {@code executor}, then
+   * deletes stale files if this is incremental. Unlike a streamed jar, the zip file's central
+   * directory has the size and CRC of every entry so unchanged files are never read.
+   */
+  void extract(final ZipFile zipFile, ExecutorService executor, int parallelism)
+      throws IOException {
+    List<ZipEntry> entries = new ArrayList<>();
+    for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements(); ) {
+      ZipEntry entry = e.nextElement();
+      if (!entry.isDirectory()) entries.add(entry);
+    }
+
+    int taskCount = Math.max(1, Math.min(parallelism, entries.size()));
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < taskCount; i++) {
+      final List<ZipEntry> slice = entries.subList(
+          i * entries.size() / taskCount, (i + 1) * entries.size() / taskCount);
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override public Void call() throws IOException {
+          for (ZipEntry entry : slice) {
+            try (InputStream in = zipFile.getInputStream(entry)) {
+              writeEntry(entry, in);
+            }
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      Futures.get(future, IOException.class);
+    }
+
+    if (incremental) {
+      pruneStaleFiles(destination, "");
+    }
+  }
+
+  /** Returns the number of bytes written to files. Unchanged files aren't counted. */
+  long bytesWritten() {
+    return bytesWritten.get();
+  }
+
+  /** Returns the names of the files extracted so far. */
+  List<String> entryNames() {
+    synchronized (entryNames) {
+      return new ArrayList<>(entryNames);
+    }
+  }
+
+  /**
+   * Returns the path of the directory containing the Javadoc's {@code index.html}, relative to
+   * the artifact's directory, or null if the jar has no index. This is the artifact's directory
+   * itself, or a nested directory named for the artifact, or a Kotlin multiplatform {@code jvm}
+   * directory.
+   */
+  static @Nullable String javadocRoot(Collection<String> entryNames, String artifactId) {
+    Set<String> files = new LinkedHashSet<>(entryNames);
+    Set<String> directories = new LinkedHashSet<>();
+    for (String name : entryNames) {
+      for (int slash = name.indexOf('/'); slash != -1; slash = name.indexOf('/', slash + 1)) {
+        directories.add(name.substring(0, slash + 1));
+      }
+    }
+
+    StringBuilder result = new StringBuilder(artifactId);
+    String prefix = "";
+    while (!files.contains(prefix + "index.html")) {
+      if (directories.contains(prefix + artifactId + "/")) {
+        prefix += artifactId + "/";
+        result.append('/').append(artifactId);
+      } else if (directories.contains(prefix + "jvm/")) {
+        prefix += "jvm/";
+        result.append("/jvm");
+      } else {
+        return null;
+      }
+    }
+    return result.toString();
+  }
+
+  private void writeEntry(ZipEntry entry, InputStream zipIn) throws IOException {
+    File file = new File(destination + "/" + entry.getName());
+    entryNames.add(entry.getName());
+
+    if (assets != null && assets.paths.containsKey(entry.getName())) {
+      // Not kept, so an incremental extraction deletes copies left by an earlier one.
+      if (!incremental && file.exists() && !file.delete()) {
+        throw new IOException("failed to delete " + file);
+      }
+      return;
+    }
+    keep.add(entry.getName());
+
+    // Entries that are read before they're written, either to inspect or to change them.
+    Buffer buffer = null;
+    if (search != null && SearchIndex.Collector.isMemberIndex(entry.getName())) {
+      buffer = new Buffer();
+      buffer.writeAll(Okio.source(zipIn));
+      search.read(entry.getName(), buffer.clone());
+    } else if (assets != null && SharedAssets.isPage(entry.getName())) {
+      buffer = assets.rewrite(entry.getName(), Okio.buffer(Okio.source(zipIn)));
+    }
+
+    if (!incremental) {
+      write(file, buffer != null ? buffer : Okio.source(zipIn));
+      return;
+    }
+
+    // Entries with a data descriptor don't know their size or CRC until they've been read.
+    long size = entry.getSize();
+    long crc = entry.getCrc();
+    if (buffer == null && (size == -1L || crc == -1L)) {
+      buffer = new Buffer();
+      buffer.writeAll(Okio.source(zipIn));
+    }
+    if (buffer != null) {
+      size = buffer.size();
+      crc = crc32(buffer.clone());
+    }
+
+    if (file.isFile() && file.length() == size && crc32(Okio.buffer(Okio.source(file))) == crc) {
+      skipped.incrementAndGet();
+      return;
+    }
+
+    write(file, buffer != null ? buffer : Okio.source(zipIn));
+  }
+
+  private void write(File file, Source source) throws IOException {
+    if (!file.getParentFile().mkdirs() && !file.getParentFile().isDirectory()) {
+      throw new IOException("failed to mkdirs for " + file);
+    }
+    try (Sink out = Okio.sink(file)) {
+      bytesWritten.addAndGet(Okio.buffer(source).readAll(out));
+    }
+    written.incrementAndGet();
+  }
+
+  /** Deletes files under {@code directory} that weren't extracted, and then empty directories. */
+  private void pruneStaleFiles(File directory, String prefix) throws IOException {
+    File[] files = directory.listFiles();
+    if (files == null) return;
+
+    for (File file : files) {
+      String path = prefix + file.getName();
+      if (file.isDirectory()) {
+        pruneStaleFiles(file, path + "/");
+        String[] remaining = file.list();
+        if (remaining != null && remaining.length == 0 && !file.delete()) {
+          throw new IOException("failed to delete " + file);
+        }
+      } else if (!keep.contains(path)) {
+        if (!file.delete()) {
+          throw new IOException("failed to delete " + file);
+        }
+        deleted.incrementAndGet();
+      }
+    }
+  }
+
+  private static long crc32(BufferedSource source) throws IOException {
+    CRC32 crc32 = new CRC32();
+    try {
+      byte[] bytes = new byte[8192];
+      for (int count; (count = source.read(bytes)) != -1; ) {
+        crc32.update(bytes, 0, count);
+      }
+    } finally {
+      source.close();
+    }
+    return crc32.getValue();
+  }
+
+  @Override public String toString() {
+    return String.format("%s written, %s unchanged, %s deleted",
+        written.get(), skipped.get(), deleted.get());
+  }
+}
@@ -15,22 +15,44 @@
  */
 package com.squareup.osstrich;
 
+import com.google.common.base.Ticker;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.TreeMultimap;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import javax.annotation.Nullable;
+import okhttp3.HttpUrl;
+import okio.Buffer;
 import okio.BufferedSink;
 import okio.BufferedSource;
+import okio.ByteString;
 import okio.Okio;
 import okio.Sink;
 import org.apache.maven.plugin.logging.Log;
@@ -41,34 +63,155 @@ import static java.util.Objects.requireNonNull;
 
 /** Downloads Javadoc from Maven and uploads it to GitHub pages. */
 public final class JavadocPublisher {
-  final MavenCentral mavenCentral;
+  /** Matches the {@code <major>/<artifact>/version.txt} files of published artifacts. */
+  private static final Pattern VERSION_TXT_PATTERN =
+      Pattern.compile("[^/]+/[^/]+/version\\.txt");
+  private static final Pattern MAJOR_VERSION_PATTERN = Pattern.compile("([^.]+)\\..*");
+  private static final String JEKYLL_CONFIG = "_config.yml";
+  private static final String NO_JEKYLL = ".nojekyll";
+
+  /**
+   * A search box for index pages. Each query loads the {@link SearchIndex} shard for its first
+   * character once, then lists up to 50 entries whose names start with the query.
+   */
+  private static final String SEARCH_HTML = ""
+      + "<input id=\"search\" type=\"search\" placeholder=\"Search\" autocomplete=\"off\">\n"
+      + "<ul id=\"results\"></ul>\n"
+      + "<script>\n"
+      + "(function() {\n"
+      + "  var kinds = {p: 'package', t: 'type', m: 'member'};\n"
+      + "  var shards = {};\n"
+      + "  var input = document.getElementById('search');\n"
+      + "  var results = document.getElementById('results');\n"
+      + "  input.addEventListener('input', function() {\n"
+      + "    var query = input.value.trim();\n"
+      + "    results.innerHTML = '';\n"
+      + "    if (!query) return;\n"
+      + "    var c = query.charAt(0).toLowerCase();\n"
+      + "    var prefix = /[a-z0-9]/.test(c) ? c : '_';\n"
+      + "    if (!shards[prefix]) {\n"
+      + "      shards[prefix] = fetch('" + SearchIndex.DIRECTORY + "/' + prefix + '.json')\n"
+      + "          .then(function(r) { return r.ok ? r.json() : []; })\n"
+      + "          .catch(function() { return []; });\n"
+      + "    }\n"
+      + "    shards[prefix].then(function(entries) {\n"
+      + "      if (input.value.trim() !== query) return;\n"
+      + "      var lower = query.toLowerCase();\n"
+      + "      for (var i = 0, n = 0; i < entries.length && n < 50; i++) {\n"
+      + "        var e = entries[i];\n"
+      + "        if (e[0].toLowerCase().lastIndexOf(lower, 0) !== 0) continue;\n"
+      + "        var li = document.createElement('li');\n"
+      + "        var a = document.createElement('a');\n"
+      + "        a.href = e[3];\n"
+      + "        a.textContent = e[0];\n"
+      + "        li.appendChild(a);\n"
+      + "        li.appendChild(document.createTextNode(' ' + kinds[e[1]] + ' in ' + e[2]));\n"
+      + "        results.appendChild(li);\n"
+      + "        n++;\n"
+      + "      }\n"
+      + "    });\n"
+      + "  });\n"
+      + "})();\n"
+      + "</script>\n";
+
+  final ArtifactSource artifactSource;
   final Cli cli;
+  final GitClient git;
   final Log log;
   final File directory;
   final boolean dryRun;
   final boolean force;
+  final int parallelism;
+  final boolean incremental;
+  final boolean spool;
+  final boolean shallow;
+  final boolean checkRemote;
+  final boolean direct;
+  final int compact;
+  final boolean searchIndex;
+  final boolean shareAssets;
+  final PublishMetrics metrics;
+
+  /** Paths to pass to {@code git add} before the next commit. */
+  private final Set<File> pendingAdds = new LinkedHashSet<>();
+
+  /** Javadoc roots found from the entry names of each jar downloaded by the current run. */
+  private final Map<Artifact, String> javadocRoots = new ConcurrentHashMap<>();
+
+  /** Search entries found while extracting each downloaded jar, if {@link #searchIndex}. */
+  private final Map<Artifact, List<SearchIndex.Entry>> searchEntries = new ConcurrentHashMap<>();
 
-  public JavadocPublisher(MavenCentral mavenCentral, Cli cli, Log log, File directory) {
-    this(mavenCentral, cli, log, directory, false, false);
+  /** Hashes of the shared asset directories on the branch or written by this run. */
+  private final Set<String> assetDirectories =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  /** The shared asset directory of each downloaded jar, if {@link #shareAssets}. */
+  private final Map<Artifact, String> artifactAssets = new ConcurrentHashMap<>();
+
+  /** Shared asset directories written to the working tree by each jar, to be staged. */
+  private final Map<Artifact, File> writtenAssets = new ConcurrentHashMap<>();
+
+  /** True if the branch has a Jekyll {@code _config.yml}. */
+  private boolean jekyllConfig;
+
+  public JavadocPublisher(ArtifactSource artifactSource, Cli cli, Log log, File directory) {
+    this(artifactSource, cli, log, directory, false, false);
   }
 
-  public JavadocPublisher(MavenCentral mavenCentral,
+  public JavadocPublisher(ArtifactSource artifactSource,
       Cli cli,
       Log log,
       File directory,
       boolean dryRun,
       boolean force) {
-    this.mavenCentral = mavenCentral;
-    this.cli = cli;
-    this.log = log;
-    this.directory = directory;
-    this.dryRun = dryRun;
-    this.force = force;
+    this(new Builder(artifactSource, cli, log, directory)
+        .dryRun(dryRun)
+        .force(force));
+  }
+
+  JavadocPublisher(Builder builder) {
+    this.artifactSource = builder.artifactSource;
+    this.cli = builder.cli;
+    this.git = builder.git != null ? builder.git : new CliGitClient(builder.cli);
+    this.log = builder.log;
+    this.directory = builder.directory;
+    this.dryRun = builder.dryRun;
+    this.force = builder.force;
+    this.parallelism = builder.parallelism;
+    this.incremental = builder.incremental;
+    this.spool = builder.spool;
+    this.shallow = builder.shallow;
+    this.checkRemote = builder.checkRemote;
+    this.direct = builder.direct;
+    this.compact = builder.compact;
+    this.searchIndex = builder.searchIndex;
+    this.shareAssets = builder.shareAssets;
+    this.metrics = builder.metrics != null ? builder.metrics : new PublishMetrics();
+  }
+
+  /** Returns the metrics of every run of this publisher. */
+  public PublishMetrics metrics() {
+    return metrics;
   }
 
   public int publishLatest(String repoUrl, String groupId) throws IOException {
-    List<Artifact> artifacts = mavenCentral.latestArtifacts(groupId);
-    log.info(String.format("Maven central returned %s artifacts", artifacts.size()));
+    long start = System.nanoTime();
+    List<Artifact> artifacts = artifactSource.latestArtifacts(groupId);
+    metrics.phase("search", start);
+    log.info(String.format("%s returned %s artifacts", artifactSource, artifacts.size()));
+    return publishArtifacts(repoUrl, groupId, artifacts);
+  }
+
+  /**
+   * Publishes the latest release of each of {@code artifactIds}. This reads versions from the
+   * repository's {@code maven-metadata.xml} files so it doesn't wait for the search index.
+   */
+  public int publishLatest(String repoUrl, String groupId, List<String> artifactIds)
+      throws IOException {
+    long start = System.nanoTime();
+    List<Artifact> artifacts = artifactSource.latestArtifacts(groupId, artifactIds);
+    metrics.phase("resolve", start);
+    log.info(String.format("Resolved %s artifacts from maven-metadata.xml", artifacts.size()));
     return publishArtifacts(repoUrl, groupId, artifacts);
   }
 
@@ -78,9 +221,75 @@ public final class JavadocPublisher {
     return publishArtifacts(repoUrl, groupId, Collections.singletonList(artifact));
   }
 
+  /** Publishes {@code artifacts} in a single commit. */
+  public int publish(String repoUrl, String groupId, List<Artifact> artifacts) throws IOException {
+    return publishArtifacts(repoUrl, groupId, artifacts);
+  }
+
   private int publishArtifacts(String repoUrl, String groupId, List<Artifact> artifacts)
       throws IOException {
-    initGitDirectory(repoUrl);
+    try {
+      return checkOutAndPublish(repoUrl, groupId, artifacts);
+    } finally {
+      // Artifacts are compared by identity and each poll of the watcher creates new ones, so
+      // anything kept past this run would never be read again.
+      javadocRoots.clear();
+      searchEntries.clear();
+      artifactAssets.clear();
+      writtenAssets.clear();
+    }
+  }
+
+  private int checkOutAndPublish(String repoUrl, String groupId, List<Artifact> artifacts)
+      throws IOException {
+    int processCountBefore = cli.processCount();
+    if (checkRemote && !force) {
+      long start = System.nanoTime();
+      artifacts = staleOnRemote(repoUrl, artifacts);
+      metrics.phase("remote check", start);
+      if (artifacts.isEmpty()) {
+        log.info(String.format("All artifacts are up to date on %s; skipping checkout", repoUrl));
+        logProcessCount(processCountBefore);
+        return 0;
+      }
+    }
+
+    long start = System.nanoTime();
+    if (direct) {
+      initBareGitDirectory(repoUrl);
+    } else if (shallow) {
+      initShallowGitDirectory(repoUrl, artifacts);
+    } else {
+      initGitDirectory(repoUrl);
+    }
+    metrics.phase("checkout", start);
+
+    start = System.nanoTime();
+    String treeish = direct ? "gh-pages" : "HEAD";
+    long assetFilesShared = metrics.assetFilesShared();
+    long assetBytesShared = metrics.assetBytesShared();
+    if (shareAssets) {
+      readAssetDirectories();
+    }
+    Set<String> indexedVersions = new TreeSet<>();
+    Manifest manifest = readManifest(treeish);
+    if (manifest == null) {
+      manifest = buildManifest(groupId, treeish);
+      // Index pages written before the manifest only list the artifacts of one run.
+      indexedVersions.addAll(manifest.majorVersions());
+    }
+
+    List<Artifact> stale;
+    if (direct) {
+      stale = staleInTree(cli.withCwd(directory), "gh-pages", "gh-pages", artifacts);
+    } else {
+      stale = new ArrayList<>();
+      for (Artifact artifact : artifacts) {
+        if (isStale(artifact, manifest)) {
+          stale.add(artifact);
+        }
+      }
+    }
 
     StringBuilder commitMessage = new StringBuilder();
     commitMessage.append("Publish Javadoc\n"
@@ -88,33 +297,209 @@ public final class JavadocPublisher {
         + "Artifacts published:");
 
     Multimap<String, Artifact> published = TreeMultimap.create();
+    for (Artifact artifact : stale) {
+      published.put(majorVersion(artifact.latestVersion), artifact);
+      commitMessage.append("\n").append(artifact);
+    }
+    indexedVersions.addAll(published.keySet());
+    metrics.phase("stale check", start);
+
+    if (direct) {
+      if (!published.isEmpty()) {
+        importAndPush(groupId, stale, manifest, indexedVersions, commitMessage.toString());
+      }
+    } else {
+      start = System.nanoTime();
+      fetchJavadoc(stale, null);
+      for (Artifact artifact : stale) {
+        gitAdd(artifactDirectory(artifact));
+        File assetDirectory = writtenAssets.remove(artifact);
+        if (assetDirectory != null) gitAdd(assetDirectory);
+      }
+      metrics.phase("fetch", start);
+      if (!published.isEmpty()) {
+        start = System.nanoTime();
+        updateManifest(groupId, manifest, stale, indexedVersions, null);
+        metrics.phase("index", start);
+        gitCommitAndPush(commitMessage.toString());
+      }
+    }
+
+    if (shareAssets) {
+      log.info(String.format("Shared assets saved %s files, %s",
+          metrics.assetFilesShared() - assetFilesShared,
+          PublishMetrics.formatBytes(metrics.assetBytesShared() - assetBytesShared)));
+    }
+    logProcessCount(processCountBefore);
+    return published.size();
+  }
+
+  private void logProcessCount(int processCountBefore) {
+    int processCount = cli.processCount() - processCountBefore;
+    metrics.addProcesses(processCount);
+    log.info(String.format("Spawned %s processes", processCount));
+  }
+
+  /**
+   * Returns the artifacts whose {@code version.txt} on the remote {@code gh-pages} tip doesn't
+   * match their latest version. This fetches only the tip's trees into a scratch repository, so it
+   * doesn't clone or download any files.
+   */
+  private List<Artifact> staleOnRemote(String repoUrl, List<Artifact> artifacts)
+      throws IOException {
+    File scratch = Files.createTempDir();
+    try {
+      Cli git = cli.withCwd(scratch);
+      git.exec("git", "init", "--quiet", "--bare");
+      CliGitClient.remote(git).exec("git", "fetch", "--quiet", "--depth", "1",
+          "--filter=blob:none", repoUrl, "gh-pages");
+      return staleInTree(git, "FETCH_HEAD", repoUrl, artifacts);
+    } finally {
+      cli.exec("rm", "-rf", scratch.getAbsolutePath());
+    }
+  }
+
+  /**
+   * Returns the artifacts with Javadoc whose {@code version.txt} in {@code treeish} doesn't match
+   * their latest version. This compares blob hashes, so the blobs needn't be present.
+   */
+  private List<Artifact> staleInTree(Cli git, String treeish, String location,
+      List<Artifact> artifacts) throws IOException {
+    Map<String, Artifact> versionPaths = new LinkedHashMap<>();
     for (Artifact artifact : artifacts) {
-      if (fetchJavadoc(artifact)) {
-        published.put(majorVersion(artifact.latestVersion), artifact);
-        commitMessage.append("\n").append(artifact);
+      if (artifact.hasJavadoc()) {
+        versionPaths.put(majorVersion(artifact.latestVersion) + "/" + artifact.artifactId
+            + "/version.txt", artifact);
+      } else {
+        log.info(String.format("Skipping %s, artifact has no Javadoc", artifact));
+      }
+    }
+    if (versionPaths.isEmpty()) return Collections.emptyList();
+
+    List<String> lsTree = new ArrayList<>();
+    Collections.addAll(lsTree, "git", "ls-tree", "-r", treeish, "--");
+    lsTree.addAll(versionPaths.keySet());
+    Map<String, String> blobs = new LinkedHashMap<>();
+    for (String line : git.read(lsTree.toArray(new String[lsTree.size()])).split("\n")) {
+      // <mode> SP <type> SP <object> TAB <path>
+      int tab = line.indexOf('\t');
+      if (tab == -1) continue;
+      String[] fields = line.substring(0, tab).split(" ");
+      blobs.put(line.substring(tab + 1), fields[2]);
+    }
+
+    List<Artifact> result = new ArrayList<>();
+    for (Map.Entry<String, Artifact> entry : versionPaths.entrySet()) {
+      Artifact artifact = entry.getValue();
+      if (!blobHash(artifact.latestVersion).equals(blobs.get(entry.getKey()))) {
+        result.add(artifact);
+      } else if (force) {
+        log.info(String.format("%s is up to date on %s, but downloading anyway due to --force",
+            artifact, location));
+        result.add(artifact);
+      } else {
+        log.info(String.format("Skipping %s, artifact is up to date on %s", artifact, location));
       }
     }
+    return result;
+  }
 
-    writeIndexFiles(groupId, published);
+  /** Returns the hex SHA-1 git assigns to a blob containing {@code content}. */
+  static String blobHash(String content) {
+    ByteString bytes = ByteString.encodeUtf8(content);
+    return new Buffer()
+        .writeUtf8("blob " + bytes.size())
+        .writeByte(0)
+        .write(bytes)
+        .readByteString()
+        .sha1()
+        .hex();
+  }
 
-    if (!published.isEmpty()) {
-      gitCommitAndPush(commitMessage.toString());
+  /** Finds the shared asset directories that are already on the branch, and its Jekyll config. */
+  private void readAssetDirectories() throws IOException {
+    assetDirectories.clear();
+    if (direct) {
+      String prefix = SharedAssets.DIRECTORY + "/";
+      jekyllConfig = false;
+      for (String path : cli.withCwd(directory).read("git", "ls-tree", "--name-only", "gh-pages",
+          "--", prefix, JEKYLL_CONFIG).split("\n")) {
+        if (path.startsWith(prefix)) assetDirectories.add(path.substring(prefix.length()));
+        if (path.equals(JEKYLL_CONFIG)) jekyllConfig = true;
+      }
+    } else {
+      String[] hashes = new File(directory, SharedAssets.DIRECTORY).list();
+      if (hashes != null) Collections.addAll(assetDirectories, hashes);
+      jekyllConfig = new File(directory, JEKYLL_CONFIG).exists();
     }
+  }
 
-    return published.size();
+  /** Returns the branch's manifest, or null if it doesn't have one yet. */
+  private @Nullable Manifest readManifest(String treeish) throws IOException {
+    if (!direct) {
+      File file = new File(directory, Manifest.PATH);
+      if (!file.exists()) return null;
+      try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+        return Manifest.read(source);
+      }
+    }
+
+    Cli git = cli.withCwd(directory);
+    if (git.read("git", "ls-tree", "--name-only", treeish, "--", Manifest.PATH).isEmpty()) {
+      return null;
+    }
+    return Manifest.read(new Buffer().writeUtf8(
+        git.read("git", "cat-file", "blob", treeish + ":" + Manifest.PATH)));
+  }
+
+  /**
+   * Returns a manifest of the artifacts already published in {@code treeish}. This lists the
+   * tree's files and reads every {@code version.txt}, so it's done only once per branch.
+   */
+  private Manifest buildManifest(String groupId, String treeish) throws IOException {
+    log.info(String.format("No %s in %s; building it from %s", Manifest.PATH, directory, treeish));
+    Cli git = cli.withCwd(directory);
+    // Streamed and trimmed, because a branch can hold millions of files.
+    final Set<String> paths = new LinkedHashSet<>();
+    git.readRecords((byte) 0, new Cli.RecordHandler() {
+      @Override public void record(String path) {
+        paths.add(Manifest.rootPath(path));
+      }
+    }, "git", "ls-tree", "-r", "-z", "--name-only", treeish);
+
+    Map<String, String> versions = new LinkedHashMap<>();
+    for (String path : paths) {
+      if (VERSION_TXT_PATTERN.matcher(path).matches()) {
+        versions.put(path, null);
+      }
+    }
+    if (!versions.isEmpty()) {
+      String grep = git.read("git", "grep", "-z", "-e", "", treeish, "--",
+          ":(glob)*/*/version.txt");
+      for (String line : grep.split("\n")) {
+        // <treeish>:<path> NUL <line>
+        int nul = line.indexOf('\0');
+        if (nul == -1) continue;
+        versions.put(line.substring(treeish.length() + 1, nul), line.substring(nul + 1));
+      }
+    }
+    versions.values().removeAll(Collections.singleton(null));
+
+    return Manifest.fromTree(groupId, paths, versions);
   }
 
-  private boolean fetchJavadoc(Artifact artifact) throws IOException {
+  /** Returns true if {@code artifact} has Javadoc that should be downloaded. */
+  private boolean isStale(Artifact artifact, Manifest manifest) throws IOException {
     if (!artifact.hasJavadoc()) {
       log.info(String.format("Skipping %s, artifact has no Javadoc", artifact));
       return false;
     }
 
-    File artifactDirectory = new File(directory
-        + "/" + majorVersion(artifact.latestVersion) + "/" + artifact.artifactId);
-    File versionText = new File(artifactDirectory, "version.txt");
+    File artifactDirectory = artifactDirectory(artifact);
+    Manifest.Entry entry =
+        manifest.get(majorVersion(artifact.latestVersion), artifact.artifactId);
 
-    if (versionText.exists() && artifact.latestVersion.equals(readUtf8(versionText))) {
+    if (entry != null && artifact.latestVersion.equals(entry.version)) {
       if (force) {
         log.info(String.format("%s artifact is up to date, but downloading anyway due to --force",
             artifactDirectory));
@@ -124,84 +509,269 @@ public final class JavadocPublisher {
       }
     }
 
-    log.info(String.format("Downloading %s to %s", artifact, artifactDirectory));
-    downloadJavadoc(artifact, artifactDirectory);
-    writeUtf8(versionText, artifact.latestVersion);
-    gitAdd(artifactDirectory);
     return true;
   }
 
-  private void writeIndexFiles(String groupId, Multimap<String, Artifact> artifacts) throws IOException {
-    for (String majorVersion : artifacts.keySet()) {
-      StringBuilder html = new StringBuilder();
-      html.append("<!DOCTYPE html>\n<html><head><title>")
-          .append(groupId)
-          .append("</title></head>\n<body>\n<h1>")
-          .append(groupId)
-          .append("</h1>\n<ul>\n");
-      File workingDir = new File(directory, majorVersion);
-      for (Artifact artifact : artifacts.get(majorVersion)) {
-        String relativePath = findRelativePath(
-            new File(workingDir, artifact.artifactId), artifact.artifactId);
-        if (relativePath == null) continue;
-        html.append("<li><a href=\"")
-            .append(relativePath)
-            .append("\">")
-            .append(artifact.artifactId)
-            .append("</li>\n");
-      }
-      html.append("</ul>\n</body>\n</html>");
+  /**
+   * Downloads and extracts the Javadoc of {@code artifacts}. This uses up to {@link #parallelism}
+   * threads; the files written are the same regardless of how many threads are used.
+   */
+  private void fetchJavadoc(List<Artifact> artifacts, @Nullable FastImport fastImport)
+      throws IOException {
+    ExecutorService extractExecutor = (spool || shareAssets) && fastImport == null
+        ? newExecutor("osstrich-extract-", Runtime.getRuntime().availableProcessors())
+        : null;
+    try {
+      fetchJavadoc(artifacts, extractExecutor, fastImport);
+    } finally {
+      if (extractExecutor != null) extractExecutor.shutdownNow();
+    }
+  }
 
-      File indexHtml = new File(directory + "/" + majorVersion + "/index.html");
-      Files.write(html, indexHtml, UTF_8);
-      gitAdd(indexHtml);
+  private void fetchJavadoc(List<Artifact> artifacts,
+      @Nullable final ExecutorService extractExecutor, @Nullable final FastImport fastImport)
+      throws IOException {
+    if (parallelism <= 1 || artifacts.size() <= 1) {
+      for (Artifact artifact : artifacts) {
+        fetchJavadoc(artifact, extractExecutor, fastImport);
+      }
+      return;
+    }
+
+    ExecutorService executor =
+        newExecutor("osstrich-fetch-", Math.min(parallelism, artifacts.size()));
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (final Artifact artifact : artifacts) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override public Void call() throws IOException {
+            fetchJavadoc(artifact, extractExecutor, fastImport);
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        Futures.get(future, IOException.class);
+      }
+    } finally {
+      executor.shutdownNow();
     }
   }
 
-  private @Nullable String findRelativePath(File directory, String artifactId) {
-    if (!directory.isDirectory()) {
-      throw new IllegalArgumentException(directory + " is not a directory!");
+  private void fetchJavadoc(Artifact artifact, @Nullable ExecutorService extractExecutor,
+      @Nullable FastImport fastImport) throws IOException {
+    long start = System.nanoTime();
+    if (fastImport != null) {
+      importJavadoc(artifact, fastImport);
+    } else {
+      File artifactDirectory = artifactDirectory(artifact);
+      log.info(String.format("Downloading %s to %s", artifact, artifactDirectory));
+      if (extractExecutor != null) {
+        downloadJavadoc(artifact, artifactDirectory, extractExecutor);
+      } else {
+        downloadJavadoc(artifact, artifactDirectory);
+      }
+      writeUtf8(new File(artifactDirectory, "version.txt"), artifact.latestVersion);
+    }
+    metrics.artifact(artifact).addTime(start);
+  }
+
+  /** Returns the Javadoc jar of {@code artifact}, counting the bytes downloaded in its metrics. */
+  private BufferedSource downloadJavadocJar(Artifact artifact) throws IOException {
+    return artifactSource.downloadJavadocJar(artifact, metrics.artifact(artifact).bytesDownloaded);
+  }
+
+  static ExecutorService newExecutor(final String namePrefix, int threadCount) {
+    return Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+      final AtomicInteger nextId = new AtomicInteger(1);
+
+      @Override public Thread newThread(Runnable runnable) {
+        Thread result = new Thread(runnable, namePrefix + nextId.getAndIncrement());
+        result.setDaemon(true);
+        return result;
+      }
+    });
+  }
+
+  private File artifactDirectory(Artifact artifact) {
+    return new File(directory
+        + "/" + majorVersion(artifact.latestVersion) + "/" + artifact.artifactId);
+  }
+
+  /**
+   * Records {@code published} in {@code manifest}, then writes it and the index pages of {@code
+   * majorVersions} to the working tree or to {@code fastImport}.
+   */
+  private void updateManifest(String groupId, Manifest manifest, List<Artifact> published,
+      Set<String> majorVersions, @Nullable FastImport fastImport) throws IOException {
+    manifest.groupId = groupId;
+    for (Artifact artifact : published) {
+      Manifest.Entry entry = Manifest.Entry.create(
+          artifact.artifactId, artifact.latestVersion, javadocRoots.get(artifact));
+      entry.assets = artifactAssets.get(artifact);
+      manifest.put(entry);
+    }
+
+    writeIndexFiles(groupId, manifest, majorVersions, fastImport);
+    if (searchIndex) {
+      writeSearchIndexes(published, fastImport);
+    }
+    if (shareAssets) {
+      deleteUnusedAssets(manifest, fastImport);
+      writeNoJekyll(fastImport);
+    }
+
+    Buffer json = new Buffer();
+    manifest.write(json);
+    if (fastImport != null) {
+      fastImport.write(Manifest.PATH, json);
+    } else {
+      File file = new File(directory, Manifest.PATH);
+      try (Sink sink = Okio.sink(file)) {
+        json.readAll(sink);
+      }
+      gitAdd(file);
     }
+  }
 
-    // Look for Javadoc in the current directory.
-    if (new File(directory, "index.html").exists()) {
-      return directory.getName();
+  /**
+   * Deletes shared asset directories that no artifact in {@code manifest} refers to anymore, like
+   * those of artifacts that were published again with a different Javadoc tool.
+   */
+  private void deleteUnusedAssets(Manifest manifest, @Nullable FastImport fastImport)
+      throws IOException {
+    Set<String> used = new LinkedHashSet<>();
+    for (Manifest.Entry entry : manifest.artifacts) {
+      if (entry.assets != null) used.add(entry.assets);
     }
+    for (String hash : new TreeSet<>(assetDirectories)) {
+      if (used.contains(hash)) continue;
+      String path = SharedAssets.DIRECTORY + "/" + hash;
+      log.info(String.format("Deleting unused assets %s", path));
+      assetDirectories.remove(hash);
+      if (fastImport != null) {
+        fastImport.delete(path);
+      } else {
+        File assetDirectory = new File(directory, path);
+        cli.exec("rm", "-rf", assetDirectory.getAbsolutePath());
+        gitAdd(assetDirectory);
+      }
+    }
+  }
 
-    // Look for subdirectories of the same name as the artifact and go a level deeper
-    File artifactDir = new File(directory, artifactId);
-    if (artifactDir.isDirectory()) {
-      String relativePath = findRelativePath(artifactDir, artifactId);
-      return relativePath != null
-          ? (directory.getName() + File.separator + relativePath)
-          : null;
+  /**
+   * GitHub Pages' Jekyll build skips directories whose names start with an underscore, like the
+   * shared asset directories. Writes a {@code .nojekyll} file to turn it off, unless the branch
+   * is configured for Jekyll.
+   */
+  private void writeNoJekyll(@Nullable FastImport fastImport) throws IOException {
+    if (jekyllConfig) {
+      log.warn(String.format("%s has a %s; add 'include: [%s]' to it so its assets are served",
+          directory, JEKYLL_CONFIG, SharedAssets.DIRECTORY));
+      return;
     }
+    if (fastImport != null) {
+      fastImport.write(NO_JEKYLL, new Buffer());
+      return;
+    }
+    File file = new File(directory, NO_JEKYLL);
+    if (!file.exists()) {
+      writeUtf8(file, "");
+      gitAdd(file);
+    }
+  }
 
-    // For Kotlin multiplatform look for a subdirectory named 'jvm' and go a level deeper.
-    File jvmDir = new File(directory, "jvm");
-    if (jvmDir.isDirectory()) {
-      String relativePath = findRelativePath(jvmDir, artifactId);
-      return relativePath != null
-          ? (directory.getName() + File.separator + relativePath)
-          : null;
+  /**
+   * Replaces the search entries of {@code published} in the search index of each of their major
+   * versions. Entries of other artifacts are read back from the branch.
+   */
+  private void writeSearchIndexes(List<Artifact> published, @Nullable FastImport fastImport)
+      throws IOException {
+    Multimap<String, Artifact> byMajorVersion = TreeMultimap.create();
+    for (Artifact artifact : published) {
+      byMajorVersion.put(majorVersion(artifact.latestVersion), artifact);
     }
 
-    log.error("Could not find a valid indexed path for " + artifactId
-        + ". Files are " + Arrays.toString(requireNonNull(directory.listFiles())));
-    return null;
+    for (String majorVersion : byMajorVersion.keySet()) {
+      SearchIndex index = fastImport != null
+          ? SearchIndex.read(cli.withCwd(directory), "gh-pages", majorVersion)
+          : SearchIndex.read(new File(directory, majorVersion));
+      for (Artifact artifact : byMajorVersion.get(majorVersion)) {
+        List<SearchIndex.Entry> entries = searchEntries.get(artifact);
+        index.replace(artifact.artifactId, entries != null
+            ? entries
+            : Collections.<SearchIndex.Entry>emptyList());
+      }
+
+      for (Map.Entry<String, Buffer> shard : index.shards().entrySet()) {
+        String path = SearchIndex.shardPath(majorVersion, shard.getKey());
+        if (fastImport != null) {
+          fastImport.write(path, shard.getValue());
+          continue;
+        }
+        File file = new File(directory, path);
+        if (!file.getParentFile().mkdirs() && !file.getParentFile().isDirectory()) {
+          throw new IOException("failed to mkdirs for " + file);
+        }
+        try (Sink sink = Okio.sink(file)) {
+          shard.getValue().readAll(sink);
+        }
+        gitAdd(file);
+      }
+      log.info(String.format("Indexed %s for search: %s entries", majorVersion, index.size()));
+    }
   }
 
-  /** Returns a major version string, like {@code 2.x} for {@code 2.5.0}. */
-  static String majorVersion(String version) {
-    Pattern pattern = Pattern.compile("([^.]+)\\..*");
-    Matcher matcher = pattern.matcher(version);
-    return matcher.matches() ? matcher.group(1) + ".x" : version;
+  /** Writes an index page listing every artifact of each of {@code majorVersions}. */
+  private void writeIndexFiles(String groupId, Manifest manifest, Set<String> majorVersions,
+      @Nullable FastImport fastImport) throws IOException {
+    for (String majorVersion : majorVersions) {
+      String html = indexHtml(groupId, manifest, majorVersion, searchIndex);
+      if (fastImport != null) {
+        fastImport.write(majorVersion + "/index.html", new Buffer().writeUtf8(html));
+        continue;
+      }
+      File indexHtml = new File(directory + "/" + majorVersion + "/index.html");
+      if (!indexHtml.getParentFile().mkdirs() && !indexHtml.getParentFile().isDirectory()) {
+        throw new IOException("failed to mkdirs for " + indexHtml);
+      }
+      Files.write(html, indexHtml, UTF_8);
+      gitAdd(indexHtml);
+    }
   }
 
-  private String readUtf8(File file) throws IOException {
-    try (BufferedSource source = Okio.buffer(Okio.source(file))) {
-      return source.readUtf8();
+  /**
+   * Returns the index page listing every artifact of {@code majorVersion}. With {@code search} it
+   * has a search box that loads shards of the major version's {@link SearchIndex}.
+   */
+  static String indexHtml(String groupId, Manifest manifest, String majorVersion,
+      boolean search) {
+    StringBuilder html = new StringBuilder();
+    html.append("<!DOCTYPE html>\n<html><head><title>")
+        .append(groupId)
+        .append("</title></head>\n<body>\n<h1>")
+        .append(groupId)
+        .append("</h1>\n<ul>\n");
+    for (Manifest.Entry entry : manifest.entries(majorVersion)) {
+      if (entry.javadocRoot == null) continue;
+      html.append("<li><a href=\"")
+          .append(entry.javadocRoot)
+          .append("\">")
+          .append(entry.artifactId)
+          .append("</li>\n");
+    }
+    html.append("</ul>\n");
+    if (search) {
+      html.append(SEARCH_HTML);
     }
+    html.append("</body>\n</html>");
+    return html.toString();
+  }
+
+  /** Returns a major version string, like {@code 2.x} for {@code 2.5.0}. */
+  static String majorVersion(String version) {
+    Matcher matcher = MAJOR_VERSION_PATTERN.matcher(version);
+    return matcher.matches() ? matcher.group(1) + ".x" : version;
   }
 
   private void writeUtf8(File file, String string) throws IOException {
@@ -213,46 +783,559 @@ public final class JavadocPublisher {
   public void initGitDirectory(String repoUrl) throws IOException {
     if (directory.exists()) {
       log.info(String.format("Pulling latest from %s to %s", repoUrl, directory));
-      cli.withCwd(directory).exec("git", "pull");
+      git.pull(directory);
     } else {
       log.info(String.format("Checking out %s to %s", repoUrl, directory));
       cli.exec("rm", "-rf", directory.getAbsolutePath());
-      cli.exec("git", "clone",
+      git.cloneBranch(repoUrl, "gh-pages", directory);
+    }
+  }
+
+  /**
+   * Checks out only the most recent commit, and only the files that publishing {@code artifacts}
+   * could touch: their directories, plus files in the root and major version directories like
+   * {@code index.html}. Existing checkouts are fetched shallowly and reset.
+   */
+  private void initShallowGitDirectory(String repoUrl, List<Artifact> artifacts)
+      throws IOException {
+    // Checking out a partial clone downloads blobs, so every step here talks to the remote.
+    Cli remote = CliGitClient.remote(cli);
+    Cli gitDirectory = remote.withCwd(directory);
+    boolean exists = directory.exists();
+    if (exists) {
+      log.info(String.format("Fetching latest from %s to %s", repoUrl, directory));
+      gitDirectory.exec("git", "fetch", "--progress", "--depth", "1", "origin", "gh-pages");
+      gitDirectory.exec("git", "reset", "--hard", "FETCH_HEAD");
+    } else {
+      log.info(String.format("Checking out %s shallowly to %s", repoUrl, directory));
+      remote.exec("git", "clone",
+          "--progress",
+          "--depth", "1",
+          "--filter=blob:none",
+          "--no-checkout",
           "--single-branch",
           "--branch", "gh-pages",
           repoUrl,
           directory.getAbsolutePath());
     }
+
+    List<String> sparseCheckout = new ArrayList<>(Arrays.asList(
+        "git", "sparse-checkout", "set", "--cone"));
+    Set<String> artifactPaths = new LinkedHashSet<>();
+    for (Artifact artifact : artifacts) {
+      artifactPaths.add(majorVersion(artifact.latestVersion) + "/" + artifact.artifactId);
+      if (searchIndex) {
+        artifactPaths.add(majorVersion(artifact.latestVersion) + "/" + SearchIndex.DIRECTORY);
+      }
+    }
+    if (shareAssets) {
+      artifactPaths.add(SharedAssets.DIRECTORY);
+    }
+    sparseCheckout.addAll(artifactPaths);
+    gitDirectory.exec(sparseCheckout.toArray(new String[sparseCheckout.size()]));
+
+    if (!exists) {
+      gitDirectory.exec("git", "checkout", "gh-pages");
+    }
   }
 
-  private void downloadJavadoc(Artifact artifact, File destination) throws IOException {
-    try (BufferedSource source = mavenCentral.downloadJavadocJar(artifact);
+  /**
+   * Clones {@code gh-pages} into a bare repository, or fetches it into an existing one. With
+   * {@link #shallow} only the latest commit and its trees are fetched.
+   */
+  private void initBareGitDirectory(String repoUrl) throws IOException {
+    List<String> depth = shallow
+        ? Arrays.asList("--depth", "1", "--filter=blob:none")
+        : Collections.<String>emptyList();
+    List<String> command = new ArrayList<>();
+    if (directory.exists()) {
+      log.info(String.format("Fetching latest from %s to %s", repoUrl, directory));
+      Collections.addAll(command, "git", "fetch", "--progress");
+      command.addAll(depth);
+      Collections.addAll(command, "origin", "+gh-pages:gh-pages");
+      CliGitClient.remote(cli).withCwd(directory)
+          .exec(command.toArray(new String[command.size()]));
+    } else {
+      log.info(String.format("Cloning %s to bare repository %s", repoUrl, directory));
+      Collections.addAll(command, "git", "clone", "--progress", "--bare");
+      command.addAll(depth);
+      Collections.addAll(command, "--single-branch", "--branch", "gh-pages",
+          repoUrl, directory.getAbsolutePath());
+      CliGitClient.remote(cli).exec(command.toArray(new String[command.size()]));
+    }
+  }
+
+  /**
+   * Downloads the Javadoc of {@code stale} and commits it, with the manifest and index files,
+   * directly to the {@code gh-pages} branch of the bare repository. Then pushes that branch.
+   */
+  private void importAndPush(String groupId, List<Artifact> stale, Manifest manifest,
+      Set<String> majorVersions, String message) throws IOException {
+    Cli git = cli.withCwd(directory);
+    long start = System.nanoTime();
+    try (FastImport fastImport = FastImport.start(git, "gh-pages", message)) {
+      fetchJavadoc(stale, fastImport);
+      updateManifest(groupId, manifest, stale, majorVersions, fastImport);
+      fastImport.finish();
+    }
+    metrics.phase("import", start);
+
+    if (dryRun) {
+      log.info("DRY-RUN: git push origin gh-pages");
+    } else if (compact == 0 || !compactAndPush()) {
+      start = System.nanoTime();
+      CliGitClient.remote(git).exec("git", "push", "--progress", "origin", "gh-pages");
+      metrics.phase("push", start);
+    }
+  }
+
+  /**
+   * Rewrites {@code gh-pages} to keep only its last {@link #compact} commits, force-pushes it
+   * unless the remote branch changed since it was fetched, and prunes the old history. Returns
+   * false without pushing if the history was already short enough.
+   */
+  private boolean compactAndPush() throws IOException {
+    long start = System.nanoTime();
+    HistoryCompactor compactor = new HistoryCompactor(cli, directory, compact);
+    // The commit just made is on top of the remote branch as it was fetched.
+    String fetched = cli.withCwd(directory).read("git", "rev-parse", "gh-pages~1").trim();
+    if (shallow && compact > 1) {
+      // Only the fetched commit is here. Fetch the rest of the commits to keep, so that compacting
+      // doesn't discard history that's on the remote.
+      CliGitClient.remote(cli).withCwd(directory).exec("git", "fetch", "--progress",
+          "--deepen=" + (compact - 1), "origin", "gh-pages");
+    }
+    HistoryCompactor.Size before = compactor.size();
+    int kept = compactor.compact("gh-pages");
+    if (kept == 0) {
+      log.info(String.format("gh-pages has at most %s commits; not compacting", compact));
+      return false;
+    }
+    metrics.phase("compact", start);
+
+    start = System.nanoTime();
+    compactor.forcePush("gh-pages", fetched);
+    metrics.phase("push", start);
+
+    // Prune after pushing, when the remote-tracking branch no longer holds the old history.
+    start = System.nanoTime();
+    compactor.prune();
+    HistoryCompactor.Size after = compactor.size();
+    metrics.phase("prune", start);
+    log.info(String.format("Compacted gh-pages to %s commits. Repository was %s, is now %s",
+        kept, before, after));
+    return true;
+  }
+
+  /**
+   * Streams each file of the Javadoc jar into {@code fastImport}, replacing the artifact's
+   * directory. Like a spooled download this finds the Javadoc root from the entry names.
+   */
+  private void importJavadoc(Artifact artifact, FastImport fastImport) throws IOException {
+    String path = majorVersion(artifact.latestVersion) + "/" + artifact.artifactId;
+    log.info(String.format("Importing %s to %s", artifact, path));
+
+    fastImport.delete(path);
+    if (shareAssets) {
+      File localJar = artifactSource.javadocJarFile(artifact);
+      File jar = localJar != null ? localJar : spoolJavadocJar(artifact);
+      try {
+        importJavadoc(artifact, jar, path, fastImport);
+      } finally {
+        if (localJar == null && !jar.delete()) {
+          log.warn("Failed to delete " + jar);
+        }
+      }
+      return;
+    }
+
+    SearchIndex.Collector search = searchIndex ? new SearchIndex.Collector() : null;
+    List<String> entryNames = new ArrayList<>();
+    long byteCount = 0L;
+    try (BufferedSource source = downloadJavadocJar(artifact);
          ZipInputStream zipIn = new ZipInputStream(source.inputStream())) {
       for (ZipEntry entry; (entry = zipIn.getNextEntry()) != null; ) {
         if (entry.isDirectory()) continue;
+        Buffer contents = new Buffer();
+        byteCount += contents.writeAll(Okio.source(zipIn));
+        if (search != null && SearchIndex.Collector.isMemberIndex(entry.getName())) {
+          search.read(entry.getName(), contents.clone());
+        }
+        fastImport.write(path + "/" + entry.getName(), contents);
+        entryNames.add(entry.getName());
+      }
+    }
+    metrics.artifact(artifact).addExtracted(entryNames.size(), byteCount);
+    fastImport.write(path + "/version.txt", new Buffer().writeUtf8(artifact.latestVersion));
+    recordJavadocRoot(artifact, entryNames, search);
+    log.info(String.format("Imported %s: %s files", artifact, entryNames.size()));
+  }
 
-        File file = new File(destination + "/" + entry.getName());
-        if (!file.getParentFile().mkdirs() && !file.getParentFile().isDirectory()) {
-          throw new IOException("failed to mkdirs for " + file);
+  /**
+   * Imports the Javadoc jar in {@code jar}, writing its assets to a shared directory and the rest
+   * of its files to {@code path}.
+   */
+  private void importJavadoc(Artifact artifact, File jar, String path, FastImport fastImport)
+      throws IOException {
+    SearchIndex.Collector search = searchIndex ? new SearchIndex.Collector() : null;
+    List<String> entryNames = new ArrayList<>();
+    long byteCount = 0L;
+    try (ZipFile zipFile = new ZipFile(jar)) {
+      SharedAssets assets = shareAssets(artifact, zipFile, fastImport);
+      for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements(); ) {
+        ZipEntry entry = e.nextElement();
+        if (entry.isDirectory()) continue;
+        entryNames.add(entry.getName());
+        if (assets != null && assets.paths.containsKey(entry.getName())) continue;
+
+        Buffer contents = new Buffer();
+        try (InputStream in = zipFile.getInputStream(entry)) {
+          contents.writeAll(Okio.source(in));
         }
-        try (Sink out = Okio.sink(file)) {
-          Okio.buffer(Okio.source(zipIn)).readAll(out);
+        if (search != null && SearchIndex.Collector.isMemberIndex(entry.getName())) {
+          search.read(entry.getName(), contents.clone());
+        } else if (assets != null && SharedAssets.isPage(entry.getName())) {
+          contents = assets.rewrite(entry.getName(), contents);
         }
+        byteCount += contents.size();
+        fastImport.write(path + "/" + entry.getName(), contents);
+      }
+    }
+    metrics.artifact(artifact).addExtracted(entryNames.size(), byteCount);
+    fastImport.write(path + "/version.txt", new Buffer().writeUtf8(artifact.latestVersion));
+    recordJavadocRoot(artifact, entryNames, search);
+    log.info(String.format("Imported %s: %s files", artifact, entryNames.size()));
+  }
+
+  /**
+   * Finds the assets of the jar in {@code zipFile} and writes them to their shared directory,
+   * unless it's already on the branch or was written for an earlier artifact. Returns null if the
+   * jar has no assets.
+   */
+  private @Nullable SharedAssets shareAssets(Artifact artifact, ZipFile zipFile,
+      @Nullable FastImport fastImport) throws IOException {
+    // Artifacts are extracted to <major>/<artifact>/.
+    SharedAssets assets = SharedAssets.scan(zipFile, 2);
+    if (assets == null) return null;
+    artifactAssets.put(artifact, assets.hash);
+
+    if (!assetDirectories.add(assets.hash)) {
+      metrics.addAssetsShared(assets.paths.size(), assets.byteCount);
+      log.info(String.format("Sharing %s assets of %s in %s",
+          assets.paths.size(), artifact, assets.directory()));
+      return assets;
+    }
+
+    log.info(String.format("Writing %s assets of %s to %s",
+        assets.paths.size(), artifact, assets.directory()));
+    for (String name : assets.paths.keySet()) {
+      Buffer contents = new Buffer();
+      try (InputStream in = zipFile.getInputStream(zipFile.getEntry(name))) {
+        contents.writeAll(Okio.source(in));
+      }
+      String path = assets.directory() + "/" + name;
+      if (fastImport != null) {
+        fastImport.write(path, contents);
+        continue;
       }
+      File file = new File(directory, path);
+      if (!file.getParentFile().mkdirs() && !file.getParentFile().isDirectory()) {
+        throw new IOException("failed to mkdirs for " + file);
+      }
+      try (Sink sink = Okio.sink(file)) {
+        contents.readAll(sink);
+      }
+    }
+    if (fastImport == null) {
+      // This runs on the fetch threads, so the directory is staged after fetching.
+      writtenAssets.put(artifact, new File(directory, assets.directory()));
     }
+    return assets;
   }
 
-  private void gitAdd(File file) throws IOException {
-    cli.withCwd(directory).exec("git", "add", file.getAbsolutePath());
+  private void downloadJavadoc(Artifact artifact, File destination) throws IOException {
+    SearchIndex.Collector search = searchIndex ? new SearchIndex.Collector() : null;
+    JavadocExtractor extractor =
+        new JavadocExtractor(destination, incremental, search, null, "version.txt");
+    try (BufferedSource source = downloadJavadocJar(artifact)) {
+      extractor.extract(source.inputStream());
+    }
+    recordJavadocRoot(artifact, extractor.entryNames(), search);
+    metrics.artifact(artifact).addExtracted(
+        extractor.entryNames().size(), extractor.bytesWritten());
+    log.info(String.format("Extracted %s: %s", artifact, extractor));
+  }
+
+  /**
+   * Downloads the Javadoc jar to a temporary file, then extracts it from there in parallel. This
+   * releases the HTTP connection as soon as the download completes, and finds the Javadoc root
+   * from the jar's central directory rather than by walking the extracted files. Jars that are
+   * already on the local file system are extracted in place.
+   */
+  private void downloadJavadoc(Artifact artifact, File destination, ExecutorService executor)
+      throws IOException {
+    File localJar = artifactSource.javadocJarFile(artifact);
+    if (localJar != null) {
+      extractJavadoc(artifact, localJar, destination, executor);
+      return;
+    }
+
+    File jar = spoolJavadocJar(artifact);
+    try {
+      extractJavadoc(artifact, jar, destination, executor);
+    } finally {
+      if (!jar.delete()) {
+        log.warn("Failed to delete " + jar);
+      }
+    }
+  }
+
+  /** Downloads the Javadoc jar of {@code artifact} to a temporary file that the caller deletes. */
+  private File spoolJavadocJar(Artifact artifact) throws IOException {
+    File jar = File.createTempFile("osstrich-", "-javadoc.jar");
+    try (BufferedSource source = downloadJavadocJar(artifact);
+         Sink sink = Okio.sink(jar)) {
+      source.readAll(sink);
+    } catch (IOException e) {
+      jar.delete();
+      throw e;
+    }
+    return jar;
+  }
+
+  private void extractJavadoc(Artifact artifact, File jar, File destination,
+      ExecutorService executor) throws IOException {
+    SearchIndex.Collector search = searchIndex ? new SearchIndex.Collector() : null;
+    try (ZipFile zipFile = new ZipFile(jar)) {
+      SharedAssets assets = shareAssets ? shareAssets(artifact, zipFile, null) : null;
+      JavadocExtractor extractor =
+          new JavadocExtractor(destination, incremental, search, assets, "version.txt");
+      List<String> entryNames = new ArrayList<>();
+      for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements(); ) {
+        entryNames.add(e.nextElement().getName());
+      }
+      extractor.extract(zipFile, executor, Runtime.getRuntime().availableProcessors());
+      recordJavadocRoot(artifact, entryNames, search);
+      metrics.artifact(artifact).addExtracted(
+          extractor.entryNames().size(), extractor.bytesWritten());
+      log.info(String.format("Extracted %s: %s", artifact, extractor));
+    }
+  }
+
+  /**
+   * Finds the Javadoc root of {@code artifact} from the names of its jar's entries, and then its
+   * search entries if {@code search} is non-null.
+   */
+  private void recordJavadocRoot(Artifact artifact, List<String> entryNames,
+      @Nullable SearchIndex.Collector search) {
+    String javadocRoot = JavadocExtractor.javadocRoot(entryNames, artifact.artifactId);
+    if (javadocRoot != null) {
+      javadocRoots.put(artifact, javadocRoot);
+      if (search != null) {
+        searchEntries.put(artifact, search.entries(artifact.artifactId, javadocRoot, entryNames));
+      }
+    } else {
+      log.error("Could not find a valid indexed path for " + artifact.artifactId
+          + ". Files are " + entryNames);
+    }
+  }
+
+  /** Stages {@code file} on the next call to {@link #flushGitAdd}. */
+  private void gitAdd(File file) {
+    pendingAdds.add(file.getAbsoluteFile());
+  }
+
+  /** Stages all pending paths at once. */
+  private void flushGitAdd() throws IOException {
+    git.add(directory, pendingAdds);
+    pendingAdds.clear();
   }
 
   private void gitCommitAndPush(String message) throws IOException {
+    long start = System.nanoTime();
+    flushGitAdd();
+    metrics.phase("add", start);
     if (dryRun) {
       log.info(String.format("DRY-RUN: git commit -m %s", message));
       log.info("DRY-RUN: git push origin gh-pages");
     } else {
-      cli.withCwd(directory).exec("git", "commit", "-m", message);
-      cli.withCwd(directory).exec("git", "push", "origin", "gh-pages");
+      start = System.nanoTime();
+      git.commit(directory, message);
+      metrics.phase("commit", start);
+      if (compact == 0 || !compactAndPush()) {
+        start = System.nanoTime();
+        git.push(directory, "gh-pages");
+        metrics.phase("push", start);
+      }
+    }
+  }
+
+  public static final class Builder {
+    final ArtifactSource artifactSource;
+    final Cli cli;
+    final Log log;
+    final File directory;
+    GitClient git;
+    PublishMetrics metrics;
+    boolean dryRun;
+    boolean force;
+    int parallelism = 1;
+    boolean incremental;
+    boolean spool;
+    boolean shallow;
+    boolean checkRemote;
+    boolean direct;
+    int compact;
+    boolean searchIndex;
+    boolean shareAssets;
+
+    public Builder(ArtifactSource artifactSource, Cli cli, Log log, File directory) {
+      this.artifactSource = requireNonNull(artifactSource, "artifactSource == null");
+      this.cli = requireNonNull(cli, "cli == null");
+      this.log = requireNonNull(log, "log == null");
+      this.directory = requireNonNull(directory, "directory == null");
+    }
+
+    /**
+     * The git implementation to clone, pull, add, commit, and push with. Defaults to running the
+     * {@code git} command. The {@link #shallow}, {@link #checkRemote}, and {@link #direct} modes
+     * always use the command, as they need features that other implementations lack.
+     */
+    public Builder git(GitClient git) {
+      this.git = requireNonNull(git, "git == null");
+      return this;
+    }
+
+    /** Where to record timings and sizes. Defaults to a new instance per publisher. */
+    public Builder metrics(PublishMetrics metrics) {
+      this.metrics = requireNonNull(metrics, "metrics == null");
+      return this;
+    }
+
+    /** Log the commit and push instead of running them. */
+    public Builder dryRun(boolean dryRun) {
+      this.dryRun = dryRun;
+      return this;
+    }
+
+    /** Download artifacts even if the published version is already up to date. */
+    public Builder force(boolean force) {
+      this.force = force;
+      return this;
+    }
+
+    /** The maximum number of artifacts to download and extract concurrently. Defaults to 1. */
+    public Builder parallelism(int parallelism) {
+      if (parallelism < 1) throw new IllegalArgumentException("parallelism < 1: " + parallelism);
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Only rewrite files whose contents changed, and delete files that are no longer in the
+     * Javadoc jar.
+     */
+    public Builder incremental(boolean incremental) {
+      this.incremental = incremental;
+      return this;
+    }
+
+    /**
+     * Download each Javadoc jar to a temporary file before extracting it. Extraction then uses
+     * all available processors instead of reading the jar from the network stream.
+     */
+    public Builder spool(boolean spool) {
+      this.spool = spool;
+      return this;
+    }
+
+    /**
+     * Clone only the latest commit of the {@code gh-pages} branch, and check out only the
+     * directories of the artifacts being published.
+     */
+    public Builder shallow(boolean shallow) {
+      this.shallow = shallow;
+      return this;
+    }
+
+    /**
+     * Before cloning or pulling, compare each artifact's version with the {@code version.txt}
+     * on the remote {@code gh-pages} branch. If every artifact is up to date the repository isn't
+     * touched at all. Ignored with {@link #force}.
+     */
+    public Builder checkRemote(boolean checkRemote) {
+      this.checkRemote = checkRemote;
+      return this;
+    }
+
+    /**
+     * Write Javadoc straight into git's object store with {@code git fast-import}, instead of
+     * extracting it to a working tree and running {@code git add}. The directory holds a bare
+     * repository in this mode. Each artifact's directory is replaced entirely, so the commit's
+     * tree matches an {@link #incremental} publish.
+     */
+    public Builder direct(boolean direct) {
+      this.direct = direct;
+      return this;
+    }
+
+    /**
+     * After committing, rewrite {@code gh-pages} to keep only its last {@code depth} commits and
+     * force-push it with a lease on the fetched branch. This keeps clones and pushes fast for
+     * repositories with many releases. With {@link #shallow}, the commits to keep are fetched
+     * first. Defaults to 0, which keeps all history.
+     */
+    public Builder compact(int depth) {
+      if (depth < 0) throw new IllegalArgumentException("depth < 0: " + depth);
+      this.compact = depth;
+      return this;
+    }
+
+    /**
+     * Build a search index of the packages, types, and members of every artifact in each major
+     * version, and add a search box to its index page. Members are only found in Javadoc
+     * generated by JDK 11 or newer.
+     */
+    public Builder searchIndex(boolean searchIndex) {
+      this.searchIndex = searchIndex;
+      return this;
+    }
+
+    /**
+     * Store the stylesheets, images, and fonts of each Javadoc jar once in a shared {@code
+     * _assets/<hash>/} directory instead of in every artifact's directory, rewriting the references
+     * in each page as it's extracted. This downloads jars to temporary files, as with {@link
+     * #spool}, so their assets can be hashed before their pages are extracted.
+     */
+    public Builder shareAssets(boolean shareAssets) {
+      this.shareAssets = shareAssets;
+      return this;
+    }
+
+    /**
+     * Returns a copy of this builder that publishes from {@code directory} and runs commands with
+     * {@code cli}. A command line git client is replaced with one that runs git with {@code cli}.
+     */
+    Builder copy(File directory, Cli cli) {
+      Builder result = new Builder(artifactSource, cli, log, directory);
+      result.git = git instanceof CliGitClient ? new CliGitClient(cli) : git;
+      result.metrics = metrics;
+      result.dryRun = dryRun;
+      result.force = force;
+      result.parallelism = parallelism;
+      result.incremental = incremental;
+      result.spool = spool;
+      result.shallow = shallow;
+      result.checkRemote = checkRemote;
+      result.direct = direct;
+      result.compact = compact;
+      result.searchIndex = searchIndex;
+      result.shareAssets = shareAssets;
+      return result;
+    }
+
+    public JavadocPublisher build() {
+      return new JavadocPublisher(this);
     }
   }
 
@@ -261,44 +1344,272 @@ public final class JavadocPublisher {
 
     boolean force = false;
     boolean dryRun = false;
+    int parallelism = 1;
+    boolean incremental = false;
+    boolean spool = false;
+    File cacheDirectory = null;
+    boolean revalidateCache = false;
+    List<String> artifactIds = null;
+    String repository = null;
+    boolean shallow = false;
+    boolean checkRemote = false;
+    boolean direct = false;
+    int compact = 0;
+    boolean searchIndex = false;
+    boolean shareAssets = false;
+    boolean jgit = false;
+    File metricsFile = null;
+    File batchFile = null;
+    int batchParallelism = 4;
+    boolean watch = false;
+    long pollInterval = 60L;
+    long maxPollInterval = 1800L;
     List<String> strippedArgs = new ArrayList<>(args.length);
     for (String arg : args) {
       if ("--dry-run".equals(arg)) {
         dryRun = true;
       } else if ("force".equals(arg)) {
         force = true;
+      } else if ("--incremental".equals(arg)) {
+        incremental = true;
+      } else if ("--spool".equals(arg)) {
+        spool = true;
+      } else if (arg.startsWith("--cache=")) {
+        cacheDirectory = new File(arg.substring("--cache=".length()));
+      } else if ("--revalidate-cache".equals(arg)) {
+        revalidateCache = true;
+      } else if ("--shallow".equals(arg)) {
+        shallow = true;
+      } else if ("--check-remote".equals(arg)) {
+        checkRemote = true;
+      } else if ("--direct".equals(arg)) {
+        direct = true;
+      } else if (arg.startsWith("--compact=")) {
+        compact = Integer.parseInt(arg.substring("--compact=".length()));
+      } else if ("--search-index".equals(arg)) {
+        searchIndex = true;
+      } else if ("--share-assets".equals(arg)) {
+        shareAssets = true;
+      } else if ("--jgit".equals(arg)) {
+        jgit = true;
+      } else if (arg.startsWith("--batch=")) {
+        batchFile = new File(arg.substring("--batch=".length()));
+      } else if (arg.startsWith("--batch-parallelism=")) {
+        batchParallelism = Integer.parseInt(arg.substring("--batch-parallelism=".length()));
+      } else if ("--watch".equals(arg)) {
+        watch = true;
+      } else if (arg.startsWith("--poll-interval=")) {
+        pollInterval = Long.parseLong(arg.substring("--poll-interval=".length()));
+      } else if (arg.startsWith("--max-poll-interval=")) {
+        maxPollInterval = Long.parseLong(arg.substring("--max-poll-interval=".length()));
+      } else if (arg.startsWith("--metrics=")) {
+        metricsFile = new File(arg.substring("--metrics=".length()));
+      } else if (arg.startsWith("--repository=")) {
+        repository = arg.substring("--repository=".length());
+      } else if (arg.startsWith("--artifacts=")) {
+        artifactIds = Arrays.asList(arg.substring("--artifacts=".length()).split(","));
+      } else if (arg.startsWith("--parallelism=")) {
+        parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
       } else {
         strippedArgs.add(arg);
       }
     }
     String[] finalArgs = strippedArgs.toArray(new String[strippedArgs.size()]);
 
-    if (finalArgs.length != 3 && finalArgs.length != 5) {
+    // Remote repositories can't be searched, so the artifacts to publish must be listed.
+    boolean searchable = repository == null || HttpUrl.parse(repository) == null;
+    boolean validArgs;
+    if (batchFile != null) {
+      validArgs = finalArgs.length == 0 && !watch;
+    } else if (watch) {
+      validArgs = finalArgs.length == 3 && (searchable || artifactIds != null);
+    } else {
+      validArgs = (finalArgs.length == 3 && (searchable || artifactIds != null))
+          || finalArgs.length == 5;
+    }
+    if (!validArgs) {
       log.info(String.format(""
-          + "Usage: %1$s <directory> <repo URL> <group ID>\n"
-          + "       %1$s <directory> <repo URL> <group ID> <artifact ID> <version>\n",
+          + "Usage: %1$s [options] <directory> <repo URL> <group ID>\n"
+          + "       %1$s [options] <directory> <repo URL> <group ID> <artifact ID> <version>\n"
+          + "       %1$s [options] --batch=<file>\n"
+          + "\n"
+          + "Options:\n"
+          + "  --dry-run            Don't commit or push.\n"
+          + "  --parallelism=<n>    Download and extract up to n artifacts concurrently.\n"
+          + "  --incremental        Only rewrite changed files and delete stale ones.\n"
+          + "  --spool              Download jars to disk, then extract them in parallel.\n"
+          + "  --cache=<directory>  Keep downloaded Javadoc jars in this directory.\n"
+          + "  --revalidate-cache   Make conditional requests for cached Javadoc jars.\n"
+          + "  --artifacts=<a,b>    Publish these artifacts of the group, resolving their\n"
+          + "                       versions from maven-metadata.xml instead of search.\n"
+          + "                       Required to publish the latest releases from a URL.\n"
+          + "  --repository=<repo>  Read artifacts from this Maven repository instead of\n"
+          + "                       Maven Central: an http(s) URL, a directory, or 'local'\n"
+          + "                       for ~/.m2/repository.\n"
+          + "  --shallow            Shallow clone gh-pages, checking out only the\n"
+          + "                       directories this run publishes to.\n"
+          + "  --check-remote       Compare versions with the remote gh-pages branch first,\n"
+          + "                       and skip the checkout if everything is up to date.\n"
+          + "  --direct             Write Javadoc straight into git objects, keeping a bare\n"
+          + "                       repository in <directory> instead of a working tree.\n"
+          + "  --compact=<depth>    Keep only the last depth commits of gh-pages, force-\n"
+          + "                       pushing it if nobody else pushed in the meantime.\n"
+          + "  --search-index       Build a search index of every artifact, and add a\n"
+          + "                       search box to the index pages.\n"
+          + "  --share-assets       Store each distinct set of stylesheets, images, and\n"
+          + "                       fonts once in _assets/ instead of per artifact.\n"
+          + "  --jgit               Run git operations in-process with JGit.\n"
+          + "  --metrics=<file>     Write phase timings and sizes to this file as JSON.\n"
+          + "  --batch=<file>       Run the jobs in this file, one per line, each with a\n"
+          + "                       directory, repo URL, group ID, and optionally an\n"
+          + "                       artifact ID and version. Directories are relative to\n"
+          + "                       the file.\n"
+          + "  --batch-parallelism=<n>\n"
+          + "                       Publish to up to n repositories concurrently. Default 4.\n"
+          + "  --watch              Keep running, publishing new releases as they appear.\n"
+          + "  --poll-interval=<s>  Poll for releases every s seconds while they're arriving,\n"
+          + "                       and publish once none have appeared for twice that.\n"
+          + "                       Default 60.\n"
+          + "  --max-poll-interval=<s>\n"
+          + "                       Back off to polling every s seconds while there are no\n"
+          + "                       releases. Default 1800.\n",
           JavadocPublisher.class.getName()));
       System.exit(1);
       return;
     }
 
-    File directory = new File(finalArgs[0]);
+    JavadocCache cache = cacheDirectory != null
+        ? new JavadocCache(cacheDirectory, JavadocCache.DEFAULT_MAX_SIZE, revalidateCache)
+        : null;
+    ArtifactSource artifactSource = repository != null
+        ? artifactSource(repository, cache)
+        : new MavenCentral(MavenCentral.SEARCH_URL, cache);
+
+    Cli cli = new Cli().withLog(log);
+    GitClient git = gitClient(jgit, cli);
+    File directory = batchFile != null
+        ? batchFile.getAbsoluteFile().getParentFile()
+        : new File(finalArgs[0]);
+    Builder builder = new Builder(artifactSource, cli, log, directory)
+        .git(git)
+        .metrics(new PublishMetrics())
+        .dryRun(dryRun)
+        .force(force)
+        .parallelism(parallelism)
+        .incremental(incremental)
+        .spool(spool)
+        .shallow(shallow)
+        .checkRemote(checkRemote)
+        .direct(direct)
+        .compact(compact)
+        .searchIndex(searchIndex)
+        .shareAssets(shareAssets);
+
+    if (batchFile != null) {
+      List<BatchPublisher.Job> jobs;
+      try (BufferedSource source = Okio.buffer(Okio.source(batchFile))) {
+        jobs = BatchPublisher.readJobs(directory, source);
+      }
+      if (!searchable) {
+        for (BatchPublisher.Job job : jobs) {
+          if (job.artifactId == null) {
+            throw new IOException(String.format(
+                "%s can't be searched; give %s an artifact ID and version", repository, job));
+          }
+        }
+      }
+      try {
+        new BatchPublisher(builder, batchParallelism).publish(jobs);
+      } finally {
+        git.close();
+      }
+      logMetrics(log, cache, builder.metrics, metricsFile);
+      return;
+    }
+
     String repoUrl = finalArgs[1];
     String groupId = finalArgs[2];
-
-    JavadocPublisher javadocPublisher = new JavadocPublisher(
-        new MavenCentral(), new Cli(), log, directory, dryRun, force);
+    JavadocPublisher javadocPublisher = builder.build();
+    if (watch) {
+      JavadocWatcher watcher = new JavadocWatcher(javadocPublisher, repoUrl, groupId,
+          artifactIds, metricsFile, Ticker.systemTicker(), pollInterval, maxPollInterval,
+          pollInterval * 2, TimeUnit.SECONDS);
+      try {
+        watcher.run();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        git.close();
+      }
+      logMetrics(log, cache, javadocPublisher.metrics(), metricsFile);
+      return;
+    }
 
     int artifactsPublished;
-    if (finalArgs.length == 3) {
-      artifactsPublished = javadocPublisher.publishLatest(repoUrl, groupId);
-    } else {
-      String artifactId = finalArgs[3];
-      String version = finalArgs[4];
-      artifactsPublished = javadocPublisher.publish(repoUrl, groupId, artifactId, version);
+    try {
+      if (finalArgs.length == 3 && artifactIds != null) {
+        artifactsPublished = javadocPublisher.publishLatest(repoUrl, groupId, artifactIds);
+      } else if (finalArgs.length == 3) {
+        artifactsPublished = javadocPublisher.publishLatest(repoUrl, groupId);
+      } else {
+        String artifactId = finalArgs[3];
+        String version = finalArgs[4];
+        artifactsPublished = javadocPublisher.publish(repoUrl, groupId, artifactId, version);
+      }
+    } finally {
+      git.close();
     }
 
     log.info("Published Javadoc for " + artifactsPublished + " artifacts of "
         + groupId + " to " + repoUrl);
+    logMetrics(log, cache, javadocPublisher.metrics(), metricsFile);
+  }
+
+  private static void logMetrics(Log log, @Nullable JavadocCache cache, PublishMetrics metrics,
+      @Nullable File metricsFile) throws IOException {
+    if (cache != null) {
+      log.info(String.format("Javadoc cache: %s", cache));
+    }
+    log.info("Publish metrics:\n" + metrics.summary());
+    if (metricsFile != null) {
+      metrics.writeJson(metricsFile);
+    }
+  }
+
+  /**
+   * Returns a client that runs git operations in-process with JGit if {@code jgit} is true, or
+   * otherwise with the {@code git} command. JGit is an optional dependency of this library.
+   *
+   * @throws IllegalStateException if {@code jgit} is true and JGit isn't on the classpath.
+   */
+  static GitClient gitClient(boolean jgit, Cli cli) {
+    if (!jgit) return new CliGitClient(cli);
+    try {
+      Class.forName("org.eclipse.jgit.api.Git", false, JavadocPublisher.class.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException(
+          "JGit isn't on the classpath; add a dependency on org.eclipse.jgit:org.eclipse.jgit");
+    }
+    return new JGitClient();
+  }
+
+  /**
+   * Returns the artifact source for {@code repository}: an HTTP repository for an http or https
+   * URL, {@code ~/.m2/repository} for {@code local}, or otherwise a repository directory.
+   */
+  static ArtifactSource artifactSource(String repository, @Nullable JavadocCache cache) {
+    HttpUrl url = HttpUrl.parse(repository);
+    if (url != null) {
+      return new RemoteRepository(
+          url.encodedPath().endsWith("/") ? url : url.newBuilder().addPathSegment("").build(),
+          cache);
+    }
+    if ("local".equals(repository)) {
+      return LocalRepository.userHome();
+    }
+    if (repository.startsWith("file:")) {
+      return new LocalRepository(new File(URI.create(repository)));
+    }
+    return new LocalRepository(new File(repository));
   }
 }
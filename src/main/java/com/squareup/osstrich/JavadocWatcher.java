@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import com.google.common.base.Ticker;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.apache.maven.plugin.logging.Log;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Polls for releases and publishes their Javadoc as they appear. This keeps one publisher, so its
+ * HTTP connections and checkout stay warm between polls. Only versions that differ from the last
+ * ones seen are published, and releases that land close together share a commit.
+ *
+ * <p>Polls are {@code minInterval} apart while releases are arriving, and back off to {@code
+ * maxInterval} while nothing changes. New releases are published once no others have appeared for
+ * {@code coalesceWindow}, or once the oldest has waited {@code maxInterval}.
+ *
+ * <p>Failures, including unchecked ones like a malformed manifest, are logged and retried after
+ * backing off. Metrics are written after each publish, since the watcher runs until it's killed.
+ */
+final class JavadocWatcher {
+  private final JavadocPublisher publisher;
+  private final Log log;
+  private final String repoUrl;
+  private final String groupId;
+  private final @Nullable List<String> artifactIds;
+  private final @Nullable File metricsFile;
+  private final Ticker ticker;
+  private final long minIntervalNanos;
+  private final long maxIntervalNanos;
+  private final long coalesceWindowNanos;
+
+  /** The latest version seen of each artifact, by artifact ID. Empty until the first publish. */
+  private final Map<String, String> knownVersions = new LinkedHashMap<>();
+
+  /** Releases waiting to be published, by artifact ID. */
+  private final Map<String, Artifact> pending = new LinkedHashMap<>();
+
+  private boolean caughtUp;
+  private long intervalNanos;
+  private long firstPendingNanos;
+  private long lastReleaseNanos;
+
+  /**
+   * @param artifactIds the artifacts to watch, resolving their versions from {@code
+   *     maven-metadata.xml}. If null every artifact in the search index is watched.
+   * @param metricsFile the file to write the publisher's metrics to after each publish, or null.
+   */
+  JavadocWatcher(JavadocPublisher publisher, String repoUrl, String groupId,
+      @Nullable List<String> artifactIds, @Nullable File metricsFile, Ticker ticker,
+      long minInterval, long maxInterval, long coalesceWindow, TimeUnit unit) {
+    this.publisher = publisher;
+    this.log = publisher.log;
+    this.repoUrl = repoUrl;
+    this.groupId = groupId;
+    this.artifactIds = artifactIds;
+    this.metricsFile = metricsFile;
+    this.ticker = ticker;
+    this.minIntervalNanos = unit.toNanos(minInterval);
+    this.maxIntervalNanos = unit.toNanos(maxInterval);
+    this.coalesceWindowNanos = unit.toNanos(coalesceWindow);
+    this.intervalNanos = minIntervalNanos;
+  }
+
+  /** Polls until this thread is interrupted. */
+  void run() throws InterruptedException {
+    while (!Thread.currentThread().isInterrupted()) {
+      NANOSECONDS.sleep(poll());
+    }
+    throw new InterruptedException();
+  }
+
+  /**
+   * Checks for new releases once, and publishes the pending ones if they're due. The first poll
+   * publishes whatever is out of date immediately. Returns the nanoseconds until the next poll.
+   */
+  long poll() {
+    long now = ticker.read();
+    List<Artifact> artifacts;
+    try {
+      artifacts = artifactIds != null
+          ? publisher.artifactSource.latestArtifacts(groupId, artifactIds)
+          : publisher.artifactSource.latestArtifacts(groupId);
+    } catch (IOException | RuntimeException e) {
+      log.warn(String.format("Failed to poll for releases of %s", groupId), e);
+      return backOff();
+    }
+
+    boolean wasEmpty = pending.isEmpty();
+    int releaseCount = 0;
+    for (Artifact artifact : artifacts) {
+      if (artifact.latestVersion.equals(knownVersions.get(artifact.artifactId))) continue;
+      Artifact previous = pending.put(artifact.artifactId, artifact);
+      if (previous == null || !previous.latestVersion.equals(artifact.latestVersion)) {
+        releaseCount++;
+      }
+    }
+    if (releaseCount > 0) {
+      if (wasEmpty) firstPendingNanos = now;
+      lastReleaseNanos = now;
+      intervalNanos = minIntervalNanos;
+    }
+    if (pending.isEmpty()) {
+      log.debug(String.format("No new releases of %s", groupId));
+      return backOff();
+    }
+
+    long quietNanos = now - lastReleaseNanos;
+    boolean due = !caughtUp
+        || quietNanos >= coalesceWindowNanos
+        || now - firstPendingNanos >= maxIntervalNanos;
+    if (!due) {
+      long delay = Math.min(coalesceWindowNanos - quietNanos,
+          maxIntervalNanos - (now - firstPendingNanos));
+      log.info(String.format("%s releases of %s pending; publishing in %s s", pending.size(),
+          groupId, NANOSECONDS.toSeconds(delay)));
+      return delay;
+    }
+
+    List<Artifact> published = new ArrayList<>(pending.values());
+    try {
+      publisher.publish(repoUrl, groupId, published);
+    } catch (IOException | RuntimeException e) {
+      log.error(String.format("Failed to publish %s releases of %s", published.size(), groupId),
+          e);
+      return backOff();
+    } finally {
+      reportMetrics();
+    }
+    for (Artifact artifact : published) {
+      knownVersions.put(artifact.artifactId, artifact.latestVersion);
+    }
+    pending.clear();
+    caughtUp = true;
+    return intervalNanos;
+  }
+
+  /**
+   * Writes the publisher's metrics, then retires its artifacts' metrics so they don't accumulate
+   * for every release.
+   */
+  private void reportMetrics() {
+    PublishMetrics metrics = publisher.metrics();
+    if (metricsFile != null) {
+      try {
+        metrics.writeJson(metricsFile);
+      } catch (IOException e) {
+        log.warn(String.format("Failed to write metrics to %s", metricsFile), e);
+      }
+    }
+    metrics.retireArtifacts();
+  }
+
+  /** Returns the current interval, and doubles the next one up to the maximum. */
+  private long backOff() {
+    long result = intervalNanos;
+    intervalNanos = Math.min(intervalNanos * 2, maxIntervalNanos);
+    return result;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * A Maven repository on the local file system, like {@code ~/.m2/repository} or a mounted mirror.
+ * This makes no network requests.
+ */
+public final class LocalRepository implements ArtifactSource {
+  /** Metadata written by {@code mvn install}, then by a repository manager or mirror. */
+  private static final List<String> METADATA_FILE_NAMES =
+      Arrays.asList("maven-metadata-local.xml", "maven-metadata.xml");
+
+  private final File directory;
+
+  public LocalRepository(File directory) {
+    this.directory = directory;
+  }
+
+  /** Returns the local repository used by Maven by default. */
+  public static LocalRepository userHome() {
+    return new LocalRepository(
+        new File(System.getProperty("user.home"), ".m2" + File.separator + "repository"));
+  }
+
+  /** Returns the latest version of every artifact in {@code groupId} that has metadata. */
+  @Override public List<Artifact> latestArtifacts(String groupId) throws IOException {
+    File groupDirectory = new File(directory, groupId.replace('.', File.separatorChar));
+    File[] files = groupDirectory.listFiles();
+    if (files == null) return Collections.emptyList();
+
+    List<String> artifactIds = new ArrayList<>();
+    for (File file : files) {
+      if (file.isDirectory() && metadataFile(file) != null) {
+        artifactIds.add(file.getName());
+      }
+    }
+    Collections.sort(artifactIds);
+    return latestArtifacts(groupId, artifactIds);
+  }
+
+  @Override public List<Artifact> latestArtifacts(String groupId, List<String> artifactIds)
+      throws IOException {
+    List<Artifact> result = new ArrayList<>();
+    for (String artifactId : artifactIds) {
+      File artifactDirectory = new File(directory, MavenMetadata.artifactPath(groupId, artifactId));
+      File metadata = metadataFile(artifactDirectory);
+      if (metadata == null) {
+        throw new IOException("No maven-metadata.xml in " + artifactDirectory);
+      }
+
+      String version;
+      try (InputStream in = Channels.newInputStream(open(metadata))) {
+        version = MavenMetadata.latestVersion(in);
+      }
+      if (version == null) {
+        throw new IOException("No released versions in " + metadata);
+      }
+
+      Artifact artifact = Artifact.create(groupId, artifactId, version);
+      if (javadocJarFile(artifact) == null) {
+        artifact.extensions = Collections.emptySet();
+      }
+      result.add(artifact);
+    }
+    return result;
+  }
+
+  @Override public BufferedSource downloadJavadocJar(Artifact artifact) throws IOException {
+    File jar = javadocJarFile(artifact);
+    if (jar == null) {
+      throw new IOException("No Javadoc jar for " + artifact + " in " + directory);
+    }
+    return Okio.buffer(Okio.source(Channels.newInputStream(open(jar))));
+  }
+
+  @Override public @Nullable File javadocJarFile(Artifact artifact) {
+    File jar = new File(directory, MavenMetadata.javadocJarPath(artifact));
+    return jar.isFile() ? jar : null;
+  }
+
+  private static @Nullable File metadataFile(File artifactDirectory) {
+    for (String name : METADATA_FILE_NAMES) {
+      File file = new File(artifactDirectory, name);
+      if (file.isFile()) return file;
+    }
+    return null;
+  }
+
+  private static FileChannel open(File file) throws IOException {
+    return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+  }
+
+  @Override public String toString() {
+    return directory.toString();
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+import okio.BufferedSink;
+import okio.BufferedSource;
+
+/**
+ * The contents of {@code osstrich.json} in the root of the {@code gh-pages} branch. It records
+ * every published artifact directory with its version and Javadoc root. Index pages are generated
+ * from it, so they list artifacts published by earlier runs too.
+ */
+final class Manifest {
+  static final String PATH = "osstrich.json";
+
+  private static final JsonAdapter<Manifest> ADAPTER =
+      new Moshi.Builder().build().adapter(Manifest.class).indent("  ");
+
+  private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+    @Override public int compare(Entry a, Entry b) {
+      int result = a.majorVersion.compareTo(b.majorVersion);
+      return result != 0 ? result : a.artifactId.compareTo(b.artifactId);
+    }
+  };
+
+  String groupId;
+  List<Entry> artifacts = new ArrayList<>();
+
+  static final class Entry {
+    String artifactId;
+    String version;
+    String majorVersion;
+    /** The directory containing {@code index.html}, relative to the major version directory. */
+    @Nullable String javadocRoot;
+    /** The hash of the {@link SharedAssets} directory that its pages refer to, if any. */
+    @Nullable String assets;
+
+    static Entry create(String artifactId, String version, @Nullable String javadocRoot) {
+      Entry result = new Entry();
+      result.artifactId = artifactId;
+      result.version = version;
+      result.majorVersion = JavadocPublisher.majorVersion(version);
+      result.javadocRoot = javadocRoot;
+      return result;
+    }
+  }
+
+  static Manifest create(String groupId) {
+    Manifest result = new Manifest();
+    result.groupId = groupId;
+    return result;
+  }
+
+  static Manifest read(BufferedSource source) throws IOException {
+    Manifest result = ADAPTER.fromJson(source);
+    if (result == null) throw new IOException("empty " + PATH);
+    return result;
+  }
+
+  /**
+   * Returns the part of {@code path} that {@link #fromTree} reads to find an artifact's Javadoc
+   * root: its major version and artifact directories, any nested artifact or {@code jvm}
+   * directories, and one more segment. A branch's files trim to a few paths per artifact.
+   */
+  static String rootPath(String path) {
+    String[] segments = path.split("/");
+    int end = Math.min(2, segments.length - 1);
+    while (end < segments.length - 1
+        && (segments[end].equals(segments[1]) || segments[end].equals("jvm"))) {
+      end++;
+    }
+    return String.join("/", Arrays.asList(segments).subList(0, end + 1));
+  }
+
+  /**
+   * Returns a manifest for a branch that doesn't have one yet. {@code paths} are all of the
+   * branch's files, or their {@linkplain #rootPath root paths}; {@code versions} maps each {@code
+   * <major>/<artifact>/version.txt} path to its contents.
+   */
+  static Manifest fromTree(String groupId, Collection<String> paths, Map<String, String> versions) {
+    Manifest result = create(groupId);
+    for (Map.Entry<String, String> version : versions.entrySet()) {
+      String artifactPath = version.getKey().substring(
+          0, version.getKey().length() - "version.txt".length());
+      String[] segments = artifactPath.split("/");
+      List<String> names = new ArrayList<>();
+      for (String path : paths) {
+        if (path.startsWith(artifactPath)) names.add(path.substring(artifactPath.length()));
+      }
+
+      Entry entry = new Entry();
+      entry.majorVersion = segments[0];
+      entry.artifactId = segments[1];
+      entry.version = version.getValue().trim();
+      entry.javadocRoot = JavadocExtractor.javadocRoot(names, entry.artifactId);
+      result.put(entry);
+    }
+    return result;
+  }
+
+  @Nullable Entry get(String majorVersion, String artifactId) {
+    for (Entry entry : artifacts) {
+      if (entry.majorVersion.equals(majorVersion) && entry.artifactId.equals(artifactId)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /** Adds {@code entry}, replacing the entry for the same directory if there is one. */
+  void put(Entry entry) {
+    for (int i = 0; i < artifacts.size(); i++) {
+      if (ORDER.compare(artifacts.get(i), entry) == 0) {
+        artifacts.set(i, entry);
+        return;
+      }
+    }
+    artifacts.add(entry);
+  }
+
+  Set<String> majorVersions() {
+    Set<String> result = new TreeSet<>();
+    for (Entry entry : artifacts) {
+      result.add(entry.majorVersion);
+    }
+    return result;
+  }
+
+  /** Returns the entries of {@code majorVersion}, ordered by artifact ID. */
+  List<Entry> entries(String majorVersion) {
+    List<Entry> result = new ArrayList<>();
+    for (Entry entry : artifacts) {
+      if (entry.majorVersion.equals(majorVersion)) result.add(entry);
+    }
+    Collections.sort(result, ORDER);
+    return result;
+  }
+
+  /** Writes this manifest with its entries sorted, so that unchanged manifests are identical. */
+  void write(BufferedSink sink) throws IOException {
+    Collections.sort(artifacts, ORDER);
+    ADAPTER.toJson(sink, this);
+    sink.writeByte('\n');
+  }
+}
@@ -15,70 +15,256 @@
  */
 package com.squareup.osstrich;
 
+import com.google.common.util.concurrent.Futures;
 import com.squareup.moshi.Json;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
 import okhttp3.ResponseBody;
 import okio.BufferedSource;
 import retrofit2.Call;
+import retrofit2.Callback;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.moshi.MoshiConverterFactory;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 /**
  * Programmatic access to search.maven.org.
  * http://search.maven.org/#api
+ *
+ * <p>The search index can lag a release by hours. Artifacts resolved with {@link
+ * #latestArtifacts(String, List)} use the repository's {@code maven-metadata.xml} instead, which
+ * is updated as soon as the release is synced.
  */
-public final class MavenCentral {
+public final class MavenCentral implements ArtifactSource {
+  static final HttpUrl SEARCH_URL = HttpUrl.parse("https://search.maven.org/");
+  static final HttpUrl REPOSITORY_URL = HttpUrl.parse("https://repo1.maven.org/maven2/");
+
+  /** Search results per request. */
+  static final int PAGE_SIZE = 100;
+
+  /** The maximum number of search pages to fetch ahead of the caller. */
+  static final int PAGES_IN_FLIGHT = 4;
+
   private final MavenDotOrg mavenDotOrg;
+  private final RemoteRepository repository;
+  private final @Nullable JavadocCache cache;
+  private final int pageSize;
 
   public MavenCentral() {
+    this(SEARCH_URL);
+  }
+
+  public MavenCentral(HttpUrl baseUrl) {
+    this(baseUrl, null);
+  }
+
+  public MavenCentral(HttpUrl baseUrl, @Nullable JavadocCache cache) {
+    this(baseUrl, REPOSITORY_URL, cache);
+  }
+
+  public MavenCentral(HttpUrl baseUrl, HttpUrl repositoryUrl, @Nullable JavadocCache cache) {
+    this(baseUrl, repositoryUrl, cache, PAGE_SIZE);
+  }
+
+  MavenCentral(HttpUrl baseUrl, HttpUrl repositoryUrl, @Nullable JavadocCache cache,
+      int pageSize) {
+    this(baseUrl, repositoryUrl, cache, pageSize, HttpClients.shared());
+  }
+
+  MavenCentral(HttpUrl baseUrl, HttpUrl repositoryUrl, @Nullable JavadocCache cache,
+      int pageSize, OkHttpClient client) {
+    this.cache = cache;
+    this.pageSize = pageSize;
     Retrofit retrofit = new Retrofit.Builder()
-        .baseUrl(HttpUrl.parse("https://search.maven.org/"))
+        .client(client)
+        .baseUrl(baseUrl)
         .addConverterFactory(MoshiConverterFactory.create())
         .build();
     this.mavenDotOrg = retrofit.create(MavenDotOrg.class);
+    this.repository = new RemoteRepository(repositoryUrl, cache, client);
+  }
+
+  /** Returns the latest version of every project in {@code groupId}. */
+  @Override public List<Artifact> latestArtifacts(String groupId) throws IOException {
+    List<Artifact> result = new ArrayList<>();
+    try (SearchResults searchResults = searchLatestArtifacts(groupId)) {
+      for (List<Artifact> page; (page = searchResults.nextPage()) != null; ) {
+        result.addAll(page);
+      }
+    }
+    return result;
   }
 
-  /** Returns the latest version of up to 20 projects. */
-  public List<Artifact> latestArtifacts(String groupId) throws IOException {
-    Call<Select> call = mavenDotOrg.latestArtifacts("g:\"" + groupId + "\"");
-    Response<Select> execute = call.execute();
-    return execute.body().response.artifacts;
+  /**
+   * Returns a cursor over the latest version of every project in {@code groupId}. This fetches the
+   * first page immediately; once the total is known subsequent pages are fetched concurrently,
+   * staying at most {@link #PAGES_IN_FLIGHT} pages ahead of the caller.
+   */
+  public SearchResults searchLatestArtifacts(String groupId) throws IOException {
+    String query = "g:\"" + groupId + "\"";
+    Select.Response first = execute(mavenDotOrg.latestArtifacts(query, 0, pageSize));
+    return new SearchResults(query, first);
   }
 
-  public BufferedSource downloadJavadocJar(Artifact artifact) throws IOException {
-    Call<ResponseBody> call = mavenDotOrg.javadoc(
-        artifact.groupId, artifact.artifactId, artifact.latestVersion);
-    Response<ResponseBody> response = call.execute();
+  /**
+   * Returns the latest release of each of {@code artifactIds}, read from their {@code
+   * maven-metadata.xml} files in the Maven Central repository.
+   */
+  @Override public List<Artifact> latestArtifacts(String groupId, List<String> artifactIds)
+      throws IOException {
+    return repository.latestArtifacts(groupId, artifactIds);
+  }
 
+  private static Select.Response execute(Call<Select> call) throws IOException {
+    Response<Select> response = call.execute();
     if (!response.isSuccessful()) {
       String errorBody = response.errorBody().string();
-      response.errorBody().close();
-      throw new IOException("Failed to download " + artifact
+      throw new IOException("Failed to search " + call.request().url()
           + " (" + response.code() + " " + response.raw().message() + "):\n" + errorBody);
     }
+    return response.body().response;
+  }
+
+  @Override public BufferedSource downloadJavadocJar(Artifact artifact) throws IOException {
+    return downloadJavadocJar(artifact, new AtomicLong());
+  }
+
+  @Override public BufferedSource downloadJavadocJar(final Artifact artifact,
+      AtomicLong bytesDownloaded) throws IOException {
+    return RemoteRepository.download(cache, artifact, bytesDownloaded,
+        new RemoteRepository.JarCall() {
+          @Override public Call<ResponseBody> newCall(@Nullable String etag,
+              @Nullable String lastModified, @Nullable String range, @Nullable String ifRange) {
+            return mavenDotOrg.javadoc(artifact.groupId, artifact.artifactId,
+                artifact.latestVersion, etag, lastModified, range, ifRange);
+          }
+        });
+  }
+
+  @Override public @Nullable File javadocJarFile(Artifact artifact) {
+    return null;
+  }
+
+  @Override public String toString() {
+    return "Maven Central";
+  }
+
+  /** Search results that are fetched a page at a time. */
+  public final class SearchResults implements Closeable {
+    private final String query;
+    private final int numFound;
+    private final Deque<Page> pages = new ArrayDeque<>();
+    private int nextStart;
+
+    SearchResults(String query, Select.Response first) {
+      this.query = query;
+      this.numFound = first.numFound;
+      this.nextStart = first.artifacts.size();
+      this.pages.add(new Page(first.artifacts));
+    }
+
+    /** Returns the total number of results. */
+    public int size() {
+      return numFound;
+    }
+
+    /** Returns the next page of results, or null if there are no more results. */
+    public @Nullable List<Artifact> nextPage() throws IOException {
+      Page page = pages.poll();
+      if (page == null) return null;
+      while (pages.size() < PAGES_IN_FLIGHT && nextStart < numFound) {
+        pages.add(new Page(mavenDotOrg.latestArtifacts(query, nextStart, pageSize)));
+        nextStart += pageSize;
+      }
+
+      Select.Response response = page.await();
+      if (response.artifacts.isEmpty()) {
+        // The index shrank since the first page. Stop early rather than return empty pages.
+        close();
+      }
+      return response.artifacts;
+    }
+
+    @Override public void close() {
+      for (Page page; (page = pages.poll()) != null; ) {
+        page.cancel();
+      }
+    }
+  }
 
-    return response.body().source();
+  /** A search page that's either complete or in flight. */
+  private static final class Page implements Callback<Select> {
+    private final @Nullable Call<Select> call;
+    private final CompletableFuture<Select.Response> future = new CompletableFuture<>();
+
+    Page(List<Artifact> artifacts) {
+      Select.Response response = new Select.Response();
+      response.artifacts = artifacts;
+      this.call = null;
+      this.future.complete(response);
+    }
+
+    Page(Call<Select> call) {
+      this.call = call;
+      call.enqueue(this);
+    }
+
+    @Override public void onResponse(Call<Select> call, Response<Select> response) {
+      if (response.isSuccessful()) {
+        future.complete(response.body().response);
+      } else {
+        future.completeExceptionally(new IOException("Failed to search " + call.request().url()
+            + " (" + response.code() + " " + response.raw().message() + ")"));
+      }
+    }
+
+    @Override public void onFailure(Call<Select> call, Throwable t) {
+      future.completeExceptionally(t);
+    }
+
+    Select.Response await() throws IOException {
+      return Futures.get(future, IOException.class);
+    }
+
+    void cancel() {
+      if (call != null) call.cancel();
+    }
   }
 
   interface MavenDotOrg {
-    /** Returns up to 20 projects. */
-    @GET("classic/solrsearch/select?rows=20&wt=json")
-    Call<Select> latestArtifacts(@Query("q") String query);
+    @GET("classic/solrsearch/select?wt=json")
+    Call<Select> latestArtifacts(@Query("q") String query, @Query("start") int start,
+        @Query("rows") int rows);
 
     @GET("classic/remote_content?c=javadoc")
+    @Streaming
     Call<ResponseBody> javadoc(
-        @Query("g") String groupId, @Query("a") String artifactId, @Query("v") String version);
+        @Query("g") String groupId, @Query("a") String artifactId, @Query("v") String version,
+        @Nullable @Header("If-None-Match") String etag,
+        @Nullable @Header("If-Modified-Since") String lastModified,
+        @Nullable @Header("Range") String range,
+        @Nullable @Header("If-Range") String ifRange);
   }
 
   static final class Select {
     @Json(name = "response") Response response;
 
     static final class Response {
+      @Json(name = "numFound") int numFound;
       @Json(name = "docs") List<Artifact> artifacts;
     }
   }
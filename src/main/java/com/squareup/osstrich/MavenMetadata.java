@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.IOException;
+import java.io.InputStream;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/** Reads {@code maven-metadata.xml} files from the Maven repository layout. */
+final class MavenMetadata {
+  private MavenMetadata() {
+  }
+
+  /** Returns the repository path of the directory holding every version of an artifact. */
+  static String artifactPath(String groupId, String artifactId) {
+    return groupId.replace('.', '/') + "/" + artifactId;
+  }
+
+  /** Returns the repository path of the Javadoc jar of {@code artifact}. */
+  static String javadocJarPath(Artifact artifact) {
+    return artifactPath(artifact.groupId, artifact.artifactId) + "/" + artifact.latestVersion
+        + "/" + artifact.artifactId + "-" + artifact.latestVersion + "-javadoc.jar";
+  }
+
+  /**
+   * Returns the release version in the {@code maven-metadata.xml} document in {@code in}, falling
+   * back to the last listed version. Returns null if the document lists no versions.
+   */
+  static @Nullable String latestVersion(InputStream in) throws IOException {
+    try {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      XMLStreamReader reader = factory.createXMLStreamReader(in);
+      try {
+        String release = null;
+        String lastVersion = null;
+        boolean inVersions = false;
+        while (reader.hasNext()) {
+          int event = reader.next();
+          if (event == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            if ("release".equals(name)) {
+              release = reader.getElementText().trim();
+            } else if ("versions".equals(name)) {
+              inVersions = true;
+            } else if ("version".equals(name) && inVersions) {
+              lastVersion = reader.getElementText().trim();
+            }
+          } else if (event == XMLStreamConstants.END_ELEMENT
+              && "versions".equals(reader.getLocalName())) {
+            inVersions = false;
+          }
+        }
+        return release != null && !release.isEmpty() ? release : lastVersion;
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Failed to parse maven-metadata.xml", e);
+    }
+  }
+}
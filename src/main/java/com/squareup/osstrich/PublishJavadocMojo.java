@@ -17,6 +17,8 @@ package com.squareup.osstrich;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -32,6 +34,96 @@ public final class PublishJavadocMojo extends AbstractMojo {
   @Parameter(defaultValue = "${project}", required = true, readonly = true)
   private MavenProject project;
 
+  /** Log the commit and push instead of running them. */
+  @Parameter(property = "osstrich.dryRun", defaultValue = "false")
+  private boolean dryRun;
+
+  /** Publish artifacts even if the published version is already up to date. */
+  @Parameter(property = "osstrich.force", defaultValue = "false")
+  private boolean force;
+
+  /** The maximum number of artifacts to download and extract concurrently. */
+  @Parameter(property = "osstrich.parallelism", defaultValue = "1")
+  private int parallelism;
+
+  /** Only rewrite changed files, and delete files that are no longer in the Javadoc jar. */
+  @Parameter(property = "osstrich.incremental", defaultValue = "false")
+  private boolean incremental;
+
+  /** Download Javadoc jars to disk before extracting them in parallel. */
+  @Parameter(property = "osstrich.spool", defaultValue = "false")
+  private boolean spool;
+
+  /** Shallow clone gh-pages, checking out only the directories being published to. */
+  @Parameter(property = "osstrich.shallow", defaultValue = "false")
+  private boolean shallow;
+
+  /** Skip the checkout if the remote gh-pages branch already has every version. */
+  @Parameter(property = "osstrich.checkRemote", defaultValue = "false")
+  private boolean checkRemote;
+
+  /** Write Javadoc straight into git objects. The directory holds a bare repository. */
+  @Parameter(property = "osstrich.direct", defaultValue = "false")
+  private boolean direct;
+
+  /** Keep only this many commits of gh-pages, force-pushing it. 0 keeps all history. */
+  @Parameter(property = "osstrich.compact", defaultValue = "0")
+  private int compact;
+
+  /** Build a search index of every artifact, and add a search box to the index pages. */
+  @Parameter(property = "osstrich.searchIndex", defaultValue = "false")
+  private boolean searchIndex;
+
+  /** Store each distinct set of Javadoc assets once in {@code _assets/} instead of per artifact. */
+  @Parameter(property = "osstrich.shareAssets", defaultValue = "false")
+  private boolean shareAssets;
+
+  /**
+   * Run git operations in-process with JGit instead of the {@code git} command. JGit is optional,
+   * so add {@code org.eclipse.jgit:org.eclipse.jgit} to this plugin's dependencies.
+   */
+  @Parameter(property = "osstrich.jgit", defaultValue = "false")
+  private boolean jgit;
+
+  /** A file to write phase timings and sizes to, as JSON. */
+  @Parameter(property = "osstrich.metricsFile")
+  private File metricsFile;
+
+  /** A directory to keep downloaded Javadoc jars in across builds. */
+  @Parameter(property = "osstrich.cacheDirectory")
+  private File cacheDirectory;
+
+  /** The maximum size of {@link #cacheDirectory}, in bytes. */
+  @Parameter(property = "osstrich.cacheMaxSize", defaultValue = "1073741824")
+  private long cacheMaxSize;
+
+  /** Make a conditional request for each cached Javadoc jar. */
+  @Parameter(property = "osstrich.revalidateCache", defaultValue = "false")
+  private boolean revalidateCache;
+
+  /**
+   * Artifacts of the project's group to publish. Their versions are read from {@code
+   * maven-metadata.xml}, which is updated before the search index. If empty every artifact in the
+   * search index is published. Required when {@link #repository} is a URL, which can't be searched.
+   */
+  @Parameter(property = "osstrich.artifactIds")
+  private List<String> artifactIds;
+
+  /**
+   * Where to read artifacts from instead of Maven Central: an http or https repository URL, a
+   * repository directory, {@code local} for the local repository, or {@code reactor} for the
+   * Javadoc jars built by this build. With {@code local} and no {@link #artifactIds}, the reactor's
+   * artifacts of the project's group are published.
+   */
+  @Parameter(property = "osstrich.repository")
+  private String repository;
+
+  @Parameter(defaultValue = "${settings.localRepository}", readonly = true)
+  private File localRepository;
+
+  @Parameter(defaultValue = "${reactorProjects}", readonly = true)
+  private List<MavenProject> reactorProjects;
+
   @Override public void execute() throws MojoExecutionException, MojoFailureException {
     String groupId = project.getGroupId();
     String developerConnection = project.getScm().getDeveloperConnection();
@@ -41,16 +133,116 @@ public final class PublishJavadocMojo extends AbstractMojo {
     String repoUrl = developerConnection.substring(SCM_PREFIX.length());
     File directory = new File(project.getBuild().getDirectory() + "/osstrich");
 
-    JavadocPublisher javadocPublisher =
-        new JavadocPublisher(new MavenCentral(), new Cli(), getLog(), directory);
+    JavadocCache cache = cacheDirectory != null
+        ? new JavadocCache(cacheDirectory, cacheMaxSize, revalidateCache)
+        : null;
+    ArtifactSource artifactSource;
+    List<String> artifactIds = this.artifactIds;
+    boolean reactor = "reactor".equals(repository);
+    if (repository == null) {
+      artifactSource = new MavenCentral(MavenCentral.SEARCH_URL, cache);
+    } else if (reactor) {
+      ReactorArtifacts reactorArtifacts = reactorArtifacts(groupId);
+      getLog().info(String.format("Found %s Javadoc jars in the reactor",
+          reactorArtifacts.javadocJarCount()));
+      artifactSource = reactorArtifacts;
+    } else if ("local".equals(repository)) {
+      artifactSource = new LocalRepository(localRepository);
+      if (artifactIds == null || artifactIds.isEmpty()) {
+        artifactIds = reactorArtifactIds(groupId);
+      }
+    } else {
+      artifactSource = JavadocPublisher.artifactSource(repository, cache);
+      if (artifactSource instanceof RemoteRepository
+          && (artifactIds == null || artifactIds.isEmpty())) {
+        throw new MojoFailureException("osstrich.artifactIds is required to publish from "
+            + repository + ", which can't be searched for the artifacts of " + groupId);
+      }
+    }
 
+    Cli cli = new Cli().withLog(getLog());
+    GitClient gitClient;
     try {
-      int artifactsPublished = javadocPublisher.publishLatest(repoUrl, groupId);
+      gitClient = JavadocPublisher.gitClient(jgit, cli);
+    } catch (IllegalStateException e) {
+      throw new MojoFailureException("osstrich.jgit is true, but " + e.getMessage());
+    }
+    try (GitClient git = gitClient) {
+      JavadocPublisher javadocPublisher =
+          new JavadocPublisher.Builder(artifactSource, cli, getLog(), directory)
+              .git(git)
+              .dryRun(dryRun)
+              .force(force)
+              .parallelism(parallelism)
+              .incremental(incremental)
+              // Reactor jars are already on disk, so they're extracted in place in parallel.
+              .spool(spool || reactor)
+              .shallow(shallow)
+              .checkRemote(checkRemote)
+              .direct(direct)
+              .compact(compact)
+              .searchIndex(searchIndex)
+              .shareAssets(shareAssets)
+              .build();
+
+      int artifactsPublished = artifactIds != null && !artifactIds.isEmpty()
+          ? javadocPublisher.publishLatest(repoUrl, groupId, artifactIds)
+          : javadocPublisher.publishLatest(repoUrl, groupId);
       getLog().info("Published Javadoc for " + artifactsPublished + " artifacts of "
           + groupId + " to " + repoUrl);
+      if (cache != null) {
+        getLog().info(String.format("Javadoc cache: %s", cache));
+      }
+      getLog().info("Publish metrics:\n" + javadocPublisher.metrics().summary());
+      if (metricsFile != null) {
+        javadocPublisher.metrics().writeJson(metricsFile);
+      }
     } catch (IOException e) {
       throw new MojoExecutionException(
           "Failed to publish Javadoc of " + groupId + " to " + repoUrl, e);
     }
   }
+
+  /**
+   * Returns the reactor projects in {@code groupId} that build an artifact, with their Javadoc
+   * jars. Jars attached to a project by this build are preferred; otherwise a {@code
+   * <finalName>-javadoc.jar} in its build directory is used, like one left by an earlier build.
+   */
+  private ReactorArtifacts reactorArtifacts(String groupId) {
+    ReactorArtifacts result = new ReactorArtifacts();
+    for (MavenProject reactorProject : reactorProjects) {
+      if (!groupId.equals(reactorProject.getGroupId())
+          || "pom".equals(reactorProject.getPackaging())) {
+        continue;
+      }
+
+      File javadocJar = null;
+      for (org.apache.maven.artifact.Artifact attached : reactorProject.getAttachedArtifacts()) {
+        if ("javadoc".equals(attached.getClassifier())
+            && attached.getFile() != null
+            && attached.getFile().isFile()) {
+          javadocJar = attached.getFile();
+        }
+      }
+      if (javadocJar == null) {
+        File built = new File(reactorProject.getBuild().getDirectory(),
+            reactorProject.getBuild().getFinalName() + "-javadoc.jar");
+        if (built.isFile()) javadocJar = built;
+      }
+      result.add(groupId, reactorProject.getArtifactId(), reactorProject.getVersion(), javadocJar);
+    }
+    return result;
+  }
+
+  /** Returns the artifact IDs of reactor projects in {@code groupId} that build an artifact. */
+  private List<String> reactorArtifactIds(String groupId) {
+    List<String> result = new ArrayList<>();
+    for (MavenProject reactorProject : reactorProjects) {
+      if (groupId.equals(reactorProject.getGroupId())
+          && !"pom".equals(reactorProject.getPackaging())) {
+        result.add(reactorProject.getArtifactId());
+      }
+    }
+    return result;
+  }
 }
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okio.BufferedSink;
+import okio.Okio;
+
+/**
+ * Where the time went while publishing: the duration of each phase, and what was downloaded and
+ * extracted for each artifact. Metrics may be recorded from any thread, and accumulate across all
+ * of a publisher's runs. Long-running publishers {@linkplain #retireArtifacts retire} the metrics
+ * of each artifact once they're reported, keeping only their totals.
+ */
+public final class PublishMetrics {
+  private static final JsonAdapter<Report> REPORT_ADAPTER =
+      new Moshi.Builder().build().adapter(Report.class).indent("  ");
+
+  private final Map<String, AtomicLong> phaseNanos = new LinkedHashMap<>();
+  private final Map<String, ArtifactMetrics> artifacts = new LinkedHashMap<>();
+  private final AtomicLong processCount = new AtomicLong();
+  private final AtomicLong assetFilesShared = new AtomicLong();
+  private final AtomicLong assetBytesShared = new AtomicLong();
+  private final AtomicLong retiredBytesDownloaded = new AtomicLong();
+  private final AtomicLong retiredBytesExtracted = new AtomicLong();
+
+  /** Adds the time since {@code startNanos}, a {@link System#nanoTime}, to {@code phase}. */
+  public void phase(String phase, long startNanos) {
+    long elapsed = System.nanoTime() - startNanos;
+    AtomicLong total;
+    synchronized (phaseNanos) {
+      total = phaseNanos.get(phase);
+      if (total == null) {
+        total = new AtomicLong();
+        phaseNanos.put(phase, total);
+      }
+    }
+    total.addAndGet(elapsed);
+  }
+
+  /** Returns the total milliseconds spent in each phase, in the order they first ran. */
+  public Map<String, Long> phaseMillis() {
+    Map<String, Long> result = new LinkedHashMap<>();
+    synchronized (phaseNanos) {
+      for (Map.Entry<String, AtomicLong> entry : phaseNanos.entrySet()) {
+        result.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue().get()));
+      }
+    }
+    return result;
+  }
+
+  void addProcesses(int count) {
+    processCount.addAndGet(count);
+  }
+
+  /** Returns the number of processes spawned, mostly for git. */
+  public long processCount() {
+    return processCount.get();
+  }
+
+  void addAssetsShared(long fileCount, long byteCount) {
+    assetFilesShared.addAndGet(fileCount);
+    assetBytesShared.addAndGet(byteCount);
+  }
+
+  /** Returns the number of asset files that weren't written because a shared copy existed. */
+  public long assetFilesShared() {
+    return assetFilesShared.get();
+  }
+
+  /** Returns the bytes of asset files that weren't written because a shared copy existed. */
+  public long assetBytesShared() {
+    return assetBytesShared.get();
+  }
+
+  /** Returns the metrics of {@code artifact}, creating them if necessary. */
+  ArtifactMetrics artifact(Artifact artifact) {
+    synchronized (artifacts) {
+      ArtifactMetrics result = artifacts.get(artifact.toString());
+      if (result == null) {
+        result = new ArtifactMetrics(artifact.toString());
+        artifacts.put(artifact.toString(), result);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Returns the metrics of each artifact that was fetched since they were last retired, in the
+   * order fetching started.
+   */
+  public List<ArtifactMetrics> artifacts() {
+    synchronized (artifacts) {
+      return new ArrayList<>(artifacts.values());
+    }
+  }
+
+  /**
+   * Forgets the metrics of each artifact, adding them to the totals. Call this between runs of a
+   * publisher that runs indefinitely, which would otherwise keep metrics for every release.
+   */
+  public void retireArtifacts() {
+    synchronized (artifacts) {
+      for (ArtifactMetrics artifact : artifacts.values()) {
+        retiredBytesDownloaded.addAndGet(artifact.bytesDownloaded());
+        retiredBytesExtracted.addAndGet(artifact.bytesExtracted());
+      }
+      artifacts.clear();
+    }
+  }
+
+  /** Returns the bytes of Javadoc jars downloaded, not counting cached or local jars. */
+  public long bytesDownloaded() {
+    long result = retiredBytesDownloaded.get();
+    for (ArtifactMetrics artifact : artifacts()) {
+      result += artifact.bytesDownloaded();
+    }
+    return result;
+  }
+
+  /** Returns the bytes of Javadoc written, not counting files left unchanged. */
+  public long bytesExtracted() {
+    long result = retiredBytesExtracted.get();
+    for (ArtifactMetrics artifact : artifacts()) {
+      result += artifact.bytesExtracted();
+    }
+    return result;
+  }
+
+  /** Writes these metrics as JSON. */
+  public void writeJson(BufferedSink sink) throws IOException {
+    Report report = new Report();
+    report.phaseMillis = phaseMillis();
+    report.processCount = processCount();
+    report.bytesDownloaded = bytesDownloaded();
+    report.bytesExtracted = bytesExtracted();
+    report.assetFilesShared = assetFilesShared();
+    report.assetBytesShared = assetBytesShared();
+    report.artifacts = new ArrayList<>();
+    for (ArtifactMetrics artifact : artifacts()) {
+      ArtifactReport artifactReport = new ArtifactReport();
+      artifactReport.artifact = artifact.artifact;
+      artifactReport.millis = artifact.millis();
+      artifactReport.bytesDownloaded = artifact.bytesDownloaded();
+      artifactReport.entriesExtracted = artifact.entriesExtracted();
+      artifactReport.bytesExtracted = artifact.bytesExtracted();
+      report.artifacts.add(artifactReport);
+    }
+    REPORT_ADAPTER.toJson(sink, report);
+    sink.writeByte('\n');
+  }
+
+  /** Writes these metrics as JSON to {@code file}, replacing its contents. */
+  public void writeJson(File file) throws IOException {
+    try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+      writeJson(sink);
+    }
+  }
+
+  /** Returns a plain text table of these metrics. */
+  public String summary() {
+    StringBuilder result = new StringBuilder();
+    result.append(String.format("%-40s %10s%n", "Phase", "Time"));
+    for (Map.Entry<String, Long> phase : phaseMillis().entrySet()) {
+      result.append(String.format("%-40s %7s ms%n", phase.getKey(), phase.getValue()));
+    }
+    result.append(String.format("%-40s %10s%n", "Processes spawned", processCount()));
+    if (assetFilesShared() > 0L) {
+      result.append(String.format("%-40s %10s %12s%n", "Asset files shared",
+          assetFilesShared(), formatBytes(assetBytesShared())));
+    }
+
+    List<ArtifactMetrics> artifacts = artifacts();
+    if (!artifacts.isEmpty() || bytesDownloaded() > 0L || bytesExtracted() > 0L) {
+      result.append(String.format("%n%-40s %10s %12s %8s %12s%n",
+          "Artifact", "Time", "Downloaded", "Entries", "Extracted"));
+      for (ArtifactMetrics artifact : artifacts) {
+        result.append(String.format("%-40s %7s ms %12s %8s %12s%n", artifact.artifact,
+            artifact.millis(), formatBytes(artifact.bytesDownloaded()),
+            artifact.entriesExtracted(), formatBytes(artifact.bytesExtracted())));
+      }
+      result.append(String.format("%-40s %10s %12s %8s %12s%n", "Total", "",
+          formatBytes(bytesDownloaded()), "", formatBytes(bytesExtracted())));
+    }
+    return result.toString();
+  }
+
+  static String formatBytes(long bytes) {
+    if (bytes < 1024L) return bytes + " B";
+    if (bytes < 1024L * 1024L) return String.format("%.1f KiB", bytes / 1024.0);
+    return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
+  }
+
+  @Override public String toString() {
+    return summary();
+  }
+
+  /** What was downloaded and extracted for one artifact. */
+  public static final class ArtifactMetrics {
+    final String artifact;
+    private final AtomicLong nanos = new AtomicLong();
+    /** Passed to {@link ArtifactSource#downloadJavadocJar(Artifact, AtomicLong)}. */
+    final AtomicLong bytesDownloaded = new AtomicLong();
+    private final AtomicLong entriesExtracted = new AtomicLong();
+    private final AtomicLong bytesExtracted = new AtomicLong();
+
+    ArtifactMetrics(String artifact) {
+      this.artifact = artifact;
+    }
+
+    void addTime(long startNanos) {
+      nanos.addAndGet(System.nanoTime() - startNanos);
+    }
+
+    void addExtracted(long entryCount, long byteCount) {
+      entriesExtracted.addAndGet(entryCount);
+      bytesExtracted.addAndGet(byteCount);
+    }
+
+    /** Returns the artifact's coordinates, like {@code com.squareup.okio:okio:1.17.2}. */
+    public String artifact() {
+      return artifact;
+    }
+
+    /** Returns the milliseconds spent downloading and extracting this artifact. */
+    public long millis() {
+      return TimeUnit.NANOSECONDS.toMillis(nanos.get());
+    }
+
+    /** Returns the bytes of Javadoc jars downloaded, not counting cached or local jars. */
+    public long bytesDownloaded() {
+      return bytesDownloaded.get();
+    }
+
+    /** Returns the number of files in the artifact's Javadoc jar. */
+    public long entriesExtracted() {
+      return entriesExtracted.get();
+    }
+
+    /** Returns the number of bytes written to disk or to git, excluding unchanged files. */
+    public long bytesExtracted() {
+      return bytesExtracted.get();
+    }
+  }
+
+  static final class Report {
+    Map<String, Long> phaseMillis;
+    long processCount;
+    long bytesDownloaded;
+    long bytesExtracted;
+    long assetFilesShared;
+    long assetBytesShared;
+    List<ArtifactReport> artifacts;
+  }
+
+  static final class ArtifactReport {
+    String artifact;
+    long millis;
+    long bytesDownloaded;
+    long entriesExtracted;
+    long bytesExtracted;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Javadoc jars that were just built, like those attached to the projects of a Maven reactor.
+ * Nothing is searched or downloaded: each artifact's latest version is the version that was built,
+ * and its jar is read in place.
+ */
+public final class ReactorArtifacts implements ArtifactSource {
+  private final Map<String, Artifact> artifacts = new LinkedHashMap<>();
+  private final Map<String, File> javadocJars = new LinkedHashMap<>();
+
+  /**
+   * Adds an artifact that was built at {@code version}. If {@code javadocJar} is null the artifact
+   * is published as having no Javadoc.
+   */
+  public ReactorArtifacts add(String groupId, String artifactId, String version,
+      @Nullable File javadocJar) {
+    Artifact artifact = Artifact.create(groupId, artifactId, version);
+    String key = groupId + ":" + artifactId;
+    if (javadocJar != null) {
+      javadocJars.put(key, javadocJar);
+    } else {
+      artifact.extensions = Collections.emptySet();
+    }
+    artifacts.put(key, artifact);
+    return this;
+  }
+
+  /** Returns the number of artifacts that have a Javadoc jar. */
+  public int javadocJarCount() {
+    return javadocJars.size();
+  }
+
+  @Override public List<Artifact> latestArtifacts(String groupId) {
+    List<Artifact> result = new ArrayList<>();
+    for (Artifact artifact : artifacts.values()) {
+      if (artifact.groupId.equals(groupId)) result.add(artifact);
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  @Override public List<Artifact> latestArtifacts(String groupId, List<String> artifactIds)
+      throws IOException {
+    List<Artifact> result = new ArrayList<>();
+    for (String artifactId : artifactIds) {
+      Artifact artifact = artifacts.get(groupId + ":" + artifactId);
+      if (artifact == null) {
+        throw new IOException(groupId + ":" + artifactId + " wasn't built in this reactor");
+      }
+      result.add(artifact);
+    }
+    return result;
+  }
+
+  @Override public BufferedSource downloadJavadocJar(Artifact artifact) throws IOException {
+    File jar = javadocJarFile(artifact);
+    if (jar == null) {
+      throw new IOException("No Javadoc jar for " + artifact);
+    }
+    return Okio.buffer(Okio.source(jar));
+  }
+
+  @Override public @Nullable File javadocJarFile(Artifact artifact) {
+    Artifact built = artifacts.get(artifact.groupId + ":" + artifact.artifactId);
+    if (built == null || !built.latestVersion.equals(artifact.latestVersion)) return null;
+    return javadocJars.get(artifact.groupId + ":" + artifact.artifactId);
+  }
+
+  @Override public String toString() {
+    return "the reactor";
+  }
+}
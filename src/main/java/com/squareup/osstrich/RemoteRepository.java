@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import com.google.common.util.concurrent.Futures;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Source;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.Header;
+import retrofit2.http.Path;
+import retrofit2.http.Streaming;
+
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+
+/**
+ * A Maven repository served over HTTP, like {@code https://repo1.maven.org/maven2/} or an internal
+ * mirror. Versions are read from {@code maven-metadata.xml} because repositories can't be searched.
+ */
+public final class RemoteRepository implements ArtifactSource {
+  private final HttpUrl baseUrl;
+  private final Service service;
+  private final @Nullable JavadocCache cache;
+
+  public RemoteRepository(HttpUrl baseUrl) {
+    this(baseUrl, null);
+  }
+
+  public RemoteRepository(HttpUrl baseUrl, @Nullable JavadocCache cache) {
+    this(baseUrl, cache, HttpClients.shared());
+  }
+
+  RemoteRepository(HttpUrl baseUrl, @Nullable JavadocCache cache, OkHttpClient client) {
+    this.baseUrl = baseUrl;
+    this.cache = cache;
+    this.service = new Retrofit.Builder()
+        .client(client)
+        .baseUrl(baseUrl)
+        .build()
+        .create(Service.class);
+  }
+
+  /**
+   * Always throws: repositories can't be searched, so callers must {@linkplain
+   * #latestArtifacts(String, List) list the artifact IDs} instead.
+   */
+  @Override public List<Artifact> latestArtifacts(String groupId) throws IOException {
+    throw new IOException(baseUrl + " can't be searched for the artifacts of " + groupId
+        + "; list their artifact IDs instead");
+  }
+
+  /**
+   * Returns the latest release of each of {@code artifactIds}, read from their {@code
+   * maven-metadata.xml} files. Whether each has Javadoc is checked with a {@code HEAD} request.
+   * Requests for all artifacts are made concurrently.
+   */
+  @Override public List<Artifact> latestArtifacts(String groupId, List<String> artifactIds)
+      throws IOException {
+    List<CompletableFuture<Artifact>> futures = new ArrayList<>();
+    for (String artifactId : artifactIds) {
+      futures.add(latestArtifact(groupId, artifactId));
+    }
+
+    List<Artifact> result = new ArrayList<>();
+    for (CompletableFuture<Artifact> future : futures) {
+      result.add(Futures.get(future, IOException.class));
+    }
+    return result;
+  }
+
+  private CompletableFuture<Artifact> latestArtifact(final String groupId,
+      final String artifactId) {
+    final CompletableFuture<Artifact> result = new CompletableFuture<>();
+    String artifactPath = MavenMetadata.artifactPath(groupId, artifactId);
+    service.metadata(artifactPath).enqueue(new Callback<ResponseBody>() {
+      @Override public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+        String version;
+        try {
+          if (!response.isSuccessful()) {
+            throw new IOException("Failed to fetch " + call.request().url()
+                + " (" + response.code() + " " + response.raw().message() + ")");
+          }
+          try (ResponseBody body = response.body()) {
+            version = MavenMetadata.latestVersion(body.byteStream());
+          }
+          if (version == null) {
+            throw new IOException("No released versions in " + call.request().url());
+          }
+        } catch (IOException e) {
+          result.completeExceptionally(e);
+          return;
+        }
+
+        final Artifact artifact = Artifact.create(groupId, artifactId, version);
+        service.head(MavenMetadata.javadocJarPath(artifact)).enqueue(new Callback<Void>() {
+          @Override public void onResponse(Call<Void> call, Response<Void> response) {
+            if (response.code() == HTTP_NOT_FOUND) {
+              artifact.extensions = Collections.emptySet();
+            } else if (!response.isSuccessful()) {
+              result.completeExceptionally(new IOException("Failed to fetch "
+                  + call.request().url() + " (" + response.code() + " "
+                  + response.raw().message() + ")"));
+              return;
+            }
+            result.complete(artifact);
+          }
+
+          @Override public void onFailure(Call<Void> call, Throwable t) {
+            result.completeExceptionally(t);
+          }
+        });
+      }
+
+      @Override public void onFailure(Call<ResponseBody> call, Throwable t) {
+        result.completeExceptionally(t);
+      }
+    });
+    return result;
+  }
+
+  @Override public BufferedSource downloadJavadocJar(Artifact artifact) throws IOException {
+    return downloadJavadocJar(artifact, new AtomicLong());
+  }
+
+  @Override public BufferedSource downloadJavadocJar(final Artifact artifact,
+      AtomicLong bytesDownloaded) throws IOException {
+    return download(cache, artifact, bytesDownloaded, new JarCall() {
+      @Override public Call<ResponseBody> newCall(@Nullable String etag,
+          @Nullable String lastModified, @Nullable String range, @Nullable String ifRange) {
+        return service.download(
+            MavenMetadata.javadocJarPath(artifact), etag, lastModified, range, ifRange);
+      }
+    });
+  }
+
+  @Override public @Nullable File javadocJarFile(Artifact artifact) {
+    return null;
+  }
+
+  @Override public String toString() {
+    return baseUrl.toString();
+  }
+
+  /**
+   * Creates a request for a Javadoc jar, conditional if a cached copy's validators are given. With
+   * a range only those bytes are requested, if the jar still matches {@code ifRange}.
+   */
+  interface JarCall {
+    Call<ResponseBody> newCall(@Nullable String etag, @Nullable String lastModified,
+        @Nullable String range, @Nullable String ifRange);
+  }
+
+  /**
+   * Downloads a Javadoc jar through {@code cache} if it's non-null. If the connection fails while
+   * reading the jar, the rest is requested with a range request. Bytes read from the network are
+   * added to {@code bytesDownloaded}.
+   */
+  static BufferedSource download(@Nullable JavadocCache cache, Artifact artifact,
+      AtomicLong bytesDownloaded, JarCall jarCall) throws IOException {
+    JavadocCache.Entry cached = cache != null ? cache.get(artifact) : null;
+    if (cached != null && !cache.revalidate) {
+      BufferedSource hit = cache.hit(cached);
+      if (hit != null) return hit;
+      cached = null;
+    }
+
+    Call<ResponseBody> call = jarCall.newCall(
+        cached != null ? cached.etag : null,
+        cached != null ? cached.lastModified : null,
+        null,
+        null);
+    Response<ResponseBody> response = call.execute();
+
+    if (cached != null && response.code() == HTTP_NOT_MODIFIED) {
+      response.errorBody().close();
+      BufferedSource hit = cache.hit(cached);
+      if (hit != null) return hit;
+      // Evicted by a concurrent download while it was revalidated. Fetch it again.
+      response = jarCall.newCall(null, null, null, null).execute();
+    }
+
+    if (!response.isSuccessful()) {
+      String errorBody = response.errorBody().string();
+      response.errorBody().close();
+      throw new IOException("Failed to download " + artifact
+          + " (" + response.code() + " " + response.raw().message() + "):\n" + errorBody);
+    }
+
+    String etag = response.headers().get("ETag");
+    String lastModified = response.headers().get("Last-Modified");
+    Source jar = new ResumingSource(artifact, jarCall, response.body(),
+        etag != null ? etag : lastModified, HttpClients.MAX_ATTEMPTS - 1, bytesDownloaded);
+    if (cache != null) {
+      return cache.put(artifact, jar, etag, lastModified);
+    }
+    return Okio.buffer(jar);
+  }
+
+  interface Service {
+    @GET("{artifactPath}/maven-metadata.xml")
+    Call<ResponseBody> metadata(@Path(value = "artifactPath", encoded = true) String artifactPath);
+
+    @HEAD("{path}")
+    Call<Void> head(@Path(value = "path", encoded = true) String path);
+
+    @GET("{path}")
+    @Streaming
+    Call<ResponseBody> download(@Path(value = "path", encoded = true) String path,
+        @Nullable @Header("If-None-Match") String etag,
+        @Nullable @Header("If-Modified-Since") String lastModified,
+        @Nullable @Header("Range") String range,
+        @Nullable @Header("If-Range") String ifRange);
+  }
+}
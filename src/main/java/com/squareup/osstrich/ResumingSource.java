@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Source;
+import okio.Timeout;
+import retrofit2.Response;
+
+import static java.net.HttpURLConnection.HTTP_PARTIAL;
+
+/**
+ * A downloaded jar that picks up where it left off if the connection fails mid-body, by requesting
+ * the remaining bytes with a {@code Range} request. If the server has a validator for the jar
+ * the request is conditional on it, so a changed jar fails rather than being spliced.
+ */
+final class ResumingSource implements Source {
+  private final Artifact artifact;
+  private final RemoteRepository.JarCall jarCall;
+  private final @Nullable String validator;
+  private final int maxResumes;
+  private final AtomicLong bytesDownloaded;
+  private ResponseBody body;
+  private BufferedSource source;
+  private long position;
+  private int resumes;
+
+  /**
+   * @param validator the response's {@code ETag}, or otherwise its {@code Last-Modified} date.
+   * @param bytesDownloaded incremented by the number of bytes read from the network.
+   */
+  ResumingSource(Artifact artifact, RemoteRepository.JarCall jarCall, ResponseBody body,
+      @Nullable String validator, int maxResumes, AtomicLong bytesDownloaded) {
+    this.artifact = artifact;
+    this.jarCall = jarCall;
+    this.body = body;
+    this.source = body.source();
+    this.validator = validator;
+    this.maxResumes = maxResumes;
+    this.bytesDownloaded = bytesDownloaded;
+  }
+
+  @Override public long read(Buffer sink, long byteCount) throws IOException {
+    while (true) {
+      try {
+        long result = source.read(sink, byteCount);
+        if (result != -1L) {
+          position += result;
+          bytesDownloaded.addAndGet(result);
+        }
+        return result;
+      } catch (IOException e) {
+        if (resumes == maxResumes) throw e;
+        resumes++;
+        body.close();
+        resume(e);
+      }
+    }
+  }
+
+  /** Requests the bytes after {@link #position}, or throws {@code cause} if that fails. */
+  private void resume(IOException cause) throws IOException {
+    Response<ResponseBody> response;
+    try {
+      response = jarCall.newCall(null, null, "bytes=" + position + "-", validator).execute();
+    } catch (IOException e) {
+      cause.addSuppressed(e);
+      throw cause;
+    }
+
+    String contentRange = response.headers().get("Content-Range");
+    if (response.code() != HTTP_PARTIAL
+        || contentRange == null
+        || !contentRange.startsWith("bytes " + position + "-")) {
+      if (response.isSuccessful()) {
+        response.body().close();
+      } else {
+        response.errorBody().close();
+      }
+      cause.addSuppressed(new ProtocolException("Failed to resume " + artifact + " at byte "
+          + position + " (" + response.code() + " " + response.raw().message() + ")"));
+      throw cause;
+    }
+    body = response.body();
+    source = body.source();
+  }
+
+  @Override public Timeout timeout() {
+    return source.timeout();
+  }
+
+  @Override public void close() throws IOException {
+    body.close();
+  }
+}
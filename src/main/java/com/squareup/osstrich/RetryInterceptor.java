@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Retries {@code GET} and {@code HEAD} requests that fail with an I/O error, a throttling status,
+ * or a gateway status. Each retry waits a random delay up to an exponentially growing cap, or as
+ * long as the server's {@code Retry-After} asks if that's longer, but never more than the maximum
+ * delay.
+ */
+final class RetryInterceptor implements Interceptor {
+  private final int maxAttempts;
+  private final long baseDelayNanos;
+  private final long maxDelayNanos;
+  private final Random random;
+
+  RetryInterceptor(int maxAttempts, long baseDelay, long maxDelay, TimeUnit unit, Random random) {
+    if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts < 1: " + maxAttempts);
+    this.maxAttempts = maxAttempts;
+    this.baseDelayNanos = unit.toNanos(baseDelay);
+    this.maxDelayNanos = unit.toNanos(maxDelay);
+    this.random = random;
+  }
+
+  @Override public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    if (!request.method().equals("GET") && !request.method().equals("HEAD")) {
+      return chain.proceed(request);
+    }
+
+    for (int attempt = 1; ; attempt++) {
+      Response response;
+      try {
+        response = chain.proceed(request);
+      } catch (IOException e) {
+        if (attempt == maxAttempts || chain.call().isCanceled()) throw e;
+        sleep(delayNanos(attempt, null));
+        continue;
+      }
+
+      if (attempt == maxAttempts || !isRetryable(response.code())) return response;
+      String retryAfter = response.header("Retry-After");
+      response.close();
+      sleep(delayNanos(attempt, retryAfter));
+    }
+  }
+
+  /** Returns true for request timeouts, throttling, and gateway errors. */
+  static boolean isRetryable(int code) {
+    return code == 408 || code == 429 || code == 502 || code == 503 || code == 504;
+  }
+
+  /** Returns how long to wait after {@code attempt} failed. */
+  long delayNanos(int attempt, @Nullable String retryAfter) {
+    long cap = Math.min(maxDelayNanos, baseDelayNanos << Math.min(attempt - 1, 30));
+    long result = (long) (random.nextDouble() * cap);
+    if (retryAfter != null) {
+      try {
+        result = Math.max(result, SECONDS.toNanos(Long.parseLong(retryAfter.trim())));
+      } catch (NumberFormatException ignored) {
+        // An HTTP date. Fall back to our own backoff.
+      }
+    }
+    return Math.min(result, maxDelayNanos);
+  }
+
+  private static void sleep(long nanos) throws InterruptedIOException {
+    try {
+      NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry");
+    }
+  }
+}
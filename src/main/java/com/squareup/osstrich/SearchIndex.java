@@ -0,0 +1,422 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * A search index of the packages, types, and members of every artifact in a major version
+ * directory. Entries are sharded by the first character of their name into {@code
+ * search-index/<prefix>.json}, so the search box on the index page only loads the shard that a
+ * query needs.
+ *
+ * <p>Each entry's URL is relative to the major version directory and starts with its artifact's
+ * directory. Publishing an artifact again replaces its entries, and the shards of other artifacts
+ * are read back from the branch, so the index covers artifacts published by earlier runs too.
+ */
+final class SearchIndex {
+  static final String DIRECTORY = "search-index";
+
+  /** Shard prefixes. Names that don't start with a letter or digit are in {@code _}. */
+  static final List<String> PREFIXES;
+
+  static {
+    List<String> prefixes = new ArrayList<>();
+    for (char c = 'a'; c <= 'z'; c++) prefixes.add(String.valueOf(c));
+    for (char c = '0'; c <= '9'; c++) prefixes.add(String.valueOf(c));
+    prefixes.add("_");
+    PREFIXES = Collections.unmodifiableList(prefixes);
+  }
+
+  static final String PACKAGE = "p";
+  static final String TYPE = "t";
+  static final String MEMBER = "m";
+
+  private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+    @Override public int compare(Entry a, Entry b) {
+      int result = a.name.compareToIgnoreCase(b.name);
+      if (result == 0) result = a.name.compareTo(b.name);
+      if (result == 0) result = a.url.compareTo(b.url);
+      if (result == 0) result = a.kind.compareTo(b.kind);
+      if (result == 0) result = a.context.compareTo(b.context);
+      return result;
+    }
+  };
+
+  private final Map<String, Set<Entry>> shards = new LinkedHashMap<>();
+
+  static final class Entry {
+    /** The name that queries match, like a type's simple name or a member's signature. */
+    final String name;
+    /** One of {@link #PACKAGE}, {@link #TYPE}, or {@link #MEMBER}. */
+    final String kind;
+    /** What contains this: a package's artifact, a type's package, or a member's type. */
+    final String context;
+    final String url;
+
+    Entry(String name, String kind, String context, String url) {
+      this.name = name;
+      this.kind = kind;
+      this.context = context;
+      this.url = url;
+    }
+
+    @Override public boolean equals(Object o) {
+      return o instanceof Entry && ORDER.compare(this, (Entry) o) == 0;
+    }
+
+    @Override public int hashCode() {
+      return (((name.hashCode() * 31) + kind.hashCode()) * 31 + context.hashCode()) * 31
+          + url.hashCode();
+    }
+
+    @Override public String toString() {
+      return kind + " " + name + " in " + context + ": " + url;
+    }
+  }
+
+  /** Returns the shard that entries named {@code name}, and queries for them, belong to. */
+  static String prefix(String name) {
+    char c = name.isEmpty() ? '_' : Character.toLowerCase(name.charAt(0));
+    return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? String.valueOf(c) : "_";
+  }
+
+  /** Reads the shards in {@code majorVersionDirectory} of a working tree. */
+  static SearchIndex read(File majorVersionDirectory) throws IOException {
+    SearchIndex result = new SearchIndex();
+    for (String prefix : PREFIXES) {
+      File file = new File(majorVersionDirectory, DIRECTORY + "/" + prefix + ".json");
+      if (!file.exists()) continue;
+      try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+        result.readShard(prefix, source);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads the shards of {@code majorVersion} in {@code treeish} of the repository that {@code git}
+   * runs in. A single {@code git cat-file} reads every shard, including those that don't exist.
+   */
+  static SearchIndex read(Cli git, String treeish, String majorVersion) throws IOException {
+    SearchIndex result = new SearchIndex();
+    File output = File.createTempFile("osstrich-cat-file", ".txt");
+    try {
+      String[] command = {"git", "cat-file", "--batch"};
+      Process process = git.start(output, command);
+      try {
+        try (BufferedSink stdin = Okio.buffer(Okio.sink(process.getOutputStream()))) {
+          for (String prefix : PREFIXES) {
+            stdin.writeUtf8(treeish + ":" + shardPath(majorVersion, prefix) + "\n");
+          }
+        }
+        git.awaitExit(process, command);
+      } catch (IOException e) {
+        throw new IOException("Failed to read " + DIRECTORY + " of " + majorVersion, e);
+      } finally {
+        process.destroy();
+      }
+
+      try (BufferedSource source = Okio.buffer(Okio.source(output))) {
+        for (String prefix : PREFIXES) {
+          // <object> SP <type> SP <size> LF <contents> LF, or <name> SP missing LF.
+          String header = source.readUtf8LineStrict();
+          if (header.endsWith(" missing")) continue;
+          long size = Long.parseLong(header.substring(header.lastIndexOf(' ') + 1));
+          Buffer contents = new Buffer();
+          source.readFully(contents, size);
+          source.skip(1L);
+          result.readShard(prefix, contents);
+        }
+      }
+    } finally {
+      if (!output.delete()) output.deleteOnExit();
+    }
+    return result;
+  }
+
+  static String shardPath(String majorVersion, String prefix) {
+    return majorVersion + "/" + DIRECTORY + "/" + prefix + ".json";
+  }
+
+  private void readShard(String prefix, BufferedSource source) throws IOException {
+    Set<Entry> shard = shard(prefix);
+    JsonReader reader = JsonReader.of(source);
+    reader.beginArray();
+    while (reader.hasNext()) {
+      reader.beginArray();
+      String name = reader.nextString();
+      String kind = reader.nextString();
+      String context = reader.nextString();
+      String url = reader.nextString();
+      while (reader.hasNext()) reader.skipValue();
+      reader.endArray();
+      shard.add(new Entry(name, kind, context, url));
+    }
+    reader.endArray();
+  }
+
+  private Set<Entry> shard(String prefix) {
+    Set<Entry> shard = shards.get(prefix);
+    if (shard == null) {
+      shard = new TreeSet<>(ORDER);
+      shards.put(prefix, shard);
+    }
+    return shard;
+  }
+
+  /** Replaces the entries of the artifact in {@code artifactDirectory} with {@code entries}. */
+  void replace(String artifactDirectory, Collection<Entry> entries) {
+    String urlPrefix = artifactDirectory + "/";
+    for (Set<Entry> shard : shards.values()) {
+      for (Iterator<Entry> i = shard.iterator(); i.hasNext(); ) {
+        if (i.next().url.startsWith(urlPrefix)) i.remove();
+      }
+    }
+    for (Entry entry : entries) {
+      shard(prefix(entry.name)).add(entry);
+    }
+  }
+
+  /**
+   * Returns the contents of each shard that has been read or written, by prefix. Shards whose
+   * entries were all removed are empty arrays.
+   */
+  Map<String, Buffer> shards() throws IOException {
+    Map<String, Buffer> result = new LinkedHashMap<>();
+    for (Map.Entry<String, Set<Entry>> shard : shards.entrySet()) {
+      Buffer buffer = new Buffer();
+      JsonWriter writer = JsonWriter.of(buffer);
+      writer.beginArray();
+      for (Entry entry : shard.getValue()) {
+        writer.beginArray()
+            .value(entry.name)
+            .value(entry.kind)
+            .value(entry.context)
+            .value(entry.url)
+            .endArray();
+      }
+      writer.endArray();
+      writer.close();
+      buffer.writeByte('\n');
+      result.put(shard.getKey(), buffer);
+    }
+    return result;
+  }
+
+  /** Returns the number of entries in every shard. */
+  int size() {
+    int result = 0;
+    for (Set<Entry> shard : shards.values()) {
+      result += shard.size();
+    }
+    return result;
+  }
+
+  /**
+   * Finds the search entries of one Javadoc jar as it's extracted. Packages and types are found
+   * from the names of the jar's files. Members are read from the {@code member-search-index.js}
+   * that Javadoc 11 and newer generate, whose contents are handed over as the jar is streamed.
+   * Methods may be called concurrently.
+   */
+  static final class Collector {
+    private final List<Entry> members = new ArrayList<>();
+
+    /** Returns true if the contents of the jar entry {@code name} should be {@linkplain #read}. */
+    static boolean isMemberIndex(String name) {
+      return name.equals("member-search-index.js") || name.endsWith("/member-search-index.js");
+    }
+
+    /**
+     * Reads a member index, which is a JavaScript assignment of a JSON array. URLs are relative
+     * to the jar. Members whose anchor isn't their label have it in {@code u}, or {@code url} in
+     * Javadoc from JDK 11 and older.
+     */
+    void read(String name, BufferedSource source) throws IOException {
+      String directory = name.substring(0, name.length() - "member-search-index.js".length());
+      long start = source.indexOf((byte) '[');
+      if (start == -1L) return;
+      source.skip(start);
+
+      List<Entry> entries = new ArrayList<>();
+      JsonReader reader = JsonReader.of(source);
+      reader.setLenient(true);
+      reader.beginArray();
+      while (reader.hasNext()) {
+        String module = null;
+        String packageName = null;
+        String type = null;
+        String label = null;
+        String anchor = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+          switch (reader.nextName()) {
+            case "m":
+              module = reader.nextString();
+              break;
+            case "p":
+              packageName = reader.nextString();
+              break;
+            case "c":
+              type = reader.nextString();
+              break;
+            case "l":
+              label = reader.nextString();
+              break;
+            case "u":
+            case "url": // JDK 11 and older.
+              anchor = reader.nextString();
+              break;
+            default:
+              reader.skipValue();
+              break;
+          }
+        }
+        reader.endObject();
+        if (packageName == null || type == null || label == null) continue;
+
+        String url = directory
+            + (module != null ? module + "/" : "")
+            + packageName.replace('.', '/') + "/" + type + ".html#"
+            + (anchor != null ? anchor : label);
+        entries.add(new Entry(label, MEMBER, packageName + "." + type, url));
+      }
+      synchronized (this) {
+        members.addAll(entries);
+      }
+    }
+
+    /**
+     * Returns the entries of the artifact whose jar had {@code entryNames}, with URLs relative to
+     * the major version directory. {@code javadocRoot} is as in {@link Manifest.Entry}.
+     */
+    synchronized List<Entry> entries(
+        String artifactId, String javadocRoot, Collection<String> entryNames) {
+      String artifactDirectory = artifactId + "/";
+      String root = javadocRoot.equals(artifactId)
+          ? ""
+          : javadocRoot.substring(artifactDirectory.length()) + "/";
+
+      // Modular Javadoc from JDK 11 and newer puts each module's packages in a directory that
+      // also has a module-summary.html.
+      Set<String> modules = new LinkedHashSet<>();
+      for (String name : entryNames) {
+        if (name.startsWith(root) && name.endsWith("/module-summary.html")) {
+          String path = name.substring(root.length());
+          if (path.indexOf('/') == path.lastIndexOf('/')) {
+            modules.add(path.substring(0, path.indexOf('/') + 1));
+          }
+        }
+      }
+
+      List<Entry> result = new ArrayList<>();
+      for (String name : entryNames) {
+        if (!name.startsWith(root) || !name.endsWith(".html")) continue;
+        String path = name.substring(root.length());
+        int slash = path.indexOf('/');
+        if (slash != -1 && modules.contains(path.substring(0, slash + 1))) {
+          path = path.substring(slash + 1);
+        }
+        Entry entry = pageEntry(artifactId, path, artifactDirectory + name);
+        if (entry != null) result.add(entry);
+      }
+      for (Entry member : members) {
+        result.add(new Entry(member.name, member.kind, member.context,
+            artifactDirectory + member.url));
+      }
+      return result;
+    }
+
+    /**
+     * Returns the entry for the page at {@code path} relative to the Javadoc root, or null if it
+     * doesn't document a package or type. This understands Javadoc's {@code com/example/Foo.html}
+     * and Dokka's {@code com.example/-foo/index.html}.
+     */
+    private static @Nullable Entry pageEntry(String artifactId, String path, String url) {
+      int slash = path.lastIndexOf('/');
+      String directory = slash != -1 ? path.substring(0, slash) : "";
+      String fileName = path.substring(slash + 1);
+      for (String segment : directory.split("/")) {
+        if (segment.equals("class-use") || segment.equals("doc-files")
+            || segment.equals("src-html")) {
+          return null;
+        }
+      }
+
+      if (fileName.equals("package-summary.html")) {
+        return new Entry(directory.replace('/', '.'), PACKAGE, artifactId, url);
+      }
+
+      if (fileName.equals("index.html") && !directory.isEmpty()) {
+        // Dokka: a package directory, then a directory for each enclosing type.
+        String[] segments = directory.split("/");
+        if (!segments[segments.length - 1].startsWith("-")) {
+          return segments.length == 1 ? new Entry(segments[0], PACKAGE, artifactId, url) : null;
+        }
+        int first = segments.length;
+        while (first > 0 && segments[first - 1].startsWith("-")) first--;
+        if (first == 0) return null;
+        StringBuilder type = new StringBuilder();
+        for (int i = first; i < segments.length; i++) {
+          if (type.length() > 0) type.append('.');
+          type.append(dokkaName(segments[i]));
+        }
+        return new Entry(type.toString(), TYPE, segments[first - 1], url);
+      }
+
+      if (!fileName.isEmpty() && Character.isUpperCase(fileName.charAt(0))) {
+        String type = fileName.substring(0, fileName.length() - ".html".length());
+        return new Entry(type, TYPE, directory.replace('/', '.'), url);
+      }
+      return null;
+    }
+
+    /** Returns {@code FooBar} for Dokka's {@code -foo-bar}. */
+    private static String dokkaName(String segment) {
+      StringBuilder result = new StringBuilder();
+      boolean upper = false;
+      for (int i = 0; i < segment.length(); i++) {
+        char c = segment.charAt(i);
+        if (c == '-') {
+          upper = true;
+        } else {
+          result.append(upper ? Character.toUpperCase(c) : c);
+          upper = false;
+        }
+      }
+      return result.toString();
+    }
+  }
+}
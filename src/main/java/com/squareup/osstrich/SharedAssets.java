@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.annotation.Nullable;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+
+/**
+ * The static assets of a Javadoc jar, like its stylesheets, images, and fonts, to be stored once
+ * in {@code _assets/<hash>/} instead of in every artifact's directory. Assets keep their paths
+ * relative to each other, so stylesheets that import fonts and images still work. The hash covers
+ * every asset's path and contents, so jars generated by the same Javadoc tool share a directory.
+ * References to assets in each HTML page are rewritten as the page is extracted.
+ *
+ * <p>Scripts aren't shared. Javadoc's {@code script.js} loads {@code search.js} and the search
+ * indexes relative to the artifact's root, which only HTML references are rewritten for. Neither
+ * are the images in {@code doc-files} directories: they belong to the artifact, and since the hash
+ * covers every asset, sharing one would give its stylesheets and fonts a directory of their own.
+ */
+final class SharedAssets {
+  static final String DIRECTORY = "_assets";
+
+  /** Matches {@code href} and {@code src} attributes, capturing the URL. */
+  private static final Pattern REFERENCE_PATTERN =
+      Pattern.compile("(\\b(?:href|src)\\s*=\\s*)([\"'])([^\"']*)\\2", Pattern.CASE_INSENSITIVE);
+
+  /** Pages are read as bytes, so their charset doesn't matter for ASCII URLs. */
+  private static final Charset BYTES = Charset.forName("ISO-8859-1");
+
+  private static final Set<String> ASSET_EXTENSIONS = new HashSet<>(Arrays.asList(
+      "css", "png", "gif", "jpg", "jpeg", "svg", "ico",
+      "woff", "woff2", "ttf", "eot", "otf"));
+
+  final String hash;
+  /** Paths of the assets in the jar, with their sizes. */
+  final Map<String, Long> paths;
+  final long byteCount;
+  private final int depth;
+
+  private SharedAssets(String hash, Map<String, Long> paths, long byteCount, int depth) {
+    this.hash = hash;
+    this.paths = Collections.unmodifiableMap(paths);
+    this.byteCount = byteCount;
+    this.depth = depth;
+  }
+
+  /** Returns true if the jar entry {@code name} is an asset generated by the Javadoc tool. */
+  static boolean isAsset(String name) {
+    if (name.startsWith("doc-files/") || name.contains("/doc-files/")) return false;
+    int dot = name.lastIndexOf('.');
+    if (dot == -1 || name.lastIndexOf('/') > dot) return false;
+    return ASSET_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.US));
+  }
+
+  /** Returns true if the jar entry {@code name} is a page whose references may be rewritten. */
+  static boolean isPage(String name) {
+    return name.endsWith(".html") || name.endsWith(".htm");
+  }
+
+  /**
+   * Reads the assets of {@code zipFile} to hash them. Assets are small, so this reads only a
+   * fraction of a typical jar. Returns null if the jar has no assets.
+   *
+   * @param depth the number of directories between the root of the branch and the directory the
+   *     jar is extracted to, like 2 for {@code 1.x/okio/}.
+   */
+  static @Nullable SharedAssets scan(ZipFile zipFile, int depth) throws IOException {
+    List<ZipEntry> entries = new ArrayList<>();
+    for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements(); ) {
+      ZipEntry entry = e.nextElement();
+      if (!entry.isDirectory() && isAsset(entry.getName())) entries.add(entry);
+    }
+    if (entries.isEmpty()) return null;
+    Collections.sort(entries, new Comparator<ZipEntry>() {
+      @Override public int compare(ZipEntry a, ZipEntry b) {
+        return a.getName().compareTo(b.getName());
+      }
+    });
+
+    Buffer digest = new Buffer();
+    Map<String, Long> paths = new LinkedHashMap<>();
+    long byteCount = 0L;
+    for (ZipEntry entry : entries) {
+      ByteString contents;
+      try (InputStream in = zipFile.getInputStream(entry);
+           BufferedSource source = Okio.buffer(Okio.source(in))) {
+        contents = source.readByteString();
+      }
+      digest.writeUtf8(entry.getName()).writeByte(0)
+          .writeDecimalLong(contents.size()).writeByte(0)
+          .write(contents.sha256());
+      paths.put(entry.getName(), (long) contents.size());
+      byteCount += contents.size();
+    }
+    String hash = digest.readByteString().sha256().hex().substring(0, 16);
+    return new SharedAssets(hash, paths, byteCount, depth);
+  }
+
+  /** Returns the directory holding these assets, relative to the root of the branch. */
+  String directory() {
+    return DIRECTORY + "/" + hash;
+  }
+
+  /**
+   * Returns the page at {@code name} in the jar with its references to assets rewritten to point
+   * into {@link #directory}.
+   */
+  Buffer rewrite(String name, BufferedSource page) throws IOException {
+    String html = page.readString(BYTES);
+    int slash = name.lastIndexOf('/');
+    String pageDirectory = slash != -1 ? name.substring(0, slash + 1) : "";
+
+    StringBuilder toRoot = new StringBuilder();
+    for (int i = depth + count(pageDirectory, '/'); i > 0; i--) {
+      toRoot.append("../");
+    }
+
+    Matcher matcher = REFERENCE_PATTERN.matcher(html);
+    StringBuffer result = new StringBuffer(html.length());
+    while (matcher.find()) {
+      String url = matcher.group(3);
+      int end = url.length();
+      int query = url.indexOf('?');
+      if (query != -1) end = query;
+      int fragment = url.indexOf('#');
+      if (fragment != -1 && fragment < end) end = fragment;
+
+      String path = resolve(pageDirectory, url.substring(0, end));
+      String replacement = path != null && paths.containsKey(path)
+          ? matcher.group(1) + matcher.group(2) + toRoot + directory() + "/" + path
+              + url.substring(end) + matcher.group(2)
+          : matcher.group();
+      matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+    }
+    matcher.appendTail(result);
+    return new Buffer().writeString(result.toString(), BYTES);
+  }
+
+  /**
+   * Returns the jar path of the relative URL {@code url} on a page in {@code pageDirectory}, or
+   * null if it isn't relative or leaves the jar.
+   */
+  static @Nullable String resolve(String pageDirectory, String url) {
+    if (url.isEmpty() || url.startsWith("/") || url.indexOf(':') != -1) return null;
+    List<String> segments = new ArrayList<>();
+    for (String segment : (pageDirectory + url).split("/", -1)) {
+      if (segment.equals("..")) {
+        if (segments.isEmpty()) return null;
+        segments.remove(segments.size() - 1);
+      } else if (!segment.equals(".") && !segment.isEmpty()) {
+        segments.add(segment);
+      }
+    }
+    StringBuilder result = new StringBuilder();
+    for (String segment : segments) {
+      if (result.length() > 0) result.append('/');
+      result.append(segment);
+    }
+    return result.toString();
+  }
+
+  private static int count(String s, char c) {
+    int result = 0;
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) == c) result++;
+    }
+    return result;
+  }
+}
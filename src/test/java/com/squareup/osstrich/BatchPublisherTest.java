@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Nullable;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.BufferedSource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.squareup.osstrich.LocalGitRemote.git;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public final class BatchPublisherTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  private final FakeMavenCentral mavenCentral = new FakeMavenCentral();
+  private LocalGitRemote first;
+  private LocalGitRemote second;
+  private File base;
+
+  @Before public void setUp() throws Exception {
+    server.setDispatcher(mavenCentral);
+    first = LocalGitRemote.create(temporaryFolder.newFolder(), "index.html", "First");
+    second = LocalGitRemote.create(temporaryFolder.newFolder(), "index.html", "Second");
+    base = temporaryFolder.newFolder("base");
+  }
+
+  @Test public void readJobs() throws Exception {
+    List<BatchPublisher.Job> jobs = BatchPublisher.readJobs(base, new Buffer().writeUtf8(""
+        + "# Square\n"
+        + "okhttp  git@github.com:square/okhttp.git  com.squareup.okhttp3\n"
+        + "\n"
+        + "/tmp/okio git@github.com:square/okio.git com.squareup.okio okio 2.0.0\n"));
+    assertThat(jobs).hasSize(2);
+    assertThat(jobs.get(0).directory).isEqualTo(new File(base, "okhttp"));
+    assertThat(jobs.get(0).repoUrl).isEqualTo("git@github.com:square/okhttp.git");
+    assertThat(jobs.get(0).groupId).isEqualTo("com.squareup.okhttp3");
+    assertThat(jobs.get(0).artifactId).isNull();
+    assertThat(jobs.get(1).directory).isEqualTo(new File("/tmp/okio"));
+    assertThat(jobs.get(1).toString())
+        .isEqualTo("com.squareup.okio:okio:2.0.0 to git@github.com:square/okio.git");
+  }
+
+  @Test public void readJobsRejectsMalformedLines() throws Exception {
+    try {
+      BatchPublisher.readJobs(base, new Buffer().writeUtf8("\nokhttp com.squareup.okhttp3\n"));
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected).hasMessage("Unexpected job on line 2: okhttp com.squareup.okhttp3");
+    }
+  }
+
+  @Test public void readJobsRejectsGroupsSharingARepository() throws Exception {
+    try {
+      BatchPublisher.readJobs(base, new Buffer().writeUtf8(""
+          + "okhttp git@github.com:square/okhttp.git com.squareup.okhttp3\n"
+          + "okio git@github.com:square/okio.git com.squareup.okio\n"
+          + "okhttp git@github.com:square/okhttp.git com.squareup.okhttp3 okhttp 3.0.0\n"
+          + "okhttp git@github.com:square/okhttp.git com.squareup.okhttp\n"));
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected).hasMessage("Line 4 publishes com.squareup.okhttp to "
+          + "git@github.com:square/okhttp.git, but line 1 publishes com.squareup.okhttp3 there; "
+          + "use one group per repo");
+    }
+  }
+
+  @Test public void jobsSharingARepositoryShareItsCheckout() throws Exception {
+    mavenCentral.add("com.example.a", "a", "1.0.0", "index.html", "A");
+    mavenCentral.add("com.example.a", "b", "1.0.0", "index.html", "B");
+    mavenCentral.add("com.example.c", "c", "2.0.0", "index.html", "C");
+
+    RecordingLog log = new RecordingLog();
+    BatchPublisher batchPublisher = new BatchPublisher(publisher(log), 2);
+    int published = batchPublisher.publish(BatchPublisher.readJobs(base, new Buffer().writeUtf8(""
+        + "first " + first.url() + " com.example.a a 1.0.0\n"
+        + "second " + second.url() + " com.example.c\n"
+        + "first " + first.url() + " com.example.a b 1.0.0\n")));
+    assertThat(published).isEqualTo(3);
+
+    assertThat(git(first.directory, "show", "gh-pages:1.x/a/index.html")).isEqualTo("A");
+    assertThat(git(first.directory, "show", "gh-pages:1.x/b/index.html")).isEqualTo("B");
+    assertThat(git(second.directory, "show", "gh-pages:2.x/c/index.html")).isEqualTo("C");
+    assertThat(base.list()).containsOnly("first", "second");
+    assertThat(log.messages())
+        .contains("com.example.a:a:1.0.0 to " + first.url() + ": published 1 artifacts")
+        .contains("com.example.a:b:1.0.0 to " + first.url() + ": published 1 artifacts")
+        .contains("Published 3 artifacts in 3 jobs to 2 repositories");
+    assertThat(batchPublisher.metrics().artifacts()).hasSize(3);
+    // Each job counts only its own processes: rm, clone, ls-tree, add, commit, and push for the
+    // first job in each repository, then pull, add, commit, and push.
+    assertThat(log.messages()).containsSequence("Spawned 4 processes",
+        "com.example.a:a:1.0.0 to " + first.url() + ": published 1 artifacts");
+    assertThat(batchPublisher.metrics().processCount()).isEqualTo(16L);
+    assertThat(git(first.directory, "show", "gh-pages:1.x/index.html"))
+        .contains("<a href=\"a\">a</li>")
+        .contains("<a href=\"b\">b</li>");
+  }
+
+  @Test public void failedJobsDoNotStopOthers() throws Exception {
+    mavenCentral.add("com.example.a", "a", "1.0.0", "index.html", "A");
+    mavenCentral.add("com.example.c", "c", "2.0.0", "index.html", "C");
+
+    String missing = "file://" + new File(temporaryFolder.getRoot(), "missing.git");
+    RecordingLog log = new RecordingLog();
+    try {
+      new BatchPublisher(publisher(log), 2).publish(BatchPublisher.readJobs(base,
+          new Buffer().writeUtf8(""
+              + "missing " + missing + " com.example.a\n"
+              + "second " + second.url() + " com.example.c\n")));
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected).hasMessage("1 of 2 jobs failed");
+    }
+    assertThat(git(second.directory, "show", "gh-pages:2.x/c/index.html")).isEqualTo("C");
+    assertThat(log.messages())
+        .contains("com.example.c to " + second.url() + ": published 1 artifacts")
+        .contains("Published 1 artifacts in 2 jobs to 2 repositories");
+  }
+
+  @Test public void uncheckedExceptionsFailOnlyTheirJob() throws Exception {
+    mavenCentral.add("com.example.a", "a", "1.0.0", "index.html", "A");
+    mavenCentral.add("com.example.c", "c", "2.0.0", "index.html", "C");
+    final MavenCentral delegate = new MavenCentral(server.url("/"));
+    ArtifactSource artifactSource = new ArtifactSource() {
+      @Override public List<Artifact> latestArtifacts(String groupId) throws IOException {
+        if (groupId.equals("com.example.bad")) throw new IllegalStateException("bad group");
+        return delegate.latestArtifacts(groupId);
+      }
+
+      @Override public List<Artifact> latestArtifacts(String groupId, List<String> artifactIds)
+          throws IOException {
+        return delegate.latestArtifacts(groupId, artifactIds);
+      }
+
+      @Override public BufferedSource downloadJavadocJar(Artifact artifact) throws IOException {
+        return delegate.downloadJavadocJar(artifact);
+      }
+
+      @Override public @Nullable File javadocJarFile(Artifact artifact) throws IOException {
+        return delegate.javadocJarFile(artifact);
+      }
+    };
+
+    // The search fails before the checkout, so the repository doesn't need to exist.
+    String bad = "file://" + new File(temporaryFolder.getRoot(), "bad.git");
+    RecordingLog log = new RecordingLog();
+    try {
+      new BatchPublisher(new JavadocPublisher.Builder(artifactSource, new Cli(), log, base), 2)
+          .publish(BatchPublisher.readJobs(base, new Buffer().writeUtf8(""
+              + "bad " + bad + " com.example.bad\n"
+              + "first " + first.url() + " com.example.a\n"
+              + "second " + second.url() + " com.example.c\n")));
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected).hasMessage("1 of 3 jobs failed");
+    }
+    assertThat(git(first.directory, "show", "gh-pages:1.x/a/index.html")).isEqualTo("A");
+    assertThat(git(second.directory, "show", "gh-pages:2.x/c/index.html")).isEqualTo("C");
+    assertThat(log.messages())
+        .contains("com.example.a to " + first.url() + ": published 1 artifacts")
+        .contains("Published 2 artifacts in 3 jobs to 3 repositories");
+  }
+
+  private JavadocPublisher.Builder publisher(RecordingLog log) {
+    return new JavadocPublisher.Builder(
+        new MavenCentral(server.url("/")), new Cli(), log, base);
+  }
+}
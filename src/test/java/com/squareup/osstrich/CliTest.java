@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okio.Buffer;
+import okio.Okio;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public final class CliTest {
+  private final RecordingLog log = new RecordingLog();
+  private final Cli cli = new Cli().withLog(log);
+
+  @Test public void execLogsEachLine() throws Exception {
+    cli.exec("sh", "-c", "echo one; echo two >&2; printf 'three\\rfour'");
+    assertThat(log.debugMessages()).containsExactly("one", "two", "three", "four");
+    assertThat(cli.processCount()).isEqualTo(1);
+  }
+
+  @Test public void failureIncludesOnlyTail() throws Exception {
+    try {
+      cli.exec("sh", "-c", "seq 1 1000; exit 3");
+      fail();
+    } catch (IOException expected) {
+      String message = expected.getMessage();
+      assertThat(message).startsWith("Process returned 3:\n[sh, -c, seq 1 1000; exit 3]:\n");
+      assertThat(message).endsWith("\n999\n1000\n");
+      assertThat(message).contains(":\n901\n902\n").doesNotContain("\n900\n");
+    }
+    assertThat(log.debugMessages()).hasSize(1000);
+  }
+
+  @Test public void readLineSplitsLongLines() throws Exception {
+    StringBuilder longLine = new StringBuilder();
+    for (int i = 0; i < Cli.MAX_LINE_LENGTH + 10; i++) {
+      longLine.append('a');
+    }
+    Buffer buffer = new Buffer().writeUtf8(longLine + "\nshort\nlast");
+    assertThat(Cli.readLine(buffer)).hasSize(Cli.MAX_LINE_LENGTH);
+    assertThat(Cli.readLine(buffer)).isEqualTo("aaaaaaaaaa");
+    assertThat(Cli.readLine(buffer)).isEqualTo("short");
+    assertThat(Cli.readLine(buffer)).isEqualTo("last");
+    assertThat(Cli.readLine(buffer)).isNull();
+  }
+
+  @Test public void readLineDoesNotSplitCharacters() throws Exception {
+    StringBuilder longLine = new StringBuilder();
+    for (int i = 0; i < Cli.MAX_LINE_LENGTH - 2; i++) {
+      longLine.append('a');
+    }
+    // A 4-byte character straddles the limit.
+    Buffer buffer = new Buffer().writeUtf8(longLine + "\ud83e\udd86b\n");
+    assertThat(Cli.readLine(buffer)).isEqualTo(longLine.toString());
+    assertThat(Cli.readLine(buffer)).isEqualTo("\ud83e\udd86b");
+    assertThat(Cli.readLine(buffer)).isNull();
+  }
+
+  @Test public void interruptingExecDestroysProcess() throws Exception {
+    final File pidFile = File.createTempFile("osstrich-", ".pid");
+    final AtomicReference<Exception> failure = new AtomicReference<>();
+    Thread thread = new Thread() {
+      @Override public void run() {
+        try {
+          cli.exec("sh", "-c", "echo $$ > " + pidFile + "; exec sleep 30");
+        } catch (Exception e) {
+          failure.set(e);
+        }
+      }
+    };
+    thread.start();
+    while (pidFile.length() == 0L) {
+      Thread.sleep(10);
+    }
+    String pid = Okio.buffer(Okio.source(pidFile)).readUtf8().trim();
+    thread.interrupt();
+    thread.join(5000);
+    assertThat(failure.get()).isInstanceOf(InterruptedIOException.class);
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (true) {
+      try {
+        new Cli().exec("kill", "-0", pid);
+      } catch (IOException expected) {
+        break;
+      }
+      if (System.nanoTime() > deadline) fail("still running: " + pid);
+      Thread.sleep(10);
+    }
+    pidFile.delete();
+  }
+
+  @Test public void readReturnsStandardOutput() throws Exception {
+    assertThat(cli.read("sh", "-c", "echo out; echo err >&2")).isEqualTo("out\n");
+    try {
+      cli.read("sh", "-c", "echo out; echo err >&2; exit 1");
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected.getMessage()).endsWith(":\nerr\n");
+    }
+  }
+
+  @Test public void readRecordsStreamsStandardOutput() throws Exception {
+    final List<String> records = new ArrayList<>();
+    cli.readRecords((byte) 0, new Cli.RecordHandler() {
+      @Override public void record(String record) {
+        records.add(record);
+      }
+    }, "sh", "-c", "printf 'one\\0two\\nlines\\0last'; echo err >&2");
+    assertThat(records).containsExactly("one", "two\nlines", "last");
+    assertThat(log.debugMessages()).containsExactly("err");
+  }
+
+  @Test public void timeoutKillsSilentProcess() throws Exception {
+    long start = System.nanoTime();
+    try {
+      cli.withTimeout(200, TimeUnit.MILLISECONDS).exec("sh", "-c", "echo start; sleep 10");
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected.getMessage()).endsWith(":\nstart\n");
+    }
+    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+  }
+
+  @Test public void deadlineKillsChattyProcess() throws Exception {
+    long start = System.nanoTime();
+    try {
+      cli.withTimeout(200, TimeUnit.MILLISECONDS)
+          .withDeadline(1, TimeUnit.SECONDS)
+          .exec("sh", "-c", "while true; do echo tick; sleep 0.05; done");
+      fail();
+    } catch (IOException expected) {
+    }
+    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+  }
+
+  @Test public void awaitExitKillsProcessPastDeadline() throws Exception {
+    File output = File.createTempFile("osstrich-", ".txt");
+    Cli cli = this.cli.withDeadline(200, TimeUnit.MILLISECONDS);
+    Process process = cli.start(output, "sleep", "10");
+    long start = System.nanoTime();
+    try {
+      cli.awaitExit(process, "sleep", "10");
+      fail();
+    } catch (InterruptedIOException expected) {
+      assertThat(expected).hasMessage("Timed out waiting for [sleep, 10]");
+    }
+    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+    assertThat(process.waitFor(5, TimeUnit.SECONDS)).isTrue();
+
+    Process failing = cli.start(output, "sh", "-c", "exit 4");
+    try {
+      cli.awaitExit(failing, "sh", "-c", "exit 4");
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected).hasMessage("Process returned 4:\n[sh, -c, exit 4]");
+    }
+    output.delete();
+  }
+
+  @Test public void execAsync() throws Exception {
+    CompletableFuture<Void> success = cli.execAsync("sh", "-c", "sleep 0.1");
+    CompletableFuture<Void> failure = cli.execAsync("sh", "-c", "exit 2");
+    success.get(5, TimeUnit.SECONDS);
+    try {
+      failure.get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException expected) {
+      assertThat(expected.getCause()).isInstanceOf(IOException.class)
+          .hasMessageStartingWith("Process returned 2:");
+    }
+    assertThat(cli.processCount()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ConcurrencyLimiterTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  @Test public void throttlingHalvesTheLimitAndSuccessRaisesIt() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 1, 64);
+    OkHttpClient client = newClient(limiter);
+    server.enqueue(new MockResponse().setResponseCode(429));
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setResponseCode(404));
+
+    execute(client);
+    assertThat(limiter.limit()).isEqualTo(4);
+    execute(client);
+    assertThat(limiter.limit()).isEqualTo(2);
+    execute(client);
+    assertThat(limiter.limit()).isEqualTo(2);
+
+    // 2 + 1/2 + 1/2.5 + 1/2.9 = 3.24.
+    for (int i = 0; i < 3; i++) {
+      server.enqueue(new MockResponse());
+      execute(client);
+    }
+    assertThat(limiter.limit()).isEqualTo(3);
+  }
+
+  @Test public void limitIsNeverBelowTheMinimum() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 2);
+    OkHttpClient client = newClient(limiter);
+    for (int i = 0; i < 3; i++) {
+      server.enqueue(new MockResponse().setResponseCode(429));
+      execute(client);
+    }
+    assertThat(limiter.limit()).isEqualTo(1);
+  }
+
+  @Test public void concurrentRequestsStayWithinTheLimit() throws Exception {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        int count = inFlight.incrementAndGet();
+        maxInFlight.set(Math.max(maxInFlight.get(), count));
+        Thread.sleep(100);
+        inFlight.decrementAndGet();
+        return new MockResponse();
+      }
+    });
+
+    OkHttpClient client = newClient(new ConcurrencyLimiter(2, 1, 2));
+    final CountDownLatch latch = new CountDownLatch(6);
+    for (int i = 0; i < 6; i++) {
+      client.newCall(new Request.Builder().url(server.url("/")).build()).enqueue(new Callback() {
+        @Override public void onResponse(Call call, Response response) {
+          response.close();
+          latch.countDown();
+        }
+
+        @Override public void onFailure(Call call, IOException e) {
+          latch.countDown();
+        }
+      });
+    }
+    assertThat(latch.await(10, SECONDS)).isTrue();
+    assertThat(server.getRequestCount()).isEqualTo(6);
+    assertThat(maxInFlight.get()).isEqualTo(2);
+  }
+
+  private static OkHttpClient newClient(ConcurrencyLimiter limiter) {
+    return HttpClients.newClient(
+        new RetryInterceptor(1, 1, 1, MILLISECONDS, new Random(0)), limiter);
+  }
+
+  private void execute(OkHttpClient client) throws IOException {
+    client.newCall(new Request.Builder().url(server.url("/")).build()).execute().close();
+  }
+}
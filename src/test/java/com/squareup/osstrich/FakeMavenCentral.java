@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/** Serves search results and Javadoc jars like search.maven.org does. */
+final class FakeMavenCentral extends Dispatcher {
+  private final Map<String, Artifact> artifacts = new LinkedHashMap<>();
+  private final Map<String, Buffer> javadocJars = new LinkedHashMap<>();
+
+  /** Adds an artifact whose Javadoc jar contains {@code pathsAndContents}. */
+  FakeMavenCentral add(String groupId, String artifactId, String version,
+      String... pathsAndContents) throws IOException {
+    Artifact artifact = Artifact.create(groupId, artifactId, version);
+    artifact.packaging = "jar";
+    artifact.extensions = new LinkedHashSet<>(artifact.extensions);
+    artifact.extensions.add(".jar");
+    artifacts.put(groupId + ":" + artifactId, artifact);
+    javadocJars.put(artifact.toString(), javadocJar(pathsAndContents));
+    return this;
+  }
+
+  /** Returns a zip file containing alternating paths and UTF-8 file contents. */
+  static Buffer javadocJar(String... pathsAndContents) throws IOException {
+    Buffer result = new Buffer();
+    try (ZipOutputStream zipOut = new ZipOutputStream(result.outputStream())) {
+      for (int i = 0; i < pathsAndContents.length; i += 2) {
+        zipOut.putNextEntry(new ZipEntry(pathsAndContents[i]));
+        zipOut.write(pathsAndContents[i + 1].getBytes("UTF-8"));
+        zipOut.closeEntry();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds an artifact whose Javadoc jar has an {@code index.html} and {@code fileCount} generated
+   * pages of {@code fileSize} bytes each.
+   */
+  FakeMavenCentral addGenerated(String groupId, String artifactId, String version, int fileCount,
+      int fileSize) throws IOException {
+    String[] pathsAndContents = new String[(fileCount + 1) * 2];
+    pathsAndContents[0] = "index.html";
+    pathsAndContents[1] = "<html>" + artifactId + " " + version + "</html>";
+    StringBuilder page = new StringBuilder();
+    for (int i = 1; i <= fileCount; i++) {
+      page.setLength(0);
+      while (page.length() < fileSize) {
+        page.append("<tr><td>").append(artifactId).append(' ').append(i).append("</td></tr>\n");
+      }
+      page.setLength(fileSize);
+      pathsAndContents[i * 2] = "com/example/package" + (i / 50) + "/Class" + i + ".html";
+      pathsAndContents[i * 2 + 1] = page.toString();
+    }
+    return add(groupId, artifactId, version, pathsAndContents);
+  }
+
+  /** Adds an artifact that wasn't published with a Javadoc jar. */
+  FakeMavenCentral addWithoutJavadoc(String groupId, String artifactId, String version) {
+    Artifact artifact = Artifact.create(groupId, artifactId, version);
+    artifact.packaging = "jar";
+    artifact.extensions = Collections.singleton(".jar");
+    artifacts.put(groupId + ":" + artifactId, artifact);
+    return this;
+  }
+
+  @Override public MockResponse dispatch(RecordedRequest request) {
+    HttpUrl url = request.getRequestUrl();
+    if (url.encodedPath().startsWith("/maven2/")) {
+      return repository(request.getMethod(), url.encodedPath().substring("/maven2/".length()));
+    }
+    switch (url.encodedPath()) {
+      case "/classic/solrsearch/select":
+        return select(url.queryParameter("q"), Integer.parseInt(url.queryParameter("start")),
+            Integer.parseInt(url.queryParameter("rows")));
+      case "/classic/remote_content":
+        Buffer jar = javadocJars.get(String.format("%s:%s:%s", url.queryParameter("g"),
+            url.queryParameter("a"), url.queryParameter("v")));
+        return jar != null
+            ? new MockResponse().setBody(jar.clone())
+            : new MockResponse().setResponseCode(404);
+      default:
+        return new MockResponse().setResponseCode(404);
+    }
+  }
+
+  /** Serves {@code maven-metadata.xml} files and Javadoc jars in the Maven repository layout. */
+  private MockResponse repository(String method, String path) {
+    for (Artifact artifact : artifacts.values()) {
+      String artifactPath = artifact.groupId.replace('.', '/') + "/" + artifact.artifactId;
+      if (path.equals(artifactPath + "/maven-metadata.xml")) {
+        return new MockResponse().setBody(""
+            + "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<metadata>\n"
+            + "  <groupId>" + artifact.groupId + "</groupId>\n"
+            + "  <artifactId>" + artifact.artifactId + "</artifactId>\n"
+            + "  <versioning>\n"
+            + "    <latest>" + artifact.latestVersion + "</latest>\n"
+            + "    <release>" + artifact.latestVersion + "</release>\n"
+            + "    <versions>\n"
+            + "      <version>0.1.0</version>\n"
+            + "      <version>" + artifact.latestVersion + "</version>\n"
+            + "    </versions>\n"
+            + "  </versioning>\n"
+            + "</metadata>\n");
+      }
+      String javadocPath = artifactPath + "/" + artifact.latestVersion + "/"
+          + artifact.artifactId + "-" + artifact.latestVersion + "-javadoc.jar";
+      Buffer jar = javadocJars.get(artifact.toString());
+      if (path.equals(javadocPath) && jar != null) {
+        return "HEAD".equals(method)
+            ? new MockResponse().setHeader("Content-Length", jar.size())
+            : new MockResponse().setBody(jar.clone());
+      }
+    }
+    return new MockResponse().setResponseCode(404);
+  }
+
+  private MockResponse select(String query, int start, int rows) {
+    List<Artifact> docs = new ArrayList<>();
+    for (Artifact artifact : artifacts.values()) {
+      if (query.equals("g:\"" + artifact.groupId + "\"")) {
+        docs.add(artifact);
+      }
+    }
+    Collections.reverse(docs); // Search results aren't sorted by artifact ID.
+
+    MavenCentral.Select select = new MavenCentral.Select();
+    select.response = new MavenCentral.Select.Response();
+    select.response.numFound = docs.size();
+    select.response.artifacts = docs.subList(
+        Math.min(start, docs.size()), Math.min(start + rows, docs.size()));
+    JsonAdapter<MavenCentral.Select> adapter = new Moshi.Builder().build()
+        .adapter(MavenCentral.Select.class);
+    return new MockResponse().setBody(adapter.toJson(select));
+  }
+}
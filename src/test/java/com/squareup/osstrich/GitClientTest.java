@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import okio.BufferedSink;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+import static com.squareup.osstrich.LocalGitRemote.git;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(Parameterized.class)
+public final class GitClientTest {
+  @Parameters(name = "{0}")
+  public static List<Object[]> parameters() {
+    return Arrays.asList(new Object[] {"cli"}, new Object[] {"jgit"});
+  }
+
+  @Parameter public String backend;
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private GitClient client;
+  private LocalGitRemote remote;
+  private File directory;
+
+  @Before public void setUp() throws Exception {
+    client = "jgit".equals(backend) ? new JGitClient() : new CliGitClient(new Cli());
+    remote = LocalGitRemote.create(temporaryFolder.newFolder(),
+        "index.html", "Hello",
+        "1.x/artifact/index.html", "Artifact",
+        "1.x/artifact/Removed.html", "Removed");
+    directory = new File(temporaryFolder.getRoot(), "checkout");
+  }
+
+  @After public void tearDown() throws Exception {
+    client.close();
+  }
+
+  @Test public void cloneChecksOutBranch() throws Exception {
+    client.cloneBranch(remote.url(), "gh-pages", directory);
+
+    assertThat(new File(directory, "1.x/artifact/index.html")).exists();
+    assertThat(git(directory, "rev-parse", "--abbrev-ref", "HEAD")).isEqualTo("gh-pages");
+    assertThat(git(directory, "rev-parse", "HEAD"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages"));
+  }
+
+  @Test public void addCommitAndPush() throws Exception {
+    client.cloneBranch(remote.url(), "gh-pages", directory);
+    write("1.x/artifact/index.html", "Artifact 2");
+    write("1.x/artifact/Added.html", "Added");
+    write("unstaged.txt", "Unstaged");
+    assertThat(new File(directory, "1.x/artifact/Removed.html").delete()).isTrue();
+
+    client.add(directory, Collections.singletonList(new File(directory, "1.x/artifact")));
+    client.commit(directory, "Publish Javadoc");
+    client.push(directory, "gh-pages");
+
+    assertThat(git(remote.directory, "ls-tree", "-r", "--name-only", "gh-pages"))
+        .isEqualTo("1.x/artifact/Added.html\n1.x/artifact/index.html\nindex.html");
+    assertThat(git(remote.directory, "show", "gh-pages:1.x/artifact/index.html"))
+        .isEqualTo("Artifact 2");
+    assertThat(git(remote.directory, "log", "-1", "--format=%s %cn <%ce>", "gh-pages"))
+        .isEqualTo("Publish Javadoc Osstrich Test <osstrich@example.com>");
+  }
+
+  @Test public void pullFetchesNewCommits() throws Exception {
+    client.cloneBranch(remote.url(), "gh-pages", directory);
+    remote.commit("Update", "2.x/artifact/index.html", "Artifact 2");
+
+    client.pull(directory);
+
+    assertThat(new File(directory, "2.x/artifact/index.html")).exists();
+    assertThat(git(directory, "rev-parse", "HEAD"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages"));
+  }
+
+  @Test public void pushFailsWhenBehind() throws Exception {
+    client.cloneBranch(remote.url(), "gh-pages", directory);
+    remote.commit("Update", "2.x/artifact/index.html", "Artifact 2");
+    String remoteHead = git(remote.directory, "rev-parse", "gh-pages");
+
+    write("index.html", "Goodbye");
+    client.add(directory, Collections.singletonList(new File(directory, "index.html")));
+    client.commit(directory, "Local change");
+    try {
+      client.push(directory, "gh-pages");
+      fail();
+    } catch (IOException expected) {
+    }
+    assertThat(git(remote.directory, "rev-parse", "gh-pages")).isEqualTo(remoteHead);
+  }
+
+  private void write(String path, String contents) throws IOException {
+    File file = new File(directory, path);
+    try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+      sink.writeUtf8(contents);
+    }
+  }
+}
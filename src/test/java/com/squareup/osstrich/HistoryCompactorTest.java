@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.squareup.osstrich.LocalGitRemote.git;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public final class HistoryCompactorTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private LocalGitRemote remote;
+  private File clone;
+
+  @Before public void setUp() throws Exception {
+    remote = LocalGitRemote.create(temporaryFolder.newFolder(), "index.html", "Hello");
+    for (int i = 1; i <= 4; i++) {
+      remote.commit("Publish " + i, "file-" + i + ".html", "File " + i);
+    }
+    clone = new File(temporaryFolder.getRoot(), "clone");
+    git(temporaryFolder.getRoot(), "clone", "--branch", "gh-pages", remote.url(),
+        clone.getAbsolutePath());
+  }
+
+  @Test public void compactKeepsTreesAndMessages() throws Exception {
+    String tip = git(clone, "rev-parse", "gh-pages");
+    HistoryCompactor compactor = new HistoryCompactor(new Cli(), clone, 2);
+    assertThat(compactor.compact("gh-pages")).isEqualTo(2);
+
+    assertThat(git(clone, "rev-list", "--count", "gh-pages")).isEqualTo("2");
+    assertThat(git(clone, "log", "--format=%s", "gh-pages")).isEqualTo("Publish 4\nPublish 3");
+    assertThat(git(clone, "rev-parse", "gh-pages^{tree}"))
+        .isEqualTo(git(clone, "rev-parse", tip + "^{tree}"));
+    assertThat(git(clone, "rev-parse", "gh-pages~1^{tree}"))
+        .isEqualTo(git(clone, "rev-parse", tip + "~1^{tree}"));
+    assertThat(git(clone, "status", "--porcelain")).isEmpty();
+
+    compactor.forcePush("gh-pages", tip);
+    assertThat(git(remote.directory, "rev-parse", "gh-pages"))
+        .isEqualTo(git(clone, "rev-parse", "gh-pages"));
+
+    // Once the remote-tracking branch moves, pruning drops the objects of the removed history.
+    HistoryCompactor.Size before = compactor.size();
+    compactor.prune();
+    HistoryCompactor.Size after = compactor.size();
+    assertThat(after.objects).isLessThan(before.objects);
+  }
+
+  @Test public void compactKeepsAuthorsAndDates() throws Exception {
+    git(clone, "commit", "--allow-empty", "--quiet", "-m", "Publish 5",
+        "--author=Original Author <original@example.com>", "--date=2015-06-01T12:00:00Z");
+    String before = git(clone, "log", "-2", "--format=%an <%ae> %ad %cn <%ce> %cd", "gh-pages");
+
+    assertThat(new HistoryCompactor(new Cli(), clone, 2).compact("gh-pages")).isEqualTo(2);
+    assertThat(git(clone, "log", "--format=%an <%ae> %ad %cn <%ce> %cd", "gh-pages"))
+        .isEqualTo(before)
+        .startsWith("Original Author <original@example.com> Mon Jun 1 12:00:00 2015 +0000");
+  }
+
+  @Test public void compactShortHistoryDoesNothing() throws Exception {
+    String tip = git(clone, "rev-parse", "gh-pages");
+    assertThat(new HistoryCompactor(new Cli(), clone, 5).compact("gh-pages")).isEqualTo(0);
+    assertThat(git(clone, "rev-parse", "gh-pages")).isEqualTo(tip);
+  }
+
+  @Test public void compactShallowClone() throws Exception {
+    File shallow = new File(temporaryFolder.getRoot(), "shallow");
+    git(temporaryFolder.getRoot(), "clone", "--depth=1", "--branch", "gh-pages", remote.url(),
+        shallow.getAbsolutePath());
+
+    // A shallow clone of a single commit still has history beyond it.
+    assertThat(new HistoryCompactor(new Cli(), shallow, 1).compact("gh-pages")).isEqualTo(1);
+    assertThat(git(shallow, "rev-list", "--count", "gh-pages")).isEqualTo("1");
+    assertThat(git(shallow, "rev-parse", "gh-pages^{tree}"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages^{tree}"));
+  }
+
+  @Test public void compactShallowCloneRefusesToDropUnfetchedHistory() throws Exception {
+    File shallow = new File(temporaryFolder.getRoot(), "shallow");
+    git(temporaryFolder.getRoot(), "clone", "--depth=2", "--branch", "gh-pages", remote.url(),
+        shallow.getAbsolutePath());
+    String tip = git(shallow, "rev-parse", "gh-pages");
+
+    // Keeping 3 commits needs one that wasn't fetched.
+    try {
+      new HistoryCompactor(new Cli(), shallow, 3).compact("gh-pages");
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected).hasMessage("gh-pages is shallow with 2 of the 3 commits to keep; "
+          + "fetch more history before compacting");
+    }
+    assertThat(git(shallow, "rev-parse", "gh-pages")).isEqualTo(tip);
+
+    // Keeping 2 commits needs only those fetched.
+    assertThat(new HistoryCompactor(new Cli(), shallow, 2).compact("gh-pages")).isEqualTo(2);
+    assertThat(git(shallow, "log", "--format=%s", "gh-pages")).isEqualTo("Publish 4\nPublish 3");
+  }
+
+  @Test public void forcePushFailsIfRemoteMoved() throws Exception {
+    String tip = git(clone, "rev-parse", "gh-pages");
+    HistoryCompactor compactor = new HistoryCompactor(new Cli(), clone, 1);
+    assertThat(compactor.compact("gh-pages")).isEqualTo(1);
+    remote.commit("Publish 5", "file-5.html", "File 5");
+    String remoteTip = git(remote.directory, "rev-parse", "gh-pages");
+
+    try {
+      compactor.forcePush("gh-pages", tip);
+      fail();
+    } catch (IOException expected) {
+    }
+    assertThat(git(remote.directory, "rev-parse", "gh-pages")).isEqualTo(remoteTip);
+  }
+}
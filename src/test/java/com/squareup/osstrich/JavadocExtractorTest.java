@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipFile;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.Okio;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.squareup.osstrich.FakeMavenCentral.javadocJar;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class JavadocExtractorTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final Buffer v1 = javadocJar(
+      "index.html", "Version 1",
+      "stylesheet.css", "body {}",
+      "com/example/Removed.html", "Removed",
+      "com/example/Kept.html", "Kept");
+  private final Buffer v2 = javadocJar(
+      "index.html", "Version 2",
+      "stylesheet.css", "body {}",
+      "com/example/Kept.html", "Kept",
+      "com/example/other/Added.html", "Added");
+
+  public JavadocExtractorTest() throws IOException {
+  }
+
+  @Test public void incrementalMatchesFullExtraction() throws Exception {
+    File incremental = temporaryFolder.newFolder("incremental");
+    new JavadocExtractor(incremental, true).extract(v1.inputStream());
+    write(new File(incremental, "version.txt"), "1");
+    write(new File(incremental, "com/stale/Stale.html"), "Stale");
+
+    JavadocExtractor extractor = new JavadocExtractor(incremental, true, "version.txt");
+    extractor.extract(v2.clone().inputStream());
+    assertThat(extractor.toString()).isEqualTo("2 written, 2 unchanged, 2 deleted");
+
+    File full = temporaryFolder.newFolder("full");
+    new JavadocExtractor(full, false).extract(v2.inputStream());
+    write(new File(full, "version.txt"), "1");
+
+    assertThat(contents(incremental)).isEqualTo(contents(full));
+    assertThat(new File(incremental, "com/stale")).doesNotExist();
+  }
+
+  @Test public void fullExtractionLeavesStaleFiles() throws Exception {
+    File directory = temporaryFolder.newFolder();
+    new JavadocExtractor(directory, false).extract(v1.inputStream());
+
+    JavadocExtractor extractor = new JavadocExtractor(directory, false);
+    extractor.extract(v2.inputStream());
+    assertThat(extractor.toString()).isEqualTo("4 written, 0 unchanged, 0 deleted");
+    assertThat(new File(directory, "com/example/Removed.html")).exists();
+  }
+
+  @Test public void zipFileExtractionMatchesStreamedExtraction() throws Exception {
+    File jar = temporaryFolder.newFile("javadoc.jar");
+    try (BufferedSink sink = Okio.buffer(Okio.sink(jar))) {
+      sink.writeAll(v2.clone());
+    }
+
+    File streamed = temporaryFolder.newFolder("streamed");
+    new JavadocExtractor(streamed, false).extract(v2.inputStream());
+
+    File extracted = temporaryFolder.newFolder("extracted");
+    new JavadocExtractor(extracted, true).extract(v1.inputStream());
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try (ZipFile zipFile = new ZipFile(jar)) {
+      JavadocExtractor extractor = new JavadocExtractor(extracted, true);
+      extractor.extract(zipFile, executor, 3);
+      assertThat(extractor.toString()).isEqualTo("2 written, 2 unchanged, 1 deleted");
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(contents(extracted)).isEqualTo(contents(streamed));
+  }
+
+  @Test public void javadocRoot() throws Exception {
+    assertThat(JavadocExtractor.javadocRoot(
+        asList("index.html", "com/example/A.html"), "moshi"))
+        .isEqualTo("moshi");
+    assertThat(JavadocExtractor.javadocRoot(
+        asList("moshi/index.html", "moshi/com/example/A.html"), "moshi"))
+        .isEqualTo("moshi/moshi");
+    assertThat(JavadocExtractor.javadocRoot(
+        asList("okio/jvm/index.html", "okio/common/index.html"), "okio"))
+        .isEqualTo("okio/okio/jvm");
+    assertThat(JavadocExtractor.javadocRoot(
+        asList("com/example/A.html"), "moshi"))
+        .isNull();
+  }
+
+  private static void write(File file, String content) throws IOException {
+    assertThat(file.getParentFile().mkdirs() || file.getParentFile().isDirectory()).isTrue();
+    Okio.buffer(Okio.sink(file)).writeUtf8(content).close();
+  }
+
+  /** Returns a map of relative paths to file contents under {@code directory}. */
+  private static Map<String, ByteString> contents(File directory) throws IOException {
+    Map<String, ByteString> result = new TreeMap<>();
+    collect(directory, "", result);
+    return result;
+  }
+
+  private static void collect(File directory, String prefix, Map<String, ByteString> result)
+      throws IOException {
+    File[] files = directory.listFiles();
+    if (files == null) throw new IOException("not a directory: " + directory);
+    for (File file : files) {
+      if (file.isDirectory()) {
+        collect(file, prefix + file.getName() + "/", result);
+      } else {
+        result.put(prefix + file.getName(), Okio.buffer(Okio.source(file)).readByteString());
+      }
+    }
+  }
+}
@@ -15,15 +15,645 @@
  */
 package com.squareup.osstrich;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Sink;
+import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import static com.squareup.osstrich.LocalGitRemote.git;
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 
 public final class JavadocPublisherTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  private final FakeMavenCentral mavenCentral = new FakeMavenCentral();
+  private LocalGitRemote remote;
+
+  @Before public void setUp() throws Exception {
+    server.setDispatcher(mavenCentral);
+    remote = LocalGitRemote.create(temporaryFolder.newFolder(), "index.html", "Hello");
+  }
+
   @Test public void majorVersion() throws Exception {
     assertThat(JavadocPublisher.majorVersion("2.5.0")).isEqualTo("2.x");
     assertThat(JavadocPublisher.majorVersion("2.5.0-SNAPSHOT")).isEqualTo("2.x");
     assertThat(JavadocPublisher.majorVersion("11.0.0")).isEqualTo("11.x");
     assertThat(JavadocPublisher.majorVersion("beta")).isEqualTo("beta");
   }
+
+  @Test public void parallelPublishMatchesSequentialPublish() throws Exception {
+    addArtifacts();
+
+    RecordingLog sequentialLog = new RecordingLog();
+    File sequential = temporaryFolder.newFolder("sequential");
+    assertThat(publisher(sequentialLog, sequential).build()
+        .publishLatest(remote.url(), "com.example")).isEqualTo(9);
+
+    RecordingLog parallelLog = new RecordingLog();
+    File parallel = temporaryFolder.newFolder("parallel");
+    assertThat(publisher(parallelLog, parallel).parallelism(4).build()
+        .publishLatest(remote.url(), "com.example")).isEqualTo(9);
+
+    assertThat(git(parallel, "write-tree")).isEqualTo(git(sequential, "write-tree"));
+    assertThat(parallelLog.first("DRY-RUN: git commit"))
+        .isEqualTo(sequentialLog.first("DRY-RUN: git commit"))
+        .contains("com.example:artifact-1:2.0.0\ncom.example:artifact-0:1.0.0");
+    // rm, clone, ls-tree to build the manifest, and a single add for 9 artifacts, 2 index files
+    // and the manifest.
+    assertThat(parallelLog.messages()).contains("Spawned 4 processes");
+    assertThat(git(parallel, "show", ":2.x/index.html"))
+        .contains("<a href=\"kotlin/kotlin/jvm\">kotlin</li>");
+  }
+
+  @Test public void indexListsArtifactsFromEarlierRuns() throws Exception {
+    // A branch published before the manifest: the index lists only the last run's artifacts.
+    remote.commit("Publish Javadoc",
+        "1.x/index.html", "<a href=\"artifact-1\">artifact-1</li>",
+        "1.x/artifact-0/version.txt", "1.0.0",
+        "1.x/artifact-0/index.html", "Artifact 0",
+        "1.x/artifact-1/version.txt", "1.0.0",
+        "1.x/artifact-1/artifact-1/index.html", "Artifact 1");
+    mavenCentral.add("com.example", "artifact-2", "1.0.0",
+        "index.html", "Artifact 2");
+
+    File directory = new File(temporaryFolder.getRoot(), "directory");
+    JavadocPublisher publisher = new JavadocPublisher.Builder(
+        new MavenCentral(server.url("/")), new Cli(), new RecordingLog(), directory).build();
+    assertThat(publisher.publishLatest(remote.url(), "com.example")).isEqualTo(1);
+    assertThat(git(remote.directory, "show", "gh-pages:1.x/index.html"))
+        .contains("<li><a href=\"artifact-0\">artifact-0</li>\n"
+            + "<li><a href=\"artifact-1/artifact-1\">artifact-1</li>\n"
+            + "<li><a href=\"artifact-2\">artifact-2</li>\n");
+
+    // The next run reads the manifest instead of each version.txt, and keeps every artifact.
+    mavenCentral.add("com.example", "artifact-0", "1.1.0",
+        "index.html", "Artifact 0");
+    RecordingLog log = new RecordingLog();
+    publisher = new JavadocPublisher.Builder(
+        new MavenCentral(server.url("/")), new Cli(), log, directory).build();
+    assertThat(publisher.publishLatest(remote.url(), "com.example")).isEqualTo(1);
+    assertThat(log.first("No osstrich.json")).isNull();
+    assertThat(git(remote.directory, "show", "gh-pages:1.x/index.html"))
+        .contains("<li><a href=\"artifact-0\">artifact-0</li>\n"
+            + "<li><a href=\"artifact-1/artifact-1\">artifact-1</li>\n"
+            + "<li><a href=\"artifact-2\">artifact-2</li>\n");
+    Manifest manifest = Manifest.read(new Buffer().writeUtf8(
+        git(remote.directory, "show", "gh-pages:osstrich.json")));
+    assertThat(manifest.get("1.x", "artifact-0").version).isEqualTo("1.1.0");
+    assertThat(manifest.get("1.x", "artifact-1").version).isEqualTo("1.0.0");
+    assertThat(manifest.get("1.x", "artifact-2").javadocRoot).isEqualTo("artifact-2");
+  }
+
+  @Test public void jgitPublishMatchesCliPublish() throws Exception {
+    remote.commit("Publish Javadoc",
+        "1.x/artifact-0/version.txt", "1.0.0-RC1",
+        "1.x/artifact-0/Removed.html", "Removed");
+    addArtifacts();
+    LocalGitRemote jgitRemote = remote.copy(temporaryFolder.newFolder());
+
+    File cli = new File(temporaryFolder.getRoot(), "cli");
+    new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), cli)
+        .incremental(true)
+        .build()
+        .publishLatest(remote.url(), "com.example");
+
+    RecordingLog jgitLog = new RecordingLog();
+    File jgit = new File(temporaryFolder.getRoot(), "jgit");
+    try (GitClient git = new JGitClient()) {
+      JavadocPublisher publisher = new JavadocPublisher.Builder(
+          new MavenCentral(server.url("/")), new Cli(), jgitLog, jgit)
+          .git(git)
+          .incremental(true)
+          .build();
+      assertThat(publisher.publishLatest(jgitRemote.url(), "com.example")).isEqualTo(9);
+      // Pulling reuses the open repository and finds nothing stale.
+      assertThat(publisher.publishLatest(jgitRemote.url(), "com.example")).isEqualTo(0);
+    }
+
+    assertThat(git(jgitRemote.directory, "rev-parse", "gh-pages^{tree}"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages^{tree}"));
+    assertThat(git(jgitRemote.directory, "log", "-1", "--format=%B", "gh-pages"))
+        .isEqualTo(git(remote.directory, "log", "-1", "--format=%B", "gh-pages"));
+    // Only rm, and ls-tree and grep to build the manifest, run in separate processes. The second
+    // publish reads the manifest and spawns nothing.
+    assertThat(jgitLog.messages()).contains("Spawned 3 processes", "Spawned 0 processes");
+  }
+
+  @Test public void spooledPublishMatchesStreamedPublish() throws Exception {
+    addArtifacts();
+
+    File streamed = temporaryFolder.newFolder("streamed");
+    publisher(new RecordingLog(), streamed).build().publishLatest(remote.url(), "com.example");
+
+    File spooled = temporaryFolder.newFolder("spooled");
+    publisher(new RecordingLog(), spooled).spool(true).parallelism(2).build()
+        .publishLatest(remote.url(), "com.example");
+
+    assertThat(git(spooled, "write-tree")).isEqualTo(git(streamed, "write-tree"));
+  }
+
+  @Test public void publishFromRemoteAndLocalRepositories() throws Exception {
+    addArtifacts();
+
+    File streamed = temporaryFolder.newFolder("streamed");
+    publisher(new RecordingLog(), streamed).build().publishLatest(remote.url(), "com.example");
+
+    // Serve the same artifacts from the repository layout, and copy them into a local repository.
+    File localRepository = temporaryFolder.newFolder("m2");
+    RemoteRepository remoteRepository = new RemoteRepository(server.url("/maven2/"));
+    List<Artifact> artifacts = remoteRepository.latestArtifacts("com.example",
+        asList("artifact-0", "artifact-1", "artifact-2", "artifact-3", "artifact-4",
+            "artifact-5", "artifact-6", "artifact-7", "kotlin"));
+    for (Artifact artifact : artifacts) {
+      File jar = new File(localRepository, MavenMetadata.javadocJarPath(artifact));
+      assertThat(jar.getParentFile().mkdirs()).isTrue();
+      try (BufferedSource source = remoteRepository.downloadJavadocJar(artifact);
+           Sink sink = Okio.sink(jar)) {
+        source.readAll(sink);
+      }
+    }
+
+    File remoteStreamed = new File(temporaryFolder.getRoot(), "remote");
+    new JavadocPublisher.Builder(remoteRepository, new Cli(), new RecordingLog(), remoteStreamed)
+        .dryRun(true)
+        .build()
+        .publish(remote.url(), "com.example", artifacts);
+
+    File localSpooled = new File(temporaryFolder.getRoot(), "local");
+    new JavadocPublisher.Builder(new LocalRepository(localRepository), new Cli(),
+        new RecordingLog(), localSpooled)
+        .dryRun(true)
+        .spool(true)
+        .build()
+        .publish(remote.url(), "com.example", artifacts);
+
+    assertThat(git(remoteStreamed, "write-tree")).isEqualTo(git(streamed, "write-tree"));
+    assertThat(git(localSpooled, "write-tree")).isEqualTo(git(streamed, "write-tree"));
+  }
+
+  @Test public void remoteRepositoryRequiresArtifactIds() throws Exception {
+    File directory = temporaryFolder.newFolder("remote");
+    JavadocPublisher publisher = new JavadocPublisher.Builder(
+        new RemoteRepository(server.url("/maven2/")), new Cli(), new RecordingLog(), directory)
+        .dryRun(true)
+        .build();
+    try {
+      publisher.publishLatest(remote.url(), "com.example");
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected).hasMessage(server.url("/maven2/")
+          + " can't be searched for the artifacts of com.example; list their artifact IDs instead");
+    }
+  }
+
+  @Test public void shallowPublishMatchesFullPublish() throws Exception {
+    remote.commit("Publish Javadoc",
+        "1.x/index.html", "Old index",
+        "1.x/artifact-0/version.txt", "1.0.0",
+        "1.x/artifact-0/index.html", "Old artifact",
+        "3.x/unrelated/index.html", "Unrelated");
+    mavenCentral.add("com.example", "artifact-0", "1.1.0",
+        "index.html", "Artifact 0",
+        "com/example/Artifact0.html", "Class 0");
+    mavenCentral.add("com.example", "artifact-1", "2.0.0",
+        "index.html", "Artifact 1");
+    LocalGitRemote shallowRemote = remote.copy(temporaryFolder.newFolder());
+
+    File full = new File(temporaryFolder.getRoot(), "full");
+    new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), full)
+        .build()
+        .publishLatest(remote.url(), "com.example");
+
+    File shallow = new File(temporaryFolder.getRoot(), "shallow");
+    new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), shallow)
+        .shallow(true)
+        .build()
+        .publishLatest(shallowRemote.url(), "com.example");
+
+    assertThat(git(shallowRemote.directory, "rev-parse", "gh-pages^{tree}"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages^{tree}"));
+    assertThat(git(shallowRemote.directory, "rev-parse", "gh-pages^"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages^"));
+
+    assertThat(git(shallow, "rev-parse", "--is-shallow-repository")).isEqualTo("true");
+    assertThat(new File(shallow, "1.x/index.html")).exists();
+    assertThat(new File(shallow, "3.x/unrelated")).doesNotExist();
+
+    // Publishing again fetches into the existing checkout and finds nothing stale.
+    assertThat(new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), shallow)
+        .shallow(true)
+        .build()
+        .publishLatest(shallowRemote.url(), "com.example")).isEqualTo(0);
+  }
+
+  @Test public void directPublishMatchesIncrementalPublish() throws Exception {
+    remote.commit("Publish Javadoc",
+        "1.x/index.html", "Old index",
+        "1.x/artifact-0/version.txt", "1.0.0-RC1",
+        "1.x/artifact-0/index.html", "Old artifact",
+        "1.x/artifact-0/com/example/Removed.html", "Removed",
+        "3.x/unrelated/index.html", "Unrelated");
+    addArtifacts();
+    LocalGitRemote directRemote = remote.copy(temporaryFolder.newFolder());
+    LocalGitRemote shallowDirectRemote = remote.copy(temporaryFolder.newFolder());
+
+    File incremental = new File(temporaryFolder.getRoot(), "incremental");
+    new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), incremental)
+        .incremental(true)
+        .build()
+        .publishLatest(remote.url(), "com.example");
+
+    File direct = new File(temporaryFolder.getRoot(), "direct");
+    assertThat(new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), direct)
+        .direct(true)
+        .parallelism(4)
+        .build()
+        .publishLatest(directRemote.url(), "com.example")).isEqualTo(9);
+
+    File shallowDirect = new File(temporaryFolder.getRoot(), "shallow-direct");
+    new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), shallowDirect)
+        .direct(true)
+        .shallow(true)
+        .build()
+        .publishLatest(shallowDirectRemote.url(), "com.example");
+
+    String tree = git(remote.directory, "rev-parse", "gh-pages^{tree}");
+    assertThat(git(directRemote.directory, "rev-parse", "gh-pages^{tree}")).isEqualTo(tree);
+    assertThat(git(shallowDirectRemote.directory, "rev-parse", "gh-pages^{tree}"))
+        .isEqualTo(tree);
+    assertThat(git(directRemote.directory, "rev-parse", "gh-pages^"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages^"));
+    assertThat(git(directRemote.directory, "log", "-1", "--format=%B", "gh-pages"))
+        .isEqualTo(git(remote.directory, "log", "-1", "--format=%B", "gh-pages"));
+    assertThat(git(direct, "rev-parse", "--is-bare-repository")).isEqualTo("true");
+    assertThat(git(remote.directory, "ls-tree", "-r", "--name-only", "gh-pages", "1.x/artifact-0"))
+        .doesNotContain("Removed.html");
+
+    // Publishing again fetches into the existing repository and finds nothing stale.
+    RecordingLog log = new RecordingLog();
+    assertThat(new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        log, direct)
+        .direct(true)
+        .build()
+        .publishLatest(directRemote.url(), "com.example")).isEqualTo(0);
+    assertThat(log.messages())
+        .contains("Skipping com.example:kotlin:2.1.0, artifact is up to date on gh-pages");
+  }
+
+  @Test public void checkRemoteSkipsCheckoutWhenUpToDate() throws Exception {
+    remote.commit("Publish Javadoc",
+        "1.x/artifact-0/version.txt", "1.0.0",
+        "1.x/artifact-0/index.html", "Artifact 0");
+    mavenCentral.add("com.example", "artifact-0", "1.0.0",
+        "index.html", "Artifact 0");
+    mavenCentral.addWithoutJavadoc("com.example", "no-javadoc", "1.0.0");
+
+    RecordingLog upToDateLog = new RecordingLog();
+    File upToDate = temporaryFolder.newFolder("up-to-date");
+    assertThat(publisher(upToDateLog, upToDate).checkRemote(true).build()
+        .publishLatest(remote.url(), "com.example")).isEqualTo(0);
+    assertThat(upToDate).doesNotExist();
+    assertThat(upToDateLog.messages())
+        .contains("Skipping com.example:artifact-0:1.0.0, artifact is up to date on "
+            + remote.url())
+        .contains("All artifacts are up to date on " + remote.url() + "; skipping checkout");
+
+    // A new artifact is published, but the up-to-date one isn't downloaded again.
+    mavenCentral.add("com.example", "artifact-1", "1.0.0",
+        "index.html", "Artifact 1");
+    RecordingLog staleLog = new RecordingLog();
+    File stale = temporaryFolder.newFolder("stale");
+    assertThat(publisher(staleLog, stale).checkRemote(true).build()
+        .publishLatest(remote.url(), "com.example")).isEqualTo(1);
+    assertThat(staleLog.first("DRY-RUN: git commit"))
+        .endsWith("Artifacts published:\ncom.example:artifact-1:1.0.0");
+    assertThat(git(stale, "show", ":1.x/artifact-0/index.html")).isEqualTo("Artifact 0");
+  }
+
+  @Test public void metricsRecordPhasesAndArtifacts() throws Exception {
+    mavenCentral.add("com.example", "artifact-0", "1.0.0",
+        "index.html", "Artifact 0",
+        "package-list", "com.example");
+
+    File directory = new File(temporaryFolder.getRoot(), "directory");
+    JavadocPublisher publisher = new JavadocPublisher.Builder(
+        new MavenCentral(server.url("/")), new Cli(), new RecordingLog(), directory).build();
+    assertThat(publisher.publishLatest(remote.url(), "com.example")).isEqualTo(1);
+
+    PublishMetrics metrics = publisher.metrics();
+    assertThat(metrics.phaseMillis().keySet()).containsExactly(
+        "search", "checkout", "stale check", "fetch", "index", "add", "commit", "push");
+    // rm, clone, ls-tree to build the manifest, add, commit, and push.
+    assertThat(metrics.processCount()).isEqualTo(6);
+    assertThat(metrics.artifacts()).hasSize(1);
+    PublishMetrics.ArtifactMetrics artifact = metrics.artifacts().get(0);
+    assertThat(artifact.artifact()).isEqualTo("com.example:artifact-0:1.0.0");
+    assertThat(artifact.bytesDownloaded()).isGreaterThan(0L);
+    assertThat(artifact.entriesExtracted()).isEqualTo(2L);
+    assertThat(artifact.bytesExtracted()).isEqualTo(21L);
+    assertThat(metrics.summary())
+        .contains("com.example:artifact-0:1.0.0")
+        .contains("Processes spawned");
+
+    File json = temporaryFolder.newFile("metrics.json");
+    metrics.writeJson(json);
+    assertThat(Okio.buffer(Okio.source(json)).readUtf8())
+        .contains("\"processCount\": 6")
+        .contains("\"artifact\": \"com.example:artifact-0:1.0.0\"")
+        .contains("\"bytesExtracted\": 21");
+  }
+
+  @Test public void metricsDoNotCountCachedJarsAsDownloaded() throws Exception {
+    mavenCentral.add("com.example", "artifact-0", "1.0.0",
+        "index.html", "Artifact 0");
+    JavadocCache cache = new JavadocCache(
+        temporaryFolder.newFolder("cache"), JavadocCache.DEFAULT_MAX_SIZE, false);
+
+    JavadocPublisher cold = new JavadocPublisher.Builder(new MavenCentral(server.url("/"), cache),
+        new Cli(), new RecordingLog(), new File(temporaryFolder.getRoot(), "cold")).build();
+    assertThat(cold.publishLatest(remote.url(), "com.example")).isEqualTo(1);
+    assertThat(cold.metrics().bytesDownloaded()).isGreaterThan(0L);
+
+    // The first run pushed, so force the second one to fetch the jar again.
+    JavadocPublisher warm = new JavadocPublisher.Builder(new MavenCentral(server.url("/"), cache),
+        new Cli(), new RecordingLog(), new File(temporaryFolder.getRoot(), "warm"))
+        .force(true)
+        .build();
+    assertThat(warm.publishLatest(remote.url(), "com.example")).isEqualTo(1);
+    assertThat(cache.hitCount()).isEqualTo(1);
+    assertThat(warm.metrics().bytesDownloaded()).isEqualTo(0L);
+    assertThat(warm.metrics().bytesExtracted())
+        .isEqualTo(cold.metrics().bytesExtracted());
+  }
+
+  @Test public void compactKeepsOnlyRecentHistory() throws Exception {
+    remote.commit("Publish Javadoc", "1.x/artifact-0/index.html", "Old artifact");
+    remote.commit("Publish Javadoc", "3.x/unrelated/index.html", "Unrelated");
+    addArtifacts();
+    LocalGitRemote directRemote = remote.copy(temporaryFolder.newFolder());
+
+    RecordingLog log = new RecordingLog();
+    File directory = new File(temporaryFolder.getRoot(), "directory");
+    JavadocPublisher publisher = new JavadocPublisher.Builder(
+        new MavenCentral(server.url("/")), new Cli(), log, directory)
+        .compact(2)
+        .build();
+    assertThat(publisher.publishLatest(remote.url(), "com.example")).isEqualTo(9);
+
+    assertThat(git(remote.directory, "rev-list", "--count", "gh-pages")).isEqualTo("2");
+    assertThat(git(remote.directory, "show", "gh-pages:3.x/unrelated/index.html"))
+        .isEqualTo("Unrelated");
+    assertThat(git(remote.directory, "show", "gh-pages:1.x/artifact-0/index.html"))
+        .isEqualTo("Artifact 0");
+    assertThat(git(directory, "rev-parse", "gh-pages")).isEqualTo(
+        git(remote.directory, "rev-parse", "gh-pages"));
+    assertThat(log.first("Compacted gh-pages to 2 commits"))
+        .matches("Compacted gh-pages to 2 commits\\. Repository was \\d+ objects, .+, "
+            + "is now \\d+ objects, .+");
+    assertThat(publisher.metrics().phaseMillis()).containsKey("compact");
+
+    // Direct mode compacts the bare repository to the same tree.
+    new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), new File(temporaryFolder.getRoot(), "direct"))
+        .direct(true)
+        .compact(1)
+        .build()
+        .publishLatest(directRemote.url(), "com.example");
+    assertThat(git(directRemote.directory, "rev-list", "--count", "gh-pages")).isEqualTo("1");
+    assertThat(git(directRemote.directory, "rev-parse", "gh-pages^{tree}"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages^{tree}"));
+  }
+
+  @Test public void compactShallowCheckoutKeepsRemoteHistory() throws Exception {
+    for (int i = 1; i <= 4; i++) {
+      remote.commit("Publish " + i, i + ".x/artifact/index.html", "Artifact " + i);
+    }
+    addArtifacts();
+    LocalGitRemote directRemote = remote.copy(temporaryFolder.newFolder());
+
+    // A depth 1 checkout has only the fetched commit; the other 2 to keep are fetched first.
+    RecordingLog log = new RecordingLog();
+    new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(), log,
+        new File(temporaryFolder.getRoot(), "shallow"))
+        .shallow(true)
+        .compact(3)
+        .build()
+        .publishLatest(remote.url(), "com.example");
+    assertThat(git(remote.directory, "log", "--format=%s", "gh-pages"))
+        .isEqualTo("Publish Javadoc\nPublish 4\nPublish 3");
+    assertThat(log.first("Compacted gh-pages")).startsWith("Compacted gh-pages to 3 commits.");
+
+    new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), new File(temporaryFolder.getRoot(), "direct"))
+        .direct(true)
+        .shallow(true)
+        .compact(3)
+        .build()
+        .publishLatest(directRemote.url(), "com.example");
+    assertThat(git(directRemote.directory, "log", "--format=%s", "gh-pages"))
+        .isEqualTo("Publish Javadoc\nPublish 4\nPublish 3");
+    assertThat(git(directRemote.directory, "rev-parse", "gh-pages^{tree}"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages^{tree}"));
+  }
+
+  @Test public void searchIndexCoversEveryArtifact() throws Exception {
+    mavenCentral.add("com.example", "artifact-0", "1.0.0",
+        "index.html", "Artifact 0",
+        "com/example/package-summary.html", "Package",
+        "com/example/Apple.html", "Apple",
+        "member-search-index.js",
+        "memberSearchIndex = [{\"p\":\"com.example\",\"c\":\"Apple\",\"l\":\"peel()\"}];");
+    LocalGitRemote directRemote = remote.copy(temporaryFolder.newFolder());
+
+    File direct = new File(temporaryFolder.getRoot(), "direct");
+    assertThat(new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), new File(temporaryFolder.getRoot(), "first"))
+        .searchIndex(true)
+        .build()
+        .publishLatest(remote.url(), "com.example")).isEqualTo(1);
+    assertThat(new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), direct)
+        .searchIndex(true)
+        .direct(true)
+        .build()
+        .publishLatest(directRemote.url(), "com.example")).isEqualTo(1);
+
+    assertThat(git(remote.directory, "show", "gh-pages:1.x/search-index/a.json")).isEqualTo(
+        "[[\"Apple\",\"t\",\"com.example\",\"artifact-0/com/example/Apple.html\"]]");
+    assertThat(git(remote.directory, "show", "gh-pages:1.x/search-index/p.json")).isEqualTo(
+        "[[\"peel()\",\"m\",\"com.example.Apple\",\"artifact-0/com/example/Apple.html#peel()\"]]");
+    assertThat(git(remote.directory, "show", "gh-pages:1.x/index.html"))
+        .contains("<input id=\"search\"")
+        .contains("search-index/");
+    assertThat(git(directRemote.directory, "rev-parse", "gh-pages^{tree}"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages^{tree}"));
+
+    // A later run reads back the entries of artifacts it doesn't publish.
+    mavenCentral.add("com.example", "artifact-1", "1.0.0",
+        "index.html", "Artifact 1",
+        "com/example/Avocado.html", "Avocado");
+    RecordingLog log = new RecordingLog();
+    assertThat(new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        log, new File(temporaryFolder.getRoot(), "second"))
+        .searchIndex(true)
+        .build()
+        .publishLatest(remote.url(), "com.example")).isEqualTo(1);
+    assertThat(new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), direct)
+        .searchIndex(true)
+        .direct(true)
+        .build()
+        .publishLatest(directRemote.url(), "com.example")).isEqualTo(1);
+
+    assertThat(git(remote.directory, "show", "gh-pages:1.x/search-index/a.json")).isEqualTo("["
+        + "[\"Apple\",\"t\",\"com.example\",\"artifact-0/com/example/Apple.html\"],"
+        + "[\"Avocado\",\"t\",\"com.example\",\"artifact-1/com/example/Avocado.html\"]]");
+    assertThat(log.messages()).contains("Indexed 1.x for search: 4 entries");
+    assertThat(git(directRemote.directory, "rev-parse", "gh-pages^{tree}"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages^{tree}"));
+  }
+
+  @Test public void shareAssetsStoresEachSetOnce() throws Exception {
+    for (int i = 0; i < 2; i++) {
+      addArtifactWithAssets("artifact-" + i, "1.0.0", "body {}");
+    }
+    LocalGitRemote directRemote = remote.copy(temporaryFolder.newFolder());
+
+    RecordingLog log = new RecordingLog();
+    File directory = new File(temporaryFolder.getRoot(), "directory");
+    JavadocPublisher publisher = new JavadocPublisher.Builder(
+        new MavenCentral(server.url("/")), new Cli(), log, directory)
+        .shareAssets(true)
+        .build();
+    assertThat(publisher.publishLatest(remote.url(), "com.example")).isEqualTo(2);
+    File direct = new File(temporaryFolder.getRoot(), "direct");
+    new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), direct)
+        .shareAssets(true)
+        .direct(true)
+        .build()
+        .publishLatest(directRemote.url(), "com.example");
+
+    String hash = git(remote.directory, "ls-tree", "--name-only", "gh-pages", "_assets/")
+        .substring("_assets/".length());
+    assertThat(git(remote.directory, "ls-tree", "-r", "--name-only", "gh-pages", "_assets/"))
+        .isEqualTo("_assets/" + hash + "/resources/x.png\n"
+            + "_assets/" + hash + "/stylesheet.css");
+    assertThat(git(remote.directory, "ls-tree", "-r", "--name-only", "gh-pages", "1.x/artifact-0"))
+        .isEqualTo("1.x/artifact-0/com/example/Foo.html\n"
+            + "1.x/artifact-0/index.html\n"
+            + "1.x/artifact-0/version.txt");
+    assertThat(git(remote.directory, "show", "gh-pages:1.x/artifact-1/com/example/Foo.html"))
+        .isEqualTo("<link href=\"../../../../_assets/" + hash + "/stylesheet.css\">");
+    assertThat(git(remote.directory, "show", "gh-pages:.nojekyll")).isEmpty();
+    assertThat(log.messages()).contains("Shared assets saved 2 files, 8 B");
+    assertThat(publisher.metrics().assetFilesShared()).isEqualTo(2L);
+    assertThat(git(directRemote.directory, "rev-parse", "gh-pages^{tree}"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages^{tree}"));
+
+    // Once no artifact refers to a set of assets, it's deleted.
+    for (int i = 0; i < 2; i++) {
+      addArtifactWithAssets("artifact-" + i, "1.1.0", "body { color: red }");
+    }
+    RecordingLog updateLog = new RecordingLog();
+    assertThat(new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        updateLog, directory)
+        .shareAssets(true)
+        .incremental(true)
+        .build()
+        .publishLatest(remote.url(), "com.example")).isEqualTo(2);
+    new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), direct)
+        .shareAssets(true)
+        .direct(true)
+        .build()
+        .publishLatest(directRemote.url(), "com.example");
+
+    assertThat(updateLog.messages()).contains("Deleting unused assets _assets/" + hash);
+    String newHash = git(remote.directory, "ls-tree", "--name-only", "gh-pages", "_assets/")
+        .substring("_assets/".length());
+    assertThat(newHash).isNotEqualTo(hash);
+    assertThat(git(directRemote.directory, "rev-parse", "gh-pages^{tree}"))
+        .isEqualTo(git(remote.directory, "rev-parse", "gh-pages^{tree}"));
+  }
+
+  @Test public void parallelShareAssetsStagesEverySet() throws Exception {
+    for (int i = 0; i < 8; i++) {
+      addArtifactWithAssets("artifact-" + i, "1.0.0", "body { z-index: " + i % 4 + " }");
+    }
+
+    File directory = new File(temporaryFolder.getRoot(), "directory");
+    assertThat(new JavadocPublisher.Builder(new MavenCentral(server.url("/")), new Cli(),
+        new RecordingLog(), directory)
+        .shareAssets(true)
+        .parallelism(8)
+        .build()
+        .publishLatest(remote.url(), "com.example")).isEqualTo(8);
+
+    // Four distinct stylesheets make four asset directories, each with two files.
+    String assets = git(remote.directory, "ls-tree", "-r", "--name-only", "gh-pages", "_assets/");
+    assertThat(assets.split("\n")).hasSize(8);
+    Manifest manifest = Manifest.read(new Buffer().writeUtf8(
+        git(remote.directory, "show", "gh-pages:" + Manifest.PATH)));
+    assertThat(manifest.artifacts).hasSize(8);
+    for (Manifest.Entry entry : manifest.artifacts) {
+      assertThat(assets).contains("_assets/" + entry.assets + "/stylesheet.css");
+    }
+    assertThat(git(directory, "status", "--porcelain")).isEmpty();
+  }
+
+  @Test public void blobHash() throws Exception {
+    assertThat(JavadocPublisher.blobHash(""))
+        .isEqualTo("e69de29bb2d1d6434b8b29ae775ad8c2e48c5391");
+    assertThat(JavadocPublisher.blobHash("hello\n"))
+        .isEqualTo("ce013625030ba8dba906f756967f9e9ca394464a");
+  }
+
+  private void addArtifactWithAssets(String artifactId, String version, String stylesheet)
+      throws IOException {
+    mavenCentral.add("com.example", artifactId, version,
+        "index.html", "<link href=\"stylesheet.css\">",
+        "com/example/Foo.html", "<link href=\"../../stylesheet.css\">",
+        "stylesheet.css", stylesheet,
+        "resources/x.png", "x");
+  }
+
+  private void addArtifacts() throws IOException {
+    for (int i = 0; i < 8; i++) {
+      mavenCentral.add("com.example", "artifact-" + i, (i % 2 + 1) + ".0.0",
+          "index.html", "Artifact " + i,
+          "com/example/Artifact" + i + ".html", "Class " + i,
+          "stylesheet.css", "body {}");
+    }
+    mavenCentral.add("com.example", "kotlin", "2.1.0",
+        "kotlin/jvm/index.html", "Kotlin",
+        "kotlin/jvm/com/example/Kotlin.html", "Class");
+  }
+
+  private JavadocPublisher.Builder publisher(RecordingLog log, File directory)
+      throws IOException {
+    // Delete the directory so that the publisher clones into it.
+    if (!directory.delete()) throw new IOException("failed to delete " + directory);
+    return new JavadocPublisher.Builder(
+        new MavenCentral(server.url("/")), new Cli(), log, directory)
+        .dryRun(true);
+  }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import com.google.common.base.Ticker;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Okio;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.squareup.osstrich.LocalGitRemote.git;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class JavadocWatcherTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  private final FakeMavenCentral mavenCentral = new FakeMavenCentral();
+  private final FakeTicker ticker = new FakeTicker();
+  private LocalGitRemote remote;
+  private JavadocPublisher publisher;
+  private File metricsFile;
+  private JavadocWatcher watcher;
+
+  @Before public void setUp() throws Exception {
+    server.setDispatcher(mavenCentral);
+    remote = LocalGitRemote.create(temporaryFolder.newFolder(), "index.html", "Hello");
+    mavenCentral.add("com.example", "artifact-0", "1.0.0", "index.html", "Artifact 0 1.0.0");
+
+    File directory = new File(temporaryFolder.getRoot(), "directory");
+    metricsFile = new File(temporaryFolder.getRoot(), "metrics.json");
+    publisher = new JavadocPublisher.Builder(
+        new MavenCentral(server.url("/")), new Cli(), new RecordingLog(), directory).build();
+    // Poll every minute while releases arrive, backing off to every 8 minutes.
+    watcher = new JavadocWatcher(publisher, remote.url(), "com.example", null, metricsFile,
+        ticker, 1, 8, 2, MINUTES);
+  }
+
+  @Test public void firstPollPublishesImmediately() throws Exception {
+    assertThat(watcher.poll()).isEqualTo(MINUTES.toNanos(1));
+    assertThat(git(remote.directory, "show", "gh-pages:1.x/artifact-0/index.html"))
+        .isEqualTo("Artifact 0 1.0.0");
+  }
+
+  @Test public void backsOffWhileNothingIsReleased() throws Exception {
+    watcher.poll();
+    String head = git(remote.directory, "rev-parse", "gh-pages");
+
+    assertThat(pollAfter(1)).isEqualTo(MINUTES.toNanos(1));
+    assertThat(pollAfter(1)).isEqualTo(MINUTES.toNanos(2));
+    assertThat(pollAfter(2)).isEqualTo(MINUTES.toNanos(4));
+    assertThat(pollAfter(4)).isEqualTo(MINUTES.toNanos(8));
+    assertThat(pollAfter(8)).isEqualTo(MINUTES.toNanos(8));
+    assertThat(git(remote.directory, "rev-parse", "gh-pages")).isEqualTo(head);
+
+    // A release resets the interval.
+    mavenCentral.add("com.example", "artifact-0", "1.1.0", "index.html", "Artifact 0 1.1.0");
+    assertThat(pollAfter(8)).isEqualTo(MINUTES.toNanos(2));
+  }
+
+  @Test public void releasesThatLandTogetherShareACommit() throws Exception {
+    watcher.poll();
+    String head = git(remote.directory, "rev-parse", "gh-pages");
+
+    // Each release waits for two quiet minutes.
+    mavenCentral.add("com.example", "artifact-0", "1.1.0", "index.html", "Artifact 0 1.1.0");
+    assertThat(pollAfter(1)).isEqualTo(MINUTES.toNanos(2));
+    mavenCentral.add("com.example", "artifact-1", "1.0.0", "index.html", "Artifact 1 1.0.0");
+    assertThat(pollAfter(1)).isEqualTo(MINUTES.toNanos(2));
+    assertThat(pollAfter(1)).isEqualTo(MINUTES.toNanos(1));
+    assertThat(git(remote.directory, "rev-parse", "gh-pages")).isEqualTo(head);
+
+    assertThat(pollAfter(1)).isEqualTo(MINUTES.toNanos(1));
+    assertThat(git(remote.directory, "rev-list", "--count", head + "..gh-pages")).isEqualTo("1");
+    assertThat(git(remote.directory, "log", "-1", "--format=%B", "gh-pages"))
+        .contains("com.example:artifact-0:1.1.0")
+        .contains("com.example:artifact-1:1.0.0");
+    assertThat(git(remote.directory, "show", "gh-pages:1.x/artifact-0/index.html"))
+        .isEqualTo("Artifact 0 1.1.0");
+  }
+
+  @Test public void steadyReleasesArePublishedAfterTheMaximumInterval() throws Exception {
+    watcher.poll();
+    String head = git(remote.directory, "rev-parse", "gh-pages");
+
+    // A new release every minute, starting 1 minute in.
+    for (int i = 1; i <= 8; i++) {
+      mavenCentral.add("com.example", "artifact-0", "1." + i + ".0", "index.html", "Artifact 0");
+      pollAfter(1);
+    }
+    assertThat(git(remote.directory, "rev-parse", "gh-pages")).isEqualTo(head);
+
+    // 8 minutes after the first release, the latest is published.
+    mavenCentral.add("com.example", "artifact-0", "1.9.0", "index.html", "Artifact 0");
+    pollAfter(1);
+    assertThat(git(remote.directory, "log", "-1", "--format=%B", "gh-pages"))
+        .contains("com.example:artifact-0:1.9.0");
+  }
+
+  @Test public void uncheckedFailuresBackOff() throws Exception {
+    // Not a list of artifacts, so reading the manifest throws an unchecked exception.
+    remote.commit("Publish Javadoc", "osstrich.json", "{\"artifacts\": 5}");
+
+    assertThat(watcher.poll()).isEqualTo(MINUTES.toNanos(1));
+    assertThat(pollAfter(1)).isEqualTo(MINUTES.toNanos(2));
+    assertThat(git(remote.directory, "show", "gh-pages:osstrich.json"))
+        .isEqualTo("{\"artifacts\": 5}");
+  }
+
+  @Test public void metricsAreWrittenAndRetiredAfterEachPublish() throws Exception {
+    watcher.poll();
+    assertThat(Okio.buffer(Okio.source(metricsFile)).readUtf8())
+        .contains("\"artifact\": \"com.example:artifact-0:1.0.0\"");
+    assertThat(publisher.metrics().artifacts()).isEmpty();
+    long bytesExtracted = publisher.metrics().bytesExtracted();
+    assertThat(bytesExtracted).isGreaterThan(0L);
+
+    mavenCentral.add("com.example", "artifact-0", "1.1.0", "index.html", "Artifact 0 1.1.0");
+    pollAfter(1);
+    pollAfter(2);
+    assertThat(Okio.buffer(Okio.source(metricsFile)).readUtf8())
+        .contains("\"artifact\": \"com.example:artifact-0:1.1.0\"")
+        .doesNotContain("com.example:artifact-0:1.0.0");
+    assertThat(publisher.metrics().bytesExtracted()).isGreaterThan(bytesExtracted);
+  }
+
+  private long pollAfter(long minutes) {
+    ticker.advance(minutes, MINUTES);
+    return watcher.poll();
+  }
+
+  static final class FakeTicker extends Ticker {
+    private long nanos;
+
+    void advance(long duration, TimeUnit unit) {
+      nanos += unit.toNanos(duration);
+    }
+
+    @Override public long read() {
+      return nanos;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/** A bare git repository with a {@code gh-pages} branch, standing in for GitHub. */
+final class LocalGitRemote {
+  final File directory;
+  private final File seed;
+
+  private LocalGitRemote(File directory, File seed) {
+    this.directory = directory;
+    this.seed = seed;
+  }
+
+  /**
+   * Creates a bare repository in {@code directory} whose {@code gh-pages} branch contains
+   * alternating paths and UTF-8 file contents.
+   */
+  static LocalGitRemote create(File directory, String... pathsAndContents) throws IOException {
+    File bare = new File(directory, "remote.git");
+    File seed = new File(directory, "seed");
+    git(directory, "init", "--bare", bare.getAbsolutePath());
+    git(directory, "init", seed.getAbsolutePath());
+    git(seed, "checkout", "-b", "gh-pages");
+    LocalGitRemote result = new LocalGitRemote(bare, seed);
+    result.commit("Initial commit", pathsAndContents);
+    return result;
+  }
+
+  /** Commits and pushes alternating paths and UTF-8 file contents to {@code gh-pages}. */
+  void commit(String message, String... pathsAndContents) throws IOException {
+    for (int i = 0; i < pathsAndContents.length; i += 2) {
+      File file = new File(seed, pathsAndContents[i]);
+      if (!file.getParentFile().mkdirs() && !file.getParentFile().isDirectory()) {
+        throw new IOException("failed to mkdirs for " + file);
+      }
+      try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+        sink.writeUtf8(pathsAndContents[i + 1]);
+      }
+    }
+    git(seed, "add", "--all");
+    git(seed, "commit", "--allow-empty", "-m", message);
+    git(seed, "push", directory.getAbsolutePath(), "gh-pages");
+  }
+
+  /** Returns a bare copy of this repository in {@code directory}. */
+  LocalGitRemote copy(File directory) throws IOException {
+    File bare = new File(directory, "remote.git");
+    git(directory, "clone", "--mirror", this.directory.getAbsolutePath(), bare.getAbsolutePath());
+    return new LocalGitRemote(bare, seed);
+  }
+
+  String url() {
+    return "file://" + directory.getAbsolutePath();
+  }
+
+  /** Runs git with a fixed identity and returns its trimmed standard output. */
+  static String git(File directory, String... args) throws IOException {
+    List<String> command = new ArrayList<>();
+    command.addAll(Arrays.asList("git",
+        "-c", "user.name=Osstrich Test", "-c", "user.email=osstrich@example.com"));
+    command.addAll(Arrays.asList(args));
+
+    Process process = new ProcessBuilder(command)
+        .directory(directory)
+        .redirectErrorStream(true)
+        .start();
+    String output;
+    try (BufferedSource source = Okio.buffer(Okio.source(process.getInputStream()))) {
+      output = source.readUtf8().trim();
+    }
+    try {
+      if (!process.waitFor(30, TimeUnit.SECONDS) || process.exitValue() != 0) {
+        throw new IOException("Failed to execute " + command + ":\n" + output);
+      }
+    } catch (InterruptedException e) {
+      throw new IOException(e);
+    }
+    return output;
+  }
+}
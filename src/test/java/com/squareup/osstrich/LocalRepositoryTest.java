@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.util.List;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class LocalRepositoryTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test public void latestArtifactsAndJavadoc() throws Exception {
+    File directory = temporaryFolder.newFolder();
+    write(directory, "com/example/installed/maven-metadata-local.xml", ""
+        + "<metadata><versioning><versions>"
+        + "<version>1.0.0</version><version>1.1.0</version>"
+        + "</versions></versioning></metadata>");
+    write(directory, "com/example/installed/1.1.0/installed-1.1.0-javadoc.jar", "jar");
+    write(directory, "com/example/mirrored/maven-metadata.xml", ""
+        + "<metadata><versioning><release>2.0.0</release></versioning></metadata>");
+    write(directory, "com/example/no-metadata/1.0.0/no-metadata-1.0.0.jar", "jar");
+
+    LocalRepository repository = new LocalRepository(directory);
+    List<Artifact> artifacts = repository.latestArtifacts("com.example");
+    assertThat(artifacts).hasSize(2);
+    assertThat(artifacts.get(0).toString()).isEqualTo("com.example:installed:1.1.0");
+    assertThat(artifacts.get(0).hasJavadoc()).isTrue();
+    assertThat(artifacts.get(1).toString()).isEqualTo("com.example:mirrored:2.0.0");
+    assertThat(artifacts.get(1).hasJavadoc()).isFalse();
+
+    assertThat(repository.javadocJarFile(artifacts.get(0)))
+        .isEqualTo(new File(directory, "com/example/installed/1.1.0/installed-1.1.0-javadoc.jar"));
+    try (BufferedSource source = repository.downloadJavadocJar(artifacts.get(0))) {
+      assertThat(source.readUtf8()).isEqualTo("jar");
+    }
+  }
+
+  private static void write(File directory, String path, String content) throws Exception {
+    File file = new File(directory, path);
+    assertThat(file.getParentFile().mkdirs() || file.getParentFile().isDirectory()).isTrue();
+    try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+      sink.writeUtf8(content);
+    }
+  }
+}
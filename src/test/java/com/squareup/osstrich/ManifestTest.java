@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import okio.Buffer;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ManifestTest {
+  @Test public void fromTree() throws Exception {
+    List<String> paths = Arrays.asList(
+        "index.html",
+        "1.x/index.html",
+        "1.x/okio/version.txt",
+        "1.x/okio/index.html",
+        "2.x/moshi/version.txt",
+        "2.x/moshi/moshi/index.html",
+        "3.x/okio/version.txt",
+        "3.x/okio/okio/jvm/index.html",
+        "3.x/broken/version.txt",
+        "3.x/broken/readme.txt");
+    Map<String, String> versions = new LinkedHashMap<>();
+    versions.put("1.x/okio/version.txt", "1.17.2");
+    versions.put("2.x/moshi/version.txt", "2.0.0\n");
+    versions.put("3.x/okio/version.txt", "3.0.0");
+    versions.put("3.x/broken/version.txt", "3.1.0");
+
+    Manifest manifest = Manifest.fromTree("com.example", paths, versions);
+    assertThat(manifest.majorVersions()).containsExactly("1.x", "2.x", "3.x");
+    assertThat(manifest.get("1.x", "okio").javadocRoot).isEqualTo("okio");
+    assertThat(manifest.get("2.x", "moshi").version).isEqualTo("2.0.0");
+    assertThat(manifest.get("2.x", "moshi").javadocRoot).isEqualTo("moshi/moshi");
+    assertThat(manifest.get("3.x", "okio").javadocRoot).isEqualTo("okio/okio/jvm");
+    assertThat(manifest.get("3.x", "broken").javadocRoot).isNull();
+    assertThat(manifest.get("4.x", "okio")).isNull();
+  }
+
+  @Test public void rootPath() throws Exception {
+    assertThat(Manifest.rootPath("index.html")).isEqualTo("index.html");
+    assertThat(Manifest.rootPath("1.x/index.html")).isEqualTo("1.x/index.html");
+    assertThat(Manifest.rootPath("1.x/okio/version.txt")).isEqualTo("1.x/okio/version.txt");
+    assertThat(Manifest.rootPath("1.x/okio/okio/Buffer.html"))
+        .isEqualTo("1.x/okio/okio/Buffer.html");
+    assertThat(Manifest.rootPath("1.x/okio/com/squareup/okio/Buffer.html"))
+        .isEqualTo("1.x/okio/com");
+    assertThat(Manifest.rootPath("3.x/okio/okio/jvm/okio/Buffer.html"))
+        .isEqualTo("3.x/okio/okio/jvm/okio/Buffer.html");
+    assertThat(Manifest.rootPath("3.x/okio/okio/jvm/index.html"))
+        .isEqualTo("3.x/okio/okio/jvm/index.html");
+    assertThat(Manifest.rootPath("3.x/okio/okio/jvm/okio.html"))
+        .isEqualTo("3.x/okio/okio/jvm/okio.html");
+  }
+
+  @Test public void putReplacesDirectory() throws Exception {
+    Manifest manifest = Manifest.create("com.example");
+    manifest.put(Manifest.Entry.create("okio", "1.0.0", "okio"));
+    manifest.put(Manifest.Entry.create("moshi", "1.0.0", "moshi"));
+    manifest.put(Manifest.Entry.create("okio", "1.1.0", "okio/okio"));
+    manifest.put(Manifest.Entry.create("okio", "2.0.0", "okio"));
+
+    assertThat(manifest.entries("1.x")).hasSize(2);
+    assertThat(manifest.entries("1.x").get(0).artifactId).isEqualTo("moshi");
+    assertThat(manifest.get("1.x", "okio").version).isEqualTo("1.1.0");
+    assertThat(manifest.get("2.x", "okio").version).isEqualTo("2.0.0");
+  }
+
+  @Test public void writeIsSortedAndRoundTrips() throws Exception {
+    Manifest manifest = Manifest.create("com.example");
+    manifest.put(Manifest.Entry.create("okio", "2.0.0", "okio"));
+    manifest.put(Manifest.Entry.create("okio", "1.0.0", "okio"));
+    manifest.put(Manifest.Entry.create("moshi", "1.0.0", null));
+
+    Buffer buffer = new Buffer();
+    manifest.write(buffer);
+    String json = buffer.clone().readUtf8();
+    assertThat(json.indexOf("\"moshi\"")).isLessThan(json.indexOf("\"okio\""));
+    assertThat(json.indexOf("\"1.0.0\"")).isLessThan(json.indexOf("\"2.0.0\""));
+
+    Manifest read = Manifest.read(buffer);
+    assertThat(read.groupId).isEqualTo("com.example");
+    assertThat(read.entries("1.x")).hasSize(2);
+    assertThat(read.get("1.x", "moshi").javadocRoot).isNull();
+    assertThat(read.get("2.x", "okio").javadocRoot).isEqualTo("okio");
+  }
+}
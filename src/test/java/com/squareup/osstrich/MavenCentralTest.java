@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.BufferedSource;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public final class MavenCentralTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  private final Artifact moshi = Artifact.create("com.squareup.moshi", "moshi", "1.5.0");
+  private final Artifact okio = Artifact.create("com.squareup.okio", "okio", "1.13.0");
+
+  @Test public void cachedJarIsNotDownloadedAgain() throws Exception {
+    JavadocCache cache = newCache(1024L, false);
+    MavenCentral mavenCentral = new MavenCentral(server.url("/"), cache);
+    server.enqueue(new MockResponse().setBody("moshi jar"));
+
+    assertThat(read(mavenCentral.downloadJavadocJar(moshi))).isEqualTo("moshi jar");
+    assertThat(read(mavenCentral.downloadJavadocJar(moshi))).isEqualTo("moshi jar");
+
+    assertThat(server.getRequestCount()).isEqualTo(1);
+    assertThat(cache.toString()).isEqualTo("1 hits, 1 misses, 9 bytes saved");
+  }
+
+  @Test public void revalidateWithConditionalRequest() throws Exception {
+    JavadocCache cache = newCache(1024L, true);
+    MavenCentral mavenCentral = new MavenCentral(server.url("/"), cache);
+    server.enqueue(new MockResponse()
+        .setHeader("ETag", "\"v1\"")
+        .setHeader("Last-Modified", "Mon, 25 Oct 2015 00:00:00 GMT")
+        .setBody("moshi jar"));
+    server.enqueue(new MockResponse().setResponseCode(304));
+
+    assertThat(read(mavenCentral.downloadJavadocJar(moshi))).isEqualTo("moshi jar");
+    assertThat(read(mavenCentral.downloadJavadocJar(moshi))).isEqualTo("moshi jar");
+
+    assertThat(server.takeRequest().getHeader("If-None-Match")).isNull();
+    RecordedRequest revalidation = server.takeRequest();
+    assertThat(revalidation.getHeader("If-None-Match")).isEqualTo("\"v1\"");
+    assertThat(revalidation.getHeader("If-Modified-Since"))
+        .isEqualTo("Mon, 25 Oct 2015 00:00:00 GMT");
+    assertThat(cache.toString()).isEqualTo("1 hits, 1 misses, 9 bytes saved");
+  }
+
+  @Test public void jarEvictedWhileRevalidatingIsDownloadedAgain() throws Exception {
+    final JavadocCache cache = newCache(1024L, true);
+    MavenCentral mavenCentral = new MavenCentral(server.url("/"), cache);
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) {
+        if (request.getHeader("If-None-Match") == null) {
+          return new MockResponse().setHeader("ETag", "\"v1\"").setBody("moshi jar");
+        }
+        // Like another thread's download evicting the jar before the 304 arrives.
+        for (File file : cache.directory.listFiles()) {
+          assertThat(file.delete()).isTrue();
+        }
+        return new MockResponse().setResponseCode(304);
+      }
+    });
+
+    assertThat(read(mavenCentral.downloadJavadocJar(moshi))).isEqualTo("moshi jar");
+    assertThat(read(mavenCentral.downloadJavadocJar(moshi))).isEqualTo("moshi jar");
+
+    assertThat(server.getRequestCount()).isEqualTo(3);
+    assertThat(cache.toString()).isEqualTo("0 hits, 2 misses, 0 bytes saved");
+  }
+
+  @Test public void leastRecentlyUsedJarIsEvicted() throws Exception {
+    JavadocCache cache = newCache(15L, false);
+    MavenCentral mavenCentral = new MavenCentral(server.url("/"), cache);
+    server.enqueue(new MockResponse().setBody("moshi jar"));
+    server.enqueue(new MockResponse().setBody("okio jar"));
+    server.enqueue(new MockResponse().setBody("moshi jar"));
+
+    read(mavenCentral.downloadJavadocJar(moshi));
+    read(mavenCentral.downloadJavadocJar(okio));
+    read(mavenCentral.downloadJavadocJar(okio));
+    read(mavenCentral.downloadJavadocJar(moshi));
+
+    assertThat(server.getRequestCount()).isEqualTo(3);
+    assertThat(cache.toString()).isEqualTo("1 hits, 3 misses, 8 bytes saved");
+  }
+
+  @Test public void latestArtifactsFetchesEveryPage() throws Exception {
+    FakeMavenCentral fakeMavenCentral = new FakeMavenCentral();
+    for (int i = 0; i < 95; i++) {
+      fakeMavenCentral.add("com.example", String.format("artifact-%02d", i), "1.0.0");
+    }
+    server.setDispatcher(fakeMavenCentral);
+    MavenCentral mavenCentral = new MavenCentral(server.url("/"), server.url("/maven2/"), null, 10);
+
+    List<Artifact> artifacts = mavenCentral.latestArtifacts("com.example");
+    assertThat(artifacts).hasSize(95);
+    assertThat(artifacts.get(0).artifactId).isEqualTo("artifact-94");
+    assertThat(artifacts.get(94).artifactId).isEqualTo("artifact-00");
+    assertThat(server.getRequestCount()).isEqualTo(10);
+  }
+
+  @Test public void searchResultsStayBoundedAheadOfCaller() throws Exception {
+    FakeMavenCentral fakeMavenCentral = new FakeMavenCentral();
+    for (int i = 0; i < 95; i++) {
+      fakeMavenCentral.add("com.example", String.format("artifact-%02d", i), "1.0.0");
+    }
+    server.setDispatcher(fakeMavenCentral);
+    MavenCentral mavenCentral = new MavenCentral(server.url("/"), server.url("/maven2/"), null, 10);
+
+    try (MavenCentral.SearchResults results = mavenCentral.searchLatestArtifacts("com.example")) {
+      assertThat(results.size()).isEqualTo(95);
+      assertThat(results.nextPage()).hasSize(10);
+      assertThat(results.nextPage()).hasSize(10);
+      assertThat(server.getRequestCount()).isLessThanOrEqualTo(2 + MavenCentral.PAGES_IN_FLIGHT);
+    }
+  }
+
+  @Test public void latestArtifactsFromMavenMetadata() throws Exception {
+    FakeMavenCentral fakeMavenCentral = new FakeMavenCentral()
+        .add("com.example", "with-javadoc", "2.0.0")
+        .addWithoutJavadoc("com.example", "without-javadoc", "3.0.0");
+    server.setDispatcher(fakeMavenCentral);
+    MavenCentral mavenCentral = new MavenCentral(server.url("/"), server.url("/maven2/"), null);
+
+    List<Artifact> artifacts = mavenCentral.latestArtifacts(
+        "com.example", asList("without-javadoc", "with-javadoc"));
+    assertThat(artifacts).hasSize(2);
+    assertThat(artifacts.get(0).toString()).isEqualTo("com.example:without-javadoc:3.0.0");
+    assertThat(artifacts.get(0).hasJavadoc()).isFalse();
+    assertThat(artifacts.get(1).toString()).isEqualTo("com.example:with-javadoc:2.0.0");
+    assertThat(artifacts.get(1).hasJavadoc()).isTrue();
+  }
+
+  @Test public void interruptedDownloadResumesWithRangeRequest() throws Exception {
+    final StringBuilder jar = new StringBuilder();
+    while (jar.length() < 256 * 1024) {
+      jar.append("moshi jar ").append(jar.length()).append('\n');
+    }
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) {
+        String range = request.getHeader("Range");
+        if (range == null) {
+          return new MockResponse()
+              .setHeader("ETag", "\"v1\"")
+              .setBody(jar.toString())
+              .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+        }
+        int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+        return new MockResponse()
+            .setResponseCode(206)
+            .setHeader("Content-Range",
+                "bytes " + start + "-" + (jar.length() - 1) + "/" + jar.length())
+            .setBody(jar.substring(start));
+      }
+    });
+    MavenCentral mavenCentral = new MavenCentral(server.url("/"), server.url("/maven2/"),
+        newCache(1024L * 1024L, false), MavenCentral.PAGE_SIZE);
+
+    assertThat(read(mavenCentral.downloadJavadocJar(moshi))).isEqualTo(jar.toString());
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    server.takeRequest();
+    RecordedRequest resume = server.takeRequest();
+    assertThat(resume.getHeader("Range")).matches("bytes=[1-9][0-9]*-");
+    assertThat(resume.getHeader("If-Range")).isEqualTo("\"v1\"");
+  }
+
+  @Test public void resumeFailsIfJarChanged() throws Exception {
+    server.enqueue(new MockResponse()
+        .setHeader("ETag", "\"v1\"")
+        .setBody(new Buffer().write(new byte[256 * 1024]))
+        .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+    server.enqueue(new MockResponse().setBody("changed jar"));
+    MavenCentral mavenCentral = new MavenCentral(server.url("/"), server.url("/maven2/"),
+        null, MavenCentral.PAGE_SIZE);
+
+    BufferedSource source = mavenCentral.downloadJavadocJar(moshi);
+    try {
+      source.readByteString();
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected.getSuppressed()[0]).hasMessageStartingWith(
+          "Failed to resume com.squareup.moshi:moshi:1.5.0 at byte ");
+    } finally {
+      source.close();
+    }
+  }
+
+  private JavadocCache newCache(long maxSize, boolean revalidate) throws Exception {
+    File directory = temporaryFolder.newFolder();
+    return new JavadocCache(directory, maxSize, revalidate);
+  }
+
+  private static String read(BufferedSource source) throws Exception {
+    try {
+      return source.readUtf8();
+    } finally {
+      source.close();
+    }
+  }
+}
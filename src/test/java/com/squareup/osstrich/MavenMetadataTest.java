@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import okio.Buffer;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class MavenMetadataTest {
+  @Test public void latestVersionPrefersRelease() throws Exception {
+    assertThat(latestVersion(""
+        + "<metadata><version>0.1.0</version><versioning>"
+        + "<latest>2.0.0-SNAPSHOT</latest><release>1.1.0</release>"
+        + "<versions><version>1.0.0</version><version>1.1.0</version></versions>"
+        + "</versioning></metadata>")).isEqualTo("1.1.0");
+    assertThat(latestVersion(""
+        + "<metadata><version>0.1.0</version><versioning>"
+        + "<versions><version>1.0.0</version><version>1.1.0</version></versions>"
+        + "</versioning></metadata>")).isEqualTo("1.1.0");
+    assertThat(latestVersion("<metadata><version>0.1.0</version></metadata>")).isNull();
+  }
+
+  private static String latestVersion(String xml) throws Exception {
+    return MavenMetadata.latestVersion(new Buffer().writeUtf8(xml).inputStream());
+  }
+
+  @Test public void javadocJarPath() throws Exception {
+    assertThat(MavenMetadata.javadocJarPath(
+        Artifact.create("com.squareup.moshi", "moshi", "1.5.0")))
+        .isEqualTo("com/squareup/moshi/moshi/1.5.0/moshi-1.5.0-javadoc.jar");
+  }
+}
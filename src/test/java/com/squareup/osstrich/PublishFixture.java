@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.rules.ExternalResource;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs whole publishes offline: artifacts come from a {@link FakeMavenCentral} on a local web
+ * server, and Javadoc is pushed to a {@link LocalGitRemote}. Each run reports its wall time, peak
+ * heap, and the processes it spawned.
+ */
+final class PublishFixture extends ExternalResource {
+  static final String GROUP_ID = "com.example";
+
+  private final MockWebServer server = new MockWebServer();
+  private final FakeMavenCentral mavenCentral = new FakeMavenCentral();
+  private final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private LocalGitRemote remote;
+  private int runCount;
+
+  @Override protected void before() throws Throwable {
+    server.setDispatcher(mavenCentral);
+    server.start();
+    temporaryFolder.create();
+    remote = LocalGitRemote.create(newDirectory("remote"), "index.html", "Hello");
+  }
+
+  @Override protected void after() {
+    try {
+      server.shutdown();
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    } finally {
+      temporaryFolder.delete();
+    }
+  }
+
+  /**
+   * Adds {@code count} artifacts at {@code version}, each with a Javadoc jar of {@code
+   * fileCount} files of {@code fileSize} bytes. Adding an artifact again replaces its version.
+   */
+  PublishFixture addArtifacts(int count, String version, int fileCount, int fileSize)
+      throws IOException {
+    for (int i = 0; i < count; i++) {
+      mavenCentral.addGenerated(GROUP_ID, "artifact-" + i, version, fileCount, fileSize);
+    }
+    return this;
+  }
+
+  String url() {
+    return remote.url();
+  }
+
+  /** Returns a publisher of this fixture's artifacts to a new directory. */
+  JavadocPublisher.Builder publisher(RecordingLog log) throws IOException {
+    File directory = new File(newDirectory("publish"), "gh-pages");
+    return new JavadocPublisher.Builder(
+        new MavenCentral(server.url("/")), new Cli(), log, directory);
+  }
+
+  /** Publishes the latest version of each artifact, measuring the run. */
+  Result publish(JavadocPublisher.Builder builder) throws IOException {
+    JavadocPublisher publisher = builder.build();
+    System.gc();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+    }
+
+    long start = System.nanoTime();
+    int published = publisher.publishLatest(remote.url(), GROUP_ID);
+    long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    long peakHeap = 0L;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) peakHeap += pool.getPeakUsage().getUsed();
+    }
+    return new Result(published, wallMillis, peakHeap, publisher.metrics());
+  }
+
+  private File newDirectory(String name) throws IOException {
+    return temporaryFolder.newFolder(name + "-" + runCount++);
+  }
+
+  static final class Result {
+    final int published;
+    final long wallMillis;
+    /** The sum of each heap pool's peak use, which may exceed the actual peak. */
+    final long peakHeapBytes;
+    final PublishMetrics metrics;
+
+    Result(int published, long wallMillis, long peakHeapBytes, PublishMetrics metrics) {
+      this.published = published;
+      this.wallMillis = wallMillis;
+      this.peakHeapBytes = peakHeapBytes;
+      this.metrics = metrics;
+    }
+
+    long processCount() {
+      return metrics.processCount();
+    }
+
+    @Override public String toString() {
+      return String.format("published %s in %s ms, peak heap %s, %s processes%n%s", published,
+          wallMillis, PublishMetrics.formatBytes(peakHeapBytes), processCount(), metrics);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Publishes 20 artifacts end to end and logs how long it took. Timings vary too much to assert,
+ * but the work done for each scenario shouldn't. Process counts are compared to a baseline run
+ * that has nothing to publish, so they don't depend on how a checkout is made.
+ */
+public final class PublishPerformanceTest {
+  private static final int ARTIFACT_COUNT = 20;
+  private static final int FILE_COUNT = 100;
+  private static final int FILE_SIZE = 4096;
+
+  @Rule public final PublishFixture fixture = new PublishFixture();
+  private final RecordingLog log = new RecordingLog();
+
+  @Test public void allStale() throws Exception {
+    fixture.addArtifacts(ARTIFACT_COUNT, "1.0.0", FILE_COUNT, FILE_SIZE);
+
+    PublishFixture.Result result = fixture.publish(fixture.publisher(new RecordingLog()));
+    report("20 artifacts, all stale", result);
+    assertThat(result.published).isEqualTo(ARTIFACT_COUNT);
+    // ls-tree to build the manifest, add, commit, and push.
+    assertThat(result.processCount() - baseline().processCount()).isEqualTo(4);
+    assertThat(result.metrics.artifacts()).hasSize(ARTIFACT_COUNT);
+    assertThat(result.metrics.bytesExtracted())
+        .isGreaterThan((long) ARTIFACT_COUNT * FILE_COUNT * FILE_SIZE);
+  }
+
+  @Test public void noneStale() throws Exception {
+    fixture.addArtifacts(ARTIFACT_COUNT, "1.0.0", FILE_COUNT, FILE_SIZE);
+    fixture.publish(fixture.publisher(new RecordingLog()));
+
+    PublishFixture.Result result = fixture.publish(fixture.publisher(new RecordingLog()));
+    report("20 artifacts, none stale", result);
+    assertThat(result.published).isEqualTo(0);
+    assertThat(result.metrics.artifacts()).isEmpty();
+
+    // The manifest has every version, so the work doesn't grow with the number of artifacts.
+    fixture.addArtifacts(2 * ARTIFACT_COUNT, "1.0.0", FILE_COUNT, FILE_SIZE);
+    fixture.publish(fixture.publisher(new RecordingLog()));
+    assertThat(baseline().processCount()).isEqualTo(result.processCount());
+  }
+
+  @Test public void noneStaleCheckingRemote() throws Exception {
+    fixture.addArtifacts(ARTIFACT_COUNT, "1.0.0", FILE_COUNT, FILE_SIZE);
+    fixture.publish(fixture.publisher(new RecordingLog()));
+
+    PublishFixture.Result result =
+        fixture.publish(fixture.publisher(new RecordingLog()).checkRemote(true));
+    report("20 artifacts, none stale, checking the remote", result);
+    assertThat(result.published).isEqualTo(0);
+    assertThat(result.metrics.phaseMillis()).doesNotContainKey("checkout");
+    assertThat(result.metrics.artifacts()).isEmpty();
+  }
+
+  @Test public void oneStale() throws Exception {
+    fixture.addArtifacts(ARTIFACT_COUNT, "1.0.0", FILE_COUNT, FILE_SIZE);
+    fixture.publish(fixture.publisher(new RecordingLog()));
+    fixture.addArtifacts(1, "1.1.0", FILE_COUNT, FILE_SIZE);
+
+    PublishFixture.Result result =
+        fixture.publish(fixture.publisher(new RecordingLog()).incremental(true));
+    report("20 artifacts, one stale", result);
+    assertThat(result.published).isEqualTo(1);
+    // add, commit, and push.
+    assertThat(result.processCount() - baseline().processCount()).isEqualTo(3);
+    assertThat(result.metrics.artifacts()).hasSize(1);
+  }
+
+  /** Publishes again with nothing stale, which does only the work every run does. */
+  private PublishFixture.Result baseline() throws Exception {
+    PublishFixture.Result result = fixture.publish(fixture.publisher(new RecordingLog()));
+    assertThat(result.published).isEqualTo(0);
+    report("baseline", result);
+    return result;
+  }
+
+  private void report(String scenario, PublishFixture.Result result) {
+    log.info(scenario + ": " + result);
+  }
+}
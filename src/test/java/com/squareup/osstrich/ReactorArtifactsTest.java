@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import okio.BufferedSink;
+import okio.Okio;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.squareup.osstrich.LocalGitRemote.git;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public final class ReactorArtifactsTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final ReactorArtifacts reactor = new ReactorArtifacts();
+
+  @Before public void setUp() throws Exception {
+    reactor
+        .add("com.example", "core", "2.0.0", jar("core",
+            "index.html", "Core",
+            "com/example/Core.html", "Core class"))
+        .add("com.example", "adapter", "2.0.0", jar("adapter",
+            "index.html", "Adapter"))
+        .add("com.example", "bom", "2.0.0", null)
+        .add("com.other", "other", "1.0.0", jar("other",
+            "index.html", "Other"));
+  }
+
+  @Test public void latestArtifacts() throws Exception {
+    List<Artifact> artifacts = reactor.latestArtifacts("com.example");
+    assertThat(artifacts).extracting("artifactId").containsExactly("adapter", "bom", "core");
+    assertThat(artifacts.get(0).latestVersion).isEqualTo("2.0.0");
+    assertThat(artifacts.get(1).hasJavadoc()).isFalse();
+    assertThat(reactor.javadocJarCount()).isEqualTo(3);
+
+    assertThat(reactor.latestArtifacts("com.example", Arrays.asList("core")))
+        .extracting("artifactId").containsExactly("core");
+    try {
+      reactor.latestArtifacts("com.example", Arrays.asList("missing"));
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected).hasMessage("com.example:missing wasn't built in this reactor");
+    }
+  }
+
+  @Test public void javadocJarFileMatchesBuiltVersion() throws Exception {
+    assertThat(reactor.javadocJarFile(Artifact.create("com.example", "core", "2.0.0")))
+        .isEqualTo(new File(temporaryFolder.getRoot(), "core-javadoc.jar"));
+    assertThat(reactor.javadocJarFile(Artifact.create("com.example", "core", "1.0.0"))).isNull();
+    assertThat(reactor.javadocJarFile(Artifact.create("com.example", "bom", "2.0.0"))).isNull();
+  }
+
+  @Test public void publishInOneCommit() throws Exception {
+    LocalGitRemote remote = LocalGitRemote.create(temporaryFolder.newFolder(), "index.html", "Hi");
+    RecordingLog log = new RecordingLog();
+    File directory = new File(temporaryFolder.getRoot(), "directory");
+    assertThat(new JavadocPublisher.Builder(reactor, new Cli(), log, directory)
+        .spool(true)
+        .parallelism(2)
+        .build()
+        .publishLatest(remote.url(), "com.example")).isEqualTo(2);
+
+    assertThat(log.messages()).contains("Skipping com.example:bom:2.0.0, artifact has no Javadoc");
+    assertThat(git(remote.directory, "rev-list", "--count", "gh-pages")).isEqualTo("2");
+    assertThat(git(remote.directory, "log", "-1", "--format=%B", "gh-pages")).isEqualTo(""
+        + "Publish Javadoc\n"
+        + "\n"
+        + "Artifacts published:\n"
+        + "com.example:adapter:2.0.0\n"
+        + "com.example:core:2.0.0");
+    assertThat(git(remote.directory, "show", "gh-pages:2.x/core/com/example/Core.html"))
+        .isEqualTo("Core class");
+  }
+
+  private File jar(String name, String... pathsAndContents) throws IOException {
+    File result = new File(temporaryFolder.getRoot(), name + "-javadoc.jar");
+    try (BufferedSink sink = Okio.buffer(Okio.sink(result))) {
+      sink.writeAll(FakeMavenCentral.javadocJar(pathsAndContents));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+/** Records info and debug messages so tests can assert on them. */
+final class RecordingLog extends SystemStreamLog {
+  private final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+  private final List<String> debugMessages =
+      Collections.synchronizedList(new ArrayList<String>());
+
+  @Override public void debug(CharSequence content) {
+    debugMessages.add(content.toString());
+    super.debug(content);
+  }
+
+  @Override public void info(CharSequence content) {
+    messages.add(content.toString());
+    super.info(content);
+  }
+
+  List<String> messages() {
+    synchronized (messages) {
+      return new ArrayList<>(messages);
+    }
+  }
+
+  List<String> debugMessages() {
+    synchronized (debugMessages) {
+      return new ArrayList<>(debugMessages);
+    }
+  }
+
+  /** Returns the first recorded message that starts with {@code prefix}, or null. */
+  String first(String prefix) {
+    for (String message : messages()) {
+      if (message.startsWith(prefix)) return message;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.util.Random;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class RetryInterceptorTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  private final OkHttpClient client = HttpClients.newClient(
+      new RetryInterceptor(4, 1, 10, MILLISECONDS, new Random(0)),
+      new ConcurrencyLimiter(8, 1, 64));
+
+  @Test public void retriesThrottlingAndGatewayErrors() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "0"));
+    server.enqueue(new MockResponse().setResponseCode(429));
+    server.enqueue(new MockResponse().setResponseCode(502));
+    server.enqueue(new MockResponse().setBody("jar"));
+
+    try (Response response = get()) {
+      assertThat(response.code()).isEqualTo(200);
+      assertThat(response.body().string()).isEqualTo("jar");
+    }
+    assertThat(server.getRequestCount()).isEqualTo(4);
+  }
+
+  @Test public void retriesConnectionFailures() throws Exception {
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+    server.enqueue(new MockResponse().setBody("jar"));
+
+    try (Response response = get()) {
+      assertThat(response.body().string()).isEqualTo("jar");
+    }
+  }
+
+  @Test public void givesUpAfterMaxAttempts() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      server.enqueue(new MockResponse().setResponseCode(503));
+    }
+
+    try (Response response = get()) {
+      assertThat(response.code()).isEqualTo(503);
+    }
+    assertThat(server.getRequestCount()).isEqualTo(4);
+  }
+
+  @Test public void doesNotRetryClientErrors() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(404));
+    server.enqueue(new MockResponse().setBody("jar"));
+
+    try (Response response = get()) {
+      assertThat(response.code()).isEqualTo(404);
+    }
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void doesNotRetryPost() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setBody("jar"));
+
+    Request request = new Request.Builder()
+        .url(server.url("/"))
+        .post(RequestBody.create(MediaType.get("text/plain"), "body"))
+        .build();
+    try (Response response = client.newCall(request).execute()) {
+      assertThat(response.code()).isEqualTo(503);
+    }
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void delayIsJitteredUpToAnExponentialCap() throws Exception {
+    Random half = new Random() {
+      @Override public double nextDouble() {
+        return 0.5;
+      }
+    };
+    RetryInterceptor retry = new RetryInterceptor(10, 100, 1000, MILLISECONDS, half);
+    assertThat(retry.delayNanos(1, null)).isEqualTo(MILLISECONDS.toNanos(50));
+    assertThat(retry.delayNanos(3, null)).isEqualTo(MILLISECONDS.toNanos(200));
+    assertThat(retry.delayNanos(9, null)).isEqualTo(MILLISECONDS.toNanos(500));
+    assertThat(retry.delayNanos(1, "0")).isEqualTo(MILLISECONDS.toNanos(50));
+    assertThat(retry.delayNanos(1, "30")).isEqualTo(MILLISECONDS.toNanos(1000));
+    assertThat(retry.delayNanos(1, "Wed, 21 Oct 2015 07:28:00 GMT"))
+        .isEqualTo(MILLISECONDS.toNanos(50));
+  }
+
+  private Response get() throws Exception {
+    return client.newCall(new Request.Builder().url(server.url("/")).build()).execute();
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import okio.Buffer;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class SearchIndexTest {
+  @Test public void javadocPagesAndMembers() throws Exception {
+    SearchIndex.Collector collector = new SearchIndex.Collector();
+    collector.read("member-search-index.js", new Buffer().writeUtf8("memberSearchIndex = ["
+        + "{\"p\":\"com.example\",\"c\":\"Foo\",\"l\":\"bar(int)\"},"
+        + "{\"p\":\"com.example\",\"c\":\"Foo\",\"l\":\"Foo()\",\"u\":\"%3Cinit%3E()\"},"
+        + "{\"m\":\"example\",\"p\":\"com.example\",\"c\":\"Foo.Inner\",\"l\":\"baz\"}"
+        + "];updateSearchResults();"));
+
+    List<String> entryNames = Arrays.asList(
+        "index.html",
+        "allclasses-index.html",
+        "member-search-index.js",
+        "com/example/package-summary.html",
+        "com/example/Foo.html",
+        "com/example/Foo.Inner.html",
+        "com/example/class-use/Foo.html",
+        "com/example/doc-files/Diagram.html",
+        "stylesheet.css");
+    assertThat(toStrings(collector.entries("example", "example", entryNames))).containsExactly(
+        "p com.example in example: example/com/example/package-summary.html",
+        "t Foo in com.example: example/com/example/Foo.html",
+        "t Foo.Inner in com.example: example/com/example/Foo.Inner.html",
+        "m bar(int) in com.example.Foo: example/com/example/Foo.html#bar(int)",
+        "m Foo() in com.example.Foo: example/com/example/Foo.html#%3Cinit%3E()",
+        "m baz in com.example.Foo.Inner: example/example/com/example/Foo.Inner.html#baz");
+  }
+
+  @Test public void jdk11MemberAnchors() throws Exception {
+    SearchIndex.Collector collector = new SearchIndex.Collector();
+    // As written by JDK 11's javadoc, which has no trailing call.
+    collector.read("member-search-index.js", new Buffer().writeUtf8("memberSearchIndex = ["
+        + "{\"p\":\"com.example\",\"c\":\"Greeter\",\"l\":\"greet(String)\","
+        + "\"url\":\"greet(java.lang.String)\"},"
+        + "{\"p\":\"com.example\",\"c\":\"Greeter\",\"l\":\"Greeter()\","
+        + "\"url\":\"%3Cinit%3E()\"}]"));
+
+    List<String> entryNames = Collections.singletonList("com/example/Greeter.html");
+    assertThat(toStrings(collector.entries("greeter", "greeter", entryNames))).containsExactly(
+        "t Greeter in com.example: greeter/com/example/Greeter.html",
+        "m greet(String) in com.example.Greeter: "
+            + "greeter/com/example/Greeter.html#greet(java.lang.String)",
+        "m Greeter() in com.example.Greeter: greeter/com/example/Greeter.html#%3Cinit%3E()");
+  }
+
+  @Test public void modularJavadoc() throws Exception {
+    SearchIndex.Collector collector = new SearchIndex.Collector();
+    collector.read("member-search-index.js", new Buffer().writeUtf8("memberSearchIndex = ["
+        + "{\"m\":\"com.example.app\",\"p\":\"com.example\",\"c\":\"Foo\",\"l\":\"bar()\"}"
+        + "];updateSearchResults();"));
+
+    List<String> entryNames = Arrays.asList(
+        "index.html",
+        "member-search-index.js",
+        "com.example.app/module-summary.html",
+        "com.example.app/com/example/package-summary.html",
+        "com.example.app/com/example/Foo.html",
+        "com.example.app/com/example/class-use/Foo.html");
+    assertThat(toStrings(collector.entries("app", "app", entryNames))).containsExactly(
+        "p com.example in app: app/com.example.app/com/example/package-summary.html",
+        "t Foo in com.example: app/com.example.app/com/example/Foo.html",
+        "m bar() in com.example.Foo: app/com.example.app/com/example/Foo.html#bar()");
+  }
+
+  @Test public void nestedJavadocRoot() throws Exception {
+    SearchIndex.Collector collector = new SearchIndex.Collector();
+    List<String> entryNames = Arrays.asList(
+        "okio/index.html",
+        "okio/jvm/index.html",
+        "okio/jvm/okio/index.html",
+        "okio/jvm/okio/-buffered-source/index.html",
+        "okio/jvm/okio/-buffer/-unsafe-cursor/index.html",
+        "okio/jvm/okio/-buffer/read.html");
+    assertThat(toStrings(collector.entries("okio", "okio/okio/jvm", entryNames))).containsExactly(
+        "p okio in okio: okio/okio/jvm/okio/index.html",
+        "t BufferedSource in okio: okio/okio/jvm/okio/-buffered-source/index.html",
+        "t Buffer.UnsafeCursor in okio: okio/okio/jvm/okio/-buffer/-unsafe-cursor/index.html");
+  }
+
+  @Test public void prefix() throws Exception {
+    assertThat(SearchIndex.prefix("Buffer")).isEqualTo("b");
+    assertThat(SearchIndex.prefix("buffer")).isEqualTo("b");
+    assertThat(SearchIndex.prefix("2d")).isEqualTo("2");
+    assertThat(SearchIndex.prefix("<init>")).isEqualTo("_");
+    assertThat(SearchIndex.prefix("")).isEqualTo("_");
+  }
+
+  @Test public void replaceKeepsOtherArtifacts() throws Exception {
+    SearchIndex index = new SearchIndex();
+    index.replace("a", Arrays.asList(
+        new SearchIndex.Entry("Apple", SearchIndex.TYPE, "com.a", "a/com/a/Apple.html"),
+        new SearchIndex.Entry("Banana", SearchIndex.TYPE, "com.a", "a/com/a/Banana.html")));
+    index.replace("ab", Collections.singletonList(
+        new SearchIndex.Entry("apricot", SearchIndex.MEMBER, "com.ab.Tree",
+            "ab/com/ab/Tree.html#apricot")));
+    index.replace("a", Collections.singletonList(
+        new SearchIndex.Entry("Avocado", SearchIndex.TYPE, "com.a", "a/com/a/Avocado.html")));
+
+    Map<String, Buffer> shards = index.shards();
+    assertThat(shards.keySet()).containsExactly("a", "b");
+    assertThat(shards.get("a").clone().readUtf8()).isEqualTo("["
+        + "[\"apricot\",\"m\",\"com.ab.Tree\",\"ab/com/ab/Tree.html#apricot\"],"
+        + "[\"Avocado\",\"t\",\"com.a\",\"a/com/a/Avocado.html\"]"
+        + "]\n");
+    // The Banana shard is emptied rather than left with stale entries.
+    assertThat(shards.get("b").clone().readUtf8()).isEqualTo("[]\n");
+    assertThat(index.size()).isEqualTo(2);
+  }
+
+  private static String[] toStrings(List<SearchIndex.Entry> entries) {
+    String[] result = new String[entries.size()];
+    for (int i = 0; i < entries.size(); i++) {
+      result[i] = entries.get(i).toString();
+    }
+    return result;
+  }
+}
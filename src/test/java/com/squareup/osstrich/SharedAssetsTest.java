@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2026 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.squareup.osstrich;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class SharedAssetsTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test public void isAsset() throws Exception {
+    assertThat(SharedAssets.isAsset("stylesheet.css")).isTrue();
+    assertThat(SharedAssets.isAsset("script-dir/jquery-ui.min.css")).isTrue();
+    assertThat(SharedAssets.isAsset("resources/fonts/DejaVuSans.woff2")).isTrue();
+    assertThat(SharedAssets.isAsset("resources/glass.PNG")).isTrue();
+    assertThat(SharedAssets.isAsset("script.js")).isFalse();
+    assertThat(SharedAssets.isAsset("member-search-index.js")).isFalse();
+    assertThat(SharedAssets.isAsset("index.html")).isFalse();
+    assertThat(SharedAssets.isAsset("package-list")).isFalse();
+    assertThat(SharedAssets.isAsset("v1.0/readme")).isFalse();
+    assertThat(SharedAssets.isAsset("com/example/doc-files/diagram.png")).isFalse();
+    assertThat(SharedAssets.isAsset("doc-files/logo.svg")).isFalse();
+  }
+
+  @Test public void resolve() throws Exception {
+    assertThat(SharedAssets.resolve("com/example/", "../../stylesheet.css"))
+        .isEqualTo("stylesheet.css");
+    assertThat(SharedAssets.resolve("", "./resources/x.png")).isEqualTo("resources/x.png");
+    assertThat(SharedAssets.resolve("", "../stylesheet.css")).isNull();
+    assertThat(SharedAssets.resolve("", "/stylesheet.css")).isNull();
+    assertThat(SharedAssets.resolve("", "https://example.com/a.css")).isNull();
+  }
+
+  @Test public void sameAssetsShareHash() throws Exception {
+    SharedAssets a = scan(
+        "index.html", "A",
+        "stylesheet.css", "body {}",
+        "resources/x.png", "x");
+    SharedAssets b = scan(
+        "resources/x.png", "x",
+        "index.html", "B",
+        "com/example/B.html", "B",
+        "stylesheet.css", "body {}");
+    SharedAssets c = scan(
+        "index.html", "A",
+        "stylesheet.css", "body { color: red }",
+        "resources/x.png", "x");
+    SharedAssets d = scan(
+        "index.html", "D",
+        "stylesheet.css", "body {}",
+        "resources/x.png", "x",
+        "com/example/doc-files/diagram.png", "diagram");
+    assertThat(a.hash).isEqualTo(b.hash).isEqualTo(d.hash).isNotEqualTo(c.hash);
+    assertThat(a.paths).containsOnlyKeys("stylesheet.css", "resources/x.png");
+    assertThat(a.byteCount).isEqualTo(8L);
+    assertThat(a.directory()).isEqualTo("_assets/" + a.hash);
+    assertThat(scan("index.html", "A")).isNull();
+  }
+
+  @Test public void rewrite() throws Exception {
+    SharedAssets assets = scan(
+        "stylesheet.css", "body {}",
+        "script.js", "",
+        "resources/x.png", "x");
+    String page = ""
+        + "<link rel=\"stylesheet\" href=\"../../stylesheet.css\" title=\"Style\">\n"
+        + "<script src='../../script.js?v=1'></script>\n"
+        + "<img SRC=\"../../resources/x.png#top\">\n"
+        + "<a href=\"Other.html\">Other</a>\n"
+        + "<a href=\"https://example.com/stylesheet.css\">External</a>\n"
+        + "<a href=\"../../../stylesheet.css\">Outside</a>\n";
+    Buffer rewritten = assets.rewrite("com/example/Foo.html", new Buffer().writeUtf8(page));
+    String up = "../../../../_assets/" + assets.hash + "/";
+    assertThat(rewritten.readUtf8()).isEqualTo(""
+        + "<link rel=\"stylesheet\" href=\"" + up + "stylesheet.css\" title=\"Style\">\n"
+        + "<script src='../../script.js?v=1'></script>\n"
+        + "<img SRC=\"" + up + "resources/x.png#top\">\n"
+        + "<a href=\"Other.html\">Other</a>\n"
+        + "<a href=\"https://example.com/stylesheet.css\">External</a>\n"
+        + "<a href=\"../../../stylesheet.css\">Outside</a>\n");
+
+    assertThat(assets.rewrite("index.html",
+        new Buffer().writeUtf8("<link href=\"stylesheet.css\">")).readUtf8())
+        .isEqualTo("<link href=\"../../_assets/" + assets.hash + "/stylesheet.css\">");
+  }
+
+  /** Javadoc's own scripts load each other by path, so only HTML references may move. */
+  @Test public void jdk17Javadoc() throws Exception {
+    File jar = new File(SharedAssetsTest.class.getResource("/jdk17-javadoc.jar").toURI());
+    try (ZipFile zipFile = new ZipFile(jar)) {
+      SharedAssets assets = SharedAssets.scan(zipFile, 2);
+      assertThat(assets.paths).containsOnlyKeys("jquery-ui.overrides.css",
+          "resources/glass.png", "resources/x.png", "script-dir/jquery-ui.min.css",
+          "stylesheet.css");
+
+      List<String> loaded = new ArrayList<>();
+      Matcher createElem = Pattern.compile("createElem\\(doc, tag, '([^']+)'\\)")
+          .matcher(read(zipFile, "script.js"));
+      while (createElem.find()) {
+        loaded.add(createElem.group(1));
+      }
+      assertThat(loaded).contains("search.js", "member-search-index.js");
+      for (String name : loaded) {
+        assertThat(zipFile.getEntry(name)).isNotNull();
+        assertThat(assets.paths).doesNotContainKey(name);
+      }
+
+      // Every relative link on every page, once rewritten, finds a shared asset or a page file.
+      String root = "1.x/artifact/";
+      String shared = assets.directory() + "/";
+      Pattern reference = Pattern.compile("\\b(?:href|src)=\"([^\"#?]+)");
+      for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements(); ) {
+        String name = e.nextElement().getName();
+        if (!SharedAssets.isPage(name)) continue;
+        String page = assets.rewrite(name, new Buffer().writeUtf8(read(zipFile, name))).readUtf8();
+        String pageDirectory = root + name.substring(0, name.lastIndexOf('/') + 1);
+        for (Matcher m = reference.matcher(page); m.find(); ) {
+          String path = SharedAssets.resolve(pageDirectory, m.group(1));
+          if (path == null) continue;
+          if (path.startsWith(shared)) {
+            assertThat(assets.paths).containsKey(path.substring(shared.length()));
+          } else {
+            assertThat(path).startsWith(root);
+            String entry = path.substring(root.length());
+            assertThat(zipFile.getEntry(entry)).overridingErrorMessage(
+                "%s links to missing %s", name, entry).isNotNull();
+            assertThat(assets.paths).doesNotContainKey(entry);
+          }
+        }
+      }
+    }
+  }
+
+  private static String read(ZipFile zipFile, String name) throws Exception {
+    try (InputStream in = zipFile.getInputStream(zipFile.getEntry(name));
+         BufferedSource source = Okio.buffer(Okio.source(in))) {
+      return source.readUtf8();
+    }
+  }
+
+  private SharedAssets scan(String... pathsAndContents) throws Exception {
+    File jar = temporaryFolder.newFile();
+    try (BufferedSink sink = Okio.buffer(Okio.sink(jar))) {
+      sink.writeAll(FakeMavenCentral.javadocJar(pathsAndContents));
+    }
+    try (ZipFile zipFile = new ZipFile(jar)) {
+      return SharedAssets.scan(zipFile, 2);
+    }
+  }
+}